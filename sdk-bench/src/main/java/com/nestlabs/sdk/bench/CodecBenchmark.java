@@ -0,0 +1,150 @@
+package com.nestlabs.sdk.bench;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.nestlabs.sdk.models.Camera;
+import com.nestlabs.sdk.models.Metadata;
+import com.nestlabs.sdk.models.ModelCodec;
+import com.nestlabs.sdk.models.ModelCodecs;
+import com.nestlabs.sdk.models.SmokeCOAlarm;
+import com.nestlabs.sdk.models.Structure;
+import com.nestlabs.sdk.models.Thermostat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse cost of the generated {@link ModelCodec}s against Jackson databind, on the JSON of every
+ * model of an account. The {@code cold} benchmarks time the first parse in a fresh JVM, including
+ * creating the mapper or looking up the codecs, which is what an app pays on its first snapshot.
+ * Setting up the payload already loads Jackson itself, so they mostly measure databind
+ * introspecting the models. The {@code steady} benchmarks measure throughput once both are warm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final Class<?>[] TYPES = {
+            Structure.class, Thermostat.class, Camera.class, SmokeCOAlarm.class, Metadata.class };
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private final List<Class<?>> types = new ArrayList<>();
+    private final List<byte[]> models = new ArrayList<>();
+    private final JsonFactory factory = new JsonFactory();
+
+    /**
+     * The readers and codecs of the steady benchmarks, only set up for those so the cold
+     * benchmarks start without them.
+     */
+    @State(Scope.Benchmark)
+    public static class Warm {
+        final Map<Class<?>, ObjectReader> readers = readers();
+        final Map<Class<?>, ModelCodec<?>> codecs = codecs();
+    }
+
+    private static Map<Class<?>, ObjectReader> readers() {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<Class<?>, ObjectReader> readers = new HashMap<>();
+        for (Class<?> type : TYPES) readers.put(type, mapper.readerFor(type));
+        return readers;
+    }
+
+    private static Map<Class<?>, ModelCodec<?>> codecs() {
+        Map<Class<?>, ModelCodec<?>> codecs = new HashMap<>();
+        for (Class<?> type : TYPES) codecs.put(type, ModelCodecs.get(type));
+        return codecs;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode data = mapper.readTree(Payloads.forSize(size)).get("data");
+        add(mapper, Structure.class, data.path("structures"));
+        add(mapper, Thermostat.class, data.path("devices").path("thermostats"));
+        add(mapper, Camera.class, data.path("devices").path("cameras"));
+        add(mapper, SmokeCOAlarm.class, data.path("devices").path("smoke_co_alarms"));
+        types.add(Metadata.class);
+        models.add(mapper.writeValueAsBytes(data.path("metadata")));
+    }
+
+    private void add(ObjectMapper mapper, Class<?> type, JsonNode collection) throws IOException {
+        Iterator<JsonNode> elements = collection.elements();
+        while (elements.hasNext()) {
+            types.add(type);
+            models.add(mapper.writeValueAsBytes(elements.next()));
+        }
+    }
+
+    private void databind(Map<Class<?>, ObjectReader> readers, Blackhole blackhole)
+            throws IOException {
+        for (int i = 0; i < models.size(); i++) {
+            blackhole.consume(readers.get(types.get(i)).readValue(models.get(i)));
+        }
+    }
+
+    private void codec(Map<Class<?>, ModelCodec<?>> codecs, Blackhole blackhole)
+            throws IOException {
+        for (int i = 0; i < models.size(); i++) {
+            JsonParser parser = factory.createParser(models.get(i));
+            blackhole.consume(codecs.get(types.get(i)).read(parser));
+            parser.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public void coldDatabind(Blackhole blackhole) throws IOException {
+        databind(readers(), blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public void coldCodec(Blackhole blackhole) throws IOException {
+        codec(codecs(), blackhole);
+    }
+
+    @Benchmark
+    public void steadyDatabind(Warm warm, Blackhole blackhole) throws IOException {
+        databind(warm.readers, blackhole);
+    }
+
+    @Benchmark
+    public void steadyCodec(Warm warm, Blackhole blackhole) throws IOException {
+        codec(warm.codecs, blackhole);
+    }
+}
@@ -0,0 +1,103 @@
+package com.nestlabs.sdk.bench;
+
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
+import com.nestlabs.sdk.rest.parsers.ParserException;
+import com.nestlabs.sdk.rest.parsers.StreamingEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import okio.ByteString;
+
+/**
+ * Throughput of {@code equals}, {@code hashCode} and {@code toString} over every model of an
+ * account, and of putting the models and their copies into a set. Both sides of {@code equals}
+ * are separate, equal instances parsed from the same payload. {@link #jsonEquals()} compares the
+ * JSON of both sides, which is what the models did before they compared their fields, as a
+ * baseline for {@link #modelEquals()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private List<Object> models;
+    private List<Object> copies;
+
+    private static List<Object> parse(ByteString payload) throws ParserException {
+        ObjectModelMapperBenchmark.LastUpdateHandler handler =
+                new ObjectModelMapperBenchmark.LastUpdateHandler();
+        new ObjectModelMapper(handler).map(StreamingEvent.fromBytes("put", payload));
+
+        GlobalUpdate update = handler.update;
+        List<Object> models = new ArrayList<>();
+        models.add(update.getMetadata());
+        models.addAll(update.getStructures());
+        models.addAll(update.getThermostats());
+        models.addAll(update.getCameras());
+        models.addAll(update.getSmokeCOAlarms());
+        return models;
+    }
+
+    @Setup
+    public void setUp() throws ParserException {
+        ByteString payload = ByteString.encodeUtf8(Payloads.forSize(size));
+        models = parse(payload);
+        copies = parse(payload);
+    }
+
+    @Benchmark
+    public int modelEquals() {
+        int equal = 0;
+        for (int i = 0; i < models.size(); i++) {
+            if (models.get(i).equals(copies.get(i))) equal++;
+        }
+        return equal;
+    }
+
+    @Benchmark
+    public int jsonEquals() {
+        int equal = 0;
+        for (int i = 0; i < models.size(); i++) {
+            if (models.get(i).toString().equals(copies.get(i).toString())) equal++;
+        }
+        return equal;
+    }
+
+    @Benchmark
+    public int modelHashSet() {
+        Set<Object> unique = new HashSet<>(models);
+        unique.addAll(copies);
+        return unique.size();
+    }
+
+    @Benchmark
+    public void modelToString(Blackhole blackhole) {
+        for (Object model : models) {
+            blackhole.consume(model.toString());
+        }
+    }
+}
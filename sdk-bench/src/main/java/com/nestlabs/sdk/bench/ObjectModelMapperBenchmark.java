@@ -0,0 +1,126 @@
+package com.nestlabs.sdk.bench;
+
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.rest.parsers.ErrorMessage;
+import com.nestlabs.sdk.rest.parsers.Mapper;
+import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
+import com.nestlabs.sdk.rest.parsers.ParserException;
+import com.nestlabs.sdk.rest.parsers.StreamingEvent;
+import com.nestlabs.sdk.rest.parsers.StreamingEventHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okio.ByteString;
+
+/**
+ * Compares the streaming {@link ObjectModelMapper} with the previous tree-walking mapping on a
+ * full-state {@code put} payload. The streaming mapper binds models lazily, so the streaming
+ * benchmarks read every list like a global listener would, except {@code streamingChangedUnread},
+ * which reads none of them.
+ *
+ * The {@code changed} benchmarks map variants of the snapshot in turn, in which every model
+ * differs from the previous variant, so every model is bound on each operation. They compare
+ * the single pass with the tree. The {@code unchanged} benchmarks map the same snapshot on every
+ * operation, so the streaming mapper reuses all models of the previous one, like it does for the
+ * unchanged devices of consecutive snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectModelMapperBenchmark {
+
+    @Param({"500"})
+    public int devices;
+
+    private ByteString payload;
+    private ByteString[] variants;
+    private int next;
+    private Mapper streamingMapper;
+    private Mapper treeMapper;
+    private final LastUpdateHandler handler = new LastUpdateHandler();
+
+    static final class LastUpdateHandler implements StreamingEventHandler {
+        GlobalUpdate update;
+
+        @Override
+        public void handleData(GlobalUpdate eventData) {
+            update = eventData;
+        }
+
+        @Override
+        public void handleError(ErrorMessage errorMessage) { }
+
+        @Override
+        public void handleAuthRevoked() { }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        String json = Payloads.globalUpdate(devices);
+        payload = ByteString.encodeUtf8(json);
+        String[] jsons = Payloads.variants(json, 2);
+        variants = new ByteString[jsons.length];
+        for (int i = 0; i < jsons.length; i++) variants[i] = ByteString.encodeUtf8(jsons[i]);
+        streamingMapper = new ObjectModelMapper(handler);
+        treeMapper = new TreeModelMapper(handler);
+    }
+
+    private ByteString nextVariant() {
+        next = (next + 1) % variants.length;
+        return variants[next];
+    }
+
+    @Benchmark
+    public GlobalUpdate streamingChanged() throws ParserException {
+        streamingMapper.map(StreamingEvent.fromBytes("put", nextVariant()));
+        return readAll(handler.update);
+    }
+
+    @Benchmark
+    public GlobalUpdate streamingChangedUnread() throws ParserException {
+        streamingMapper.map(StreamingEvent.fromBytes("put", nextVariant()));
+        return handler.update;
+    }
+
+    @Benchmark
+    public GlobalUpdate treeChanged() throws ParserException {
+        treeMapper.map(StreamingEvent.fromBytes("put", nextVariant()));
+        return readAll(handler.update);
+    }
+
+    @Benchmark
+    public GlobalUpdate streamingUnchanged() throws ParserException {
+        streamingMapper.map(StreamingEvent.fromBytes("put", payload));
+        return readAll(handler.update);
+    }
+
+    @Benchmark
+    public GlobalUpdate treeUnchanged() throws ParserException {
+        treeMapper.map(StreamingEvent.fromBytes("put", payload));
+        return readAll(handler.update);
+    }
+
+    static GlobalUpdate readAll(GlobalUpdate update) {
+        update.getStructures();
+        update.getThermostats();
+        update.getCameras();
+        update.getSmokeCOAlarms();
+        return update;
+    }
+}
@@ -0,0 +1,97 @@
+package com.nestlabs.sdk.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nestlabs.sdk.testing.FakeWwnServer;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Builds synthetic WWN payloads of any size, with the accounts of the {@link FakeWwnServer}.
+ */
+public final class Payloads {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Payloads() {}
+
+    /**
+     * Returns a full-state payload, wrapped the way the stream sends it, for the given number of
+     * homes. Devices in each home rotate between thermostats, cameras and smoke+CO alarms.
+     *
+     * @param homes          number of structures in the account.
+     * @param devicesPerHome number of devices in every structure.
+     * @return the JSON payload of a {@code put} event.
+     */
+    public static String globalUpdate(int homes, int devicesPerHome) {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("path", "/");
+        root.set("data", FakeWwnServer.account(homes, devicesPerHome));
+        return root.toString();
+    }
+
+    /**
+     * Returns a full-state payload with the given number of devices, ten devices per home.
+     *
+     * @param devices total number of devices in the account.
+     * @return the JSON payload of a {@code put} event.
+     */
+    public static String globalUpdate(int devices) {
+        int homes = Math.max(1, devices / 10);
+        return globalUpdate(homes, devices / homes);
+    }
+
+    /**
+     * Returns the full-state payload of a named account size: {@code small} is a single home
+     * with three devices, {@code medium} has 100 devices and {@code large} has 1,000.
+     *
+     * @param size one of {@code small}, {@code medium} or {@code large}.
+     * @return the JSON payload of a {@code put} event.
+     */
+    public static String forSize(String size) {
+        switch (size) {
+            case "small":
+                return globalUpdate(1, 3);
+            case "medium":
+                return globalUpdate(100);
+            case "large":
+                return globalUpdate(1000);
+            default:
+                throw new IllegalArgumentException("Unknown payload size " + size);
+        }
+    }
+
+    /**
+     * Returns variants of a full-state payload in which every model has a different name, so a
+     * mapper that reuses the models of the previous snapshot has to bind all of them again when
+     * it maps the variants in turn.
+     *
+     * @param payload the JSON payload of a {@code put} event.
+     * @param count   number of variants.
+     * @return the JSON payloads of the variants.
+     */
+    public static String[] variants(String payload, int count) throws IOException {
+        String[] variants = new String[count];
+        for (int i = 0; i < count; i++) {
+            JsonNode root = MAPPER.readTree(payload);
+            JsonNode data = root.path("data");
+            rename(data.path("structures"), i);
+            Iterator<JsonNode> types = data.path("devices").elements();
+            while (types.hasNext()) rename(types.next(), i);
+            variants[i] = root.toString();
+        }
+        return variants;
+    }
+
+    private static void rename(JsonNode collection, int variant) {
+        Iterator<JsonNode> models = collection.elements();
+        while (models.hasNext()) {
+            JsonNode model = models.next();
+            if (model.isObject()) {
+                ((ObjectNode) model).put("name", model.path("name").asText() + " " + variant);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.nestlabs.sdk.bench;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.NestListener;
+import com.nestlabs.sdk.models.Camera;
+import com.nestlabs.sdk.models.DeviceUpdate;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.Metadata;
+import com.nestlabs.sdk.models.SmokeCOAlarm;
+import com.nestlabs.sdk.models.Structure;
+import com.nestlabs.sdk.models.Thermostat;
+import com.nestlabs.sdk.rest.parsers.MessageParser;
+import com.nestlabs.sdk.rest.parsers.Notifier;
+import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
+import com.nestlabs.sdk.rest.parsers.ParserException;
+import com.nestlabs.sdk.rest.parsers.StreamingEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okio.ByteString;
+
+/**
+ * Throughput of every stage a full-state {@code put} goes through, from the raw event to the
+ * listeners. Run with {@code -prof gc} (the default of the {@code jmh} task) to see the
+ * allocation rate of each stage next to it.
+ *
+ * The parse and map stages alternate between two variants of the snapshot in which every model
+ * differs, and read every list of the update, so each operation binds every model like a stream
+ * of changing snapshots with a global listener would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private String[] messages;
+    private ByteString[] data;
+    private int next;
+    private GlobalUpdate update;
+    private MessageParser parser;
+    private ObjectModelMapper mapper;
+    private Notifier notifier;
+    private final ObjectModelMapperBenchmark.LastUpdateHandler handler =
+            new ObjectModelMapperBenchmark.LastUpdateHandler();
+
+    //One listener per interface, each keeping what it got so dispatch is not optimized away
+    private Object last;
+
+    private void addListeners(Notifier notifier) {
+        notifier.addListener(new NestListener.GlobalListener() {
+            @Override
+            public void onUpdate(@NonNull GlobalUpdate update) {
+                last = update;
+            }
+        });
+        notifier.addListener(new NestListener.DeviceListener() {
+            @Override
+            public void onUpdate(@NonNull DeviceUpdate update) {
+                last = update;
+            }
+        });
+        notifier.addListener(new NestListener.StructureListener() {
+            @Override
+            public void onUpdate(@NonNull List<Structure> structures) {
+                last = structures;
+            }
+        });
+        notifier.addListener(new NestListener.ThermostatListener() {
+            @Override
+            public void onUpdate(@NonNull List<Thermostat> thermostats) {
+                last = thermostats;
+            }
+        });
+        notifier.addListener(new NestListener.CameraListener() {
+            @Override
+            public void onUpdate(@NonNull List<Camera> cameras) {
+                last = cameras;
+            }
+        });
+        notifier.addListener(new NestListener.SmokeCOAlarmListener() {
+            @Override
+            public void onUpdate(@NonNull List<SmokeCOAlarm> smokeCOAlarms) {
+                last = smokeCOAlarms;
+            }
+        });
+        notifier.addListener(new NestListener.MetadataListener() {
+            @Override
+            public void onUpdate(@NonNull Metadata metadata) {
+                last = metadata;
+            }
+        });
+    }
+
+    @Setup
+    public void setUp() throws IOException, ParserException {
+        String[] payloads = Payloads.variants(Payloads.forSize(size), 2);
+        messages = new String[payloads.length];
+        data = new ByteString[payloads.length];
+        for (int i = 0; i < payloads.length; i++) {
+            messages[i] = "event: put\ndata: " + payloads[i] + "\n\n";
+            data[i] = ByteString.encodeUtf8(payloads[i]);
+        }
+
+        mapper = new ObjectModelMapper(handler);
+        parser = new MessageParser(mapper);
+        parser.parse(messages[0]);
+        update = ObjectModelMapperBenchmark.readAll(handler.update);
+
+        notifier = new Notifier();
+        addListeners(notifier);
+    }
+
+    private int nextVariant() {
+        next = (next + 1) % data.length;
+        return next;
+    }
+
+    @Benchmark
+    public GlobalUpdate messageParserParse() throws ParserException {
+        parser.parse(messages[nextVariant()]);
+        return ObjectModelMapperBenchmark.readAll(handler.update);
+    }
+
+    @Benchmark
+    public GlobalUpdate objectModelMapperMap() throws ParserException {
+        mapper.map(StreamingEvent.fromBytes("put", data[nextVariant()]));
+        return ObjectModelMapperBenchmark.readAll(handler.update);
+    }
+
+    @Benchmark
+    public Object notifierHandleData() {
+        notifier.handleData(update);
+        return last;
+    }
+}
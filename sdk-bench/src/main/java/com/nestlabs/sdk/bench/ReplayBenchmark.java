@@ -0,0 +1,94 @@
+package com.nestlabs.sdk.bench;
+
+import com.nestlabs.sdk.rest.StreamRecorder;
+import com.nestlabs.sdk.rest.StreamReplayer;
+import com.nestlabs.sdk.rest.parsers.MessageParser;
+import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
+import com.nestlabs.sdk.rest.parsers.ParserException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+/**
+ * Replays a stream capture through the full decode path as fast as possible. Captures recorded
+ * with a {@link StreamRecorder} in production are passed with {@code -p capture=<path>}. Without
+ * one, a capture of the given number of devices with a full-state {@code put} followed by
+ * keep-alives is synthesized, split into reads the size the stream client uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+    private static final int READ_SIZE = 2048;
+    private static final int KEEP_ALIVES = 100;
+
+    @Param({""})
+    public String capture;
+
+    @Param({"1000"})
+    public int devices;
+
+    private File file;
+    private boolean synthesized;
+    private StreamReplayer replayer;
+    private MessageParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        synthesized = capture.isEmpty();
+        file = synthesized ? synthesize(devices) : new File(capture);
+        replayer = new StreamReplayer(file);
+        parser = new MessageParser(new ObjectModelMapper(
+                new ObjectModelMapperBenchmark.LastUpdateHandler()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (synthesized) file.delete();
+    }
+
+    private static File synthesize(int devices) throws IOException {
+        StringBuilder stream = new StringBuilder()
+                .append("event: put\ndata: ").append(Payloads.globalUpdate(devices)).append("\n\n");
+        for (int i = 0; i < KEEP_ALIVES; i++) {
+            stream.append("event: keep-alive\ndata: null\n\n");
+        }
+
+        File file = File.createTempFile("replay", ".capture");
+        StreamRecorder recorder = new StreamRecorder(file);
+        Buffer bytes = new Buffer().writeUtf8(stream.toString());
+        Buffer read = new Buffer();
+        while (bytes.size() > 0) {
+            bytes.read(read, Math.min(READ_SIZE, bytes.size()));
+            recorder.record(read);
+        }
+        recorder.close();
+        return file;
+    }
+
+    @Benchmark
+    public long replay() throws IOException, ParserException, InterruptedException {
+        return replayer.replay(parser, StreamReplayer.Pacing.AS_FAST_AS_POSSIBLE);
+    }
+}
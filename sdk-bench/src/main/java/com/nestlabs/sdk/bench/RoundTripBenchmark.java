@@ -0,0 +1,138 @@
+package com.nestlabs.sdk.bench;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.Callback;
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.NestListener;
+import com.nestlabs.sdk.models.Thermostat;
+import com.nestlabs.sdk.rest.RestClient;
+import com.nestlabs.sdk.rest.RestStreamClient;
+import com.nestlabs.sdk.rest.parsers.ChangeDetector;
+import com.nestlabs.sdk.rest.parsers.MessageParser;
+import com.nestlabs.sdk.rest.parsers.Notifier;
+import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
+import com.nestlabs.sdk.rest.parsers.StateStore;
+import com.nestlabs.sdk.testing.FakeWwnServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Latency of a write through {@link RestClient} until its echo comes back through the stream
+ * and reaches a listener, against a local {@link FakeWwnServer}. This covers the whole SDK:
+ * http write, stream decoding, mapping, change detection and dispatch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private static final String THERMOSTAT = "thermostats-00000-000";
+    private static final String PATH = "/devices/thermostats/" + THERMOSTAT;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Param({"10"})
+    public int homes;
+
+    @Param({"10"})
+    public int devicesPerHome;
+
+    private FakeWwnServer server;
+    private RestStreamClient streamClient;
+    private RestClient restClient;
+    private long target = 60;
+    private volatile long expected;
+    private final AtomicReference<CountDownLatch> pending = new AtomicReference<>();
+    private final CountDownLatch connected = new CountDownLatch(1);
+
+    private static final Callback IGNORE = new Callback() {
+        @Override
+        public void onSuccess() { }
+
+        @Override
+        public void onFailure(NestException exception) { }
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException, TimeoutException {
+        server = new FakeWwnServer(homes, devicesPerHome);
+
+        Notifier notifier = new Notifier();
+        notifier.addListener(new NestListener.ThermostatListener() {
+            @Override
+            public void onUpdate(@NonNull List<Thermostat> thermostats) {
+                connected.countDown();
+                for (Thermostat thermostat : thermostats) {
+                    if (!THERMOSTAT.equals(thermostat.getDeviceId())) continue;
+                    if (thermostat.getTargetTemperatureF() != expected) return;
+
+                    CountDownLatch latch = pending.get();
+                    if (latch != null) latch.countDown();
+                    return;
+                }
+            }
+        });
+        MessageParser parser = new MessageParser(
+                new ObjectModelMapper(new StateStore(new ChangeDetector(notifier))));
+
+        OkHttpClient httpClient = new OkHttpClient();
+        restClient = new RestClient(httpClient, server.getRestConfig(), parser);
+        restClient.setToken("access_token");
+        streamClient = new RestStreamClient.Builder(httpClient, server.getRestConfig(), parser)
+                .setExceptionHandler(new ExceptionHandler() {
+                    @Override
+                    public void handle(NestException value) { }
+                })
+                .build();
+
+        //Wait for the stream, so no write is measured with the connection setup
+        streamClient.start("access_token");
+        if (!connected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new TimeoutException("The stream did not connect");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        streamClient.stop();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public void writeToEcho() throws InterruptedException, TimeoutException {
+        target = target == 60 ? 61 : 60;
+        expected = target;
+        CountDownLatch latch = new CountDownLatch(1);
+        pending.set(latch);
+
+        restClient.writeLong(PATH, "target_temperature_f", target, IGNORE);
+        if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new TimeoutException("The write was not echoed to the stream");
+        }
+    }
+}
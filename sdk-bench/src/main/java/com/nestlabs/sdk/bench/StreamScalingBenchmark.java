@@ -0,0 +1,114 @@
+package com.nestlabs.sdk.bench;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.NestListener;
+import com.nestlabs.sdk.WwnStreamManager;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.testing.FakeWwnServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs many simulated accounts through a single {@link WwnStreamManager} against a local
+ * {@link FakeWwnServer}, and measures how long it takes for a {@code put} to reach the
+ * listeners of every stream. Connection setup time and the number of live threads are printed
+ * once per trial.
+ *
+ * Every stream uses two sockets in this process, so 10,000 streams need more than 20,000 file
+ * descriptors (e.g. {@code ulimit -n 32768}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xss256k"})
+public class StreamScalingBenchmark {
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    @Param({"10000"})
+    public int streams;
+
+    @Param({"3"})
+    public int devicesPerHome;
+
+    private FakeWwnServer server;
+    private WwnStreamManager manager;
+    private final AtomicReference<CountDownLatch> pending = new AtomicReference<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException, TimeoutException {
+        server = new FakeWwnServer(1, devicesPerHome);
+        manager = new WwnStreamManager.Builder(server.getRestConfig(), new ExceptionHandler() {
+            @Override
+            public void handle(NestException value) { }
+        }).build();
+
+        NestListener.GlobalListener listener = new NestListener.GlobalListener() {
+            @Override
+            public void onUpdate(@NonNull GlobalUpdate update) {
+                CountDownLatch latch = pending.get();
+                if (latch != null) latch.countDown();
+            }
+        };
+
+        long start = System.nanoTime();
+        CountDownLatch connected = new CountDownLatch(streams);
+        pending.set(connected);
+        for (int i = 0; i < streams; i++) {
+            manager.start(String.format(Locale.US, "token-%06d", i), listener);
+        }
+        await(connected);
+
+        System.out.printf(Locale.US, "%n%d streams connected in %d ms, %d live threads%n",
+                streams, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.shutdown();
+        server.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException, TimeoutException {
+        if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new TimeoutException(latch.getCount() + " streams did not receive the update");
+        }
+    }
+
+    /**
+     * Sends one update to every stream and waits until all of their listeners were called.
+     */
+    @Benchmark
+    public void broadcast() throws InterruptedException, TimeoutException {
+        CountDownLatch latch = new CountDownLatch(streams);
+        pending.set(latch);
+        server.sendPut();
+        await(latch);
+    }
+}
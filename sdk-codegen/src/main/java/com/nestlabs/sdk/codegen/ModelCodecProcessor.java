@@ -0,0 +1,515 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code ModelCodec} for every class annotated with {@code @GenerateCodec}. The codec
+ * binds the same fields as Jackson databind: those annotated with {@code @JsonProperty}, in the
+ * class and its superclasses. Keys are referenced through the {@code KEY_*} constants of the
+ * model where one matches, and {@code @JsonPropertyOrder(alphabetic = true)},
+ * {@code @JsonIgnoreProperties(ignoreUnknown = true)} and the {@code StringPool} deserializer are
+ * honored, so the codec reads and writes the same JSON as databind does.
+ *
+ * The generated {@code Model_ModelCodec} is placed next to the model, and accesses its fields
+ * directly, which therefore must not be private.
+ */
+@SupportedAnnotationTypes(ModelCodecProcessor.GENERATE_CODEC)
+public class ModelCodecProcessor extends AbstractProcessor {
+
+    static final String GENERATE_CODEC = "com.nestlabs.sdk.models.GenerateCodec";
+
+    private static final String MODELS = "com.nestlabs.sdk.models";
+    private static final String SUFFIX = "_ModelCodec";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_PROPERTY_ORDER =
+            "com.fasterxml.jackson.annotation.JsonPropertyOrder";
+    private static final String JSON_IGNORE_PROPERTIES =
+            "com.fasterxml.jackson.annotation.JsonIgnoreProperties";
+    private static final String JSON_DESERIALIZE =
+            "com.fasterxml.jackson.databind.annotation.JsonDeserialize";
+    private static final String STRING_POOL_DESERIALIZER = MODELS + ".StringPool.Deserializer";
+
+    private enum Kind {
+        BOOLEAN, INT, LONG, DOUBLE, STRING, STRING_LIST, MODEL, MODEL_LIST, MODEL_MAP, UNTYPED_MAP
+    }
+
+    private static final class Property {
+        final String field;
+        final String key;
+        final String keyRef;
+        final Kind kind;
+        final boolean intern;
+        //The codec of the nested model, if any
+        final String codec;
+
+        Property(String field, String key, String keyRef, Kind kind, boolean intern, String codec) {
+            this.field = field;
+            this.key = key;
+            this.keyRef = keyRef;
+            this.kind = kind;
+            this.intern = intern;
+            this.codec = codec;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                TypeElement model = (TypeElement) element;
+                List<Property> properties = collect(model);
+                if (properties == null) continue;
+
+                try {
+                    write(model, properties);
+                } catch (IOException e) {
+                    error(model, "Could not write the codec: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the properties of the model in the order they are written, or null if the model
+     * cannot get a codec, after reporting why.
+     */
+    private List<Property> collect(TypeElement model) {
+        boolean valid = hasConstructor(model);
+        List<Property> properties = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+
+        //Fields of superclasses come first, like in databind
+        for (TypeElement type : hierarchy(model)) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                AnnotationMirror property = annotation(field, JSON_PROPERTY);
+                if (property == null) continue;
+
+                String key = (String) value(property, "value");
+                if (key.isEmpty()) key = field.getSimpleName().toString();
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+                        || modifiers.contains(Modifier.FINAL)) {
+                    error(field, "Fields bound by a codec must not be private, static or final");
+                    valid = false;
+                    continue;
+                }
+                if (!keys.add(key)) {
+                    error(field, "Duplicate property " + key);
+                    valid = false;
+                    continue;
+                }
+
+                Kind kind = kind(field.asType());
+                if (kind == null) {
+                    error(field, "Unsupported type " + field.asType() + " for a codec");
+                    valid = false;
+                    continue;
+                }
+
+                Boolean intern = interns(field, kind);
+                if (intern == null) {
+                    error(field, "Only the StringPool deserializer is supported by codecs");
+                    valid = false;
+                    continue;
+                }
+
+                properties.add(new Property(field.getSimpleName().toString(), key,
+                        keyRef(model, key), kind, intern, nestedCodec(field.asType(), kind)));
+            }
+        }
+
+        if (flag(model, JSON_PROPERTY_ORDER, "alphabetic")) {
+            Collections.sort(properties, new Comparator<Property>() {
+                @Override
+                public int compare(Property a, Property b) {
+                    return a.key.compareTo(b.key);
+                }
+            });
+        }
+        return valid ? properties : null;
+    }
+
+    private void write(TypeElement model, List<Property> properties) throws IOException {
+        String packageName = packageOf(model);
+        String codecName = codecName(model);
+        String simpleName = codecName.substring(codecName.lastIndexOf('.') + 1);
+        String modelName = relativeName(model, packageName);
+        boolean ignoreUnknown = flag(model, JSON_IGNORE_PROPERTIES, "ignoreUnknown");
+
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated by ModelCodecProcessor from the @JsonProperty fields of ")
+                .append(modelName).append(", do not edit.\n");
+        if (!packageName.isEmpty()) out.append("package ").append(packageName).append(";\n\n");
+        out.append("import com.fasterxml.jackson.core.JsonGenerator;\n")
+                .append("import com.fasterxml.jackson.core.JsonParser;\n")
+                .append("import com.fasterxml.jackson.core.JsonToken;\n")
+                .append("import ").append(MODELS).append(".ModelCodec;\n")
+                .append("import ").append(MODELS).append(".ModelCodecs;\n")
+                .append("import ").append(MODELS).append(".StringPool;\n\n")
+                .append("import java.io.IOException;\n\n");
+
+        out.append("public final class ").append(simpleName)
+                .append(" implements ModelCodec<").append(modelName).append("> {\n\n")
+                .append("    public static final ").append(simpleName).append(" INSTANCE = new ")
+                .append(simpleName).append("();\n\n");
+
+        //Reader
+        out.append("    @Override\n")
+                .append("    public ").append(modelName)
+                .append(" read(JsonParser parser) throws IOException {\n")
+                .append("        if (!ModelCodecs.startObject(parser)) return null;\n\n")
+                .append("        ").append(modelName).append(" value = new ").append(modelName)
+                .append("();\n")
+                .append("        while (parser.nextToken() == JsonToken.FIELD_NAME) {\n")
+                .append("            String name = parser.getCurrentName();\n")
+                .append("            parser.nextToken();\n")
+                .append("            switch (name) {\n");
+        for (Property property : properties) {
+            out.append("                case ").append(property.keyRef).append(":\n")
+                    .append("                    value.").append(property.field).append(" = ")
+                    .append(readExpression(property)).append(";\n")
+                    .append("                    break;\n");
+        }
+        out.append("                default:\n");
+        if (ignoreUnknown) {
+            out.append("                    parser.skipChildren();\n")
+                    .append("                    break;\n");
+        } else {
+            out.append("                    throw ModelCodecs.unknownProperty(parser, name);\n");
+        }
+        out.append("            }\n")
+                .append("        }\n")
+                .append("        return value;\n")
+                .append("    }\n\n");
+
+        //Writer
+        out.append("    @Override\n")
+                .append("    public void write(JsonGenerator generator, ").append(modelName)
+                .append(" value) throws IOException {\n")
+                .append("        if (value == null) {\n")
+                .append("            generator.writeNull();\n")
+                .append("            return;\n")
+                .append("        }\n\n")
+                .append("        generator.writeStartObject();\n");
+        for (Property property : properties) {
+            writeStatement(out, property);
+        }
+        out.append("        generator.writeEndObject();\n")
+                .append("    }\n")
+                .append("}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(codecName, model);
+        Writer writer = file.openWriter();
+        try {
+            writer.write(out.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String readExpression(Property property) {
+        switch (property.kind) {
+            case BOOLEAN:
+                return "ModelCodecs.readBoolean(parser)";
+            case INT:
+                return "ModelCodecs.readInt(parser)";
+            case LONG:
+                return "ModelCodecs.readLong(parser)";
+            case DOUBLE:
+                return "ModelCodecs.readDouble(parser)";
+            case STRING:
+                return property.intern ? "StringPool.intern(ModelCodecs.readString(parser))"
+                        : "ModelCodecs.readString(parser)";
+            case STRING_LIST:
+                return "ModelCodecs.readStringList(parser, " + property.intern + ")";
+            case MODEL:
+                return property.codec + ".INSTANCE.read(parser)";
+            case MODEL_LIST:
+                return "ModelCodecs.readList(parser, " + property.codec + ".INSTANCE)";
+            case MODEL_MAP:
+                return "ModelCodecs.readMap(parser, " + property.codec + ".INSTANCE)";
+            default:
+                return "ModelCodecs.readUntypedMap(parser)";
+        }
+    }
+
+    private static void writeStatement(StringBuilder out, Property property) {
+        String field = "value." + property.field;
+        switch (property.kind) {
+            case BOOLEAN:
+                out.append("        generator.writeBooleanField(").append(property.keyRef)
+                        .append(", ").append(field).append(");\n");
+                return;
+            case INT:
+            case LONG:
+            case DOUBLE:
+                out.append("        generator.writeNumberField(").append(property.keyRef)
+                        .append(", ").append(field).append(");\n");
+                return;
+            case STRING:
+                out.append("        generator.writeStringField(").append(property.keyRef)
+                        .append(", ").append(field).append(");\n");
+                return;
+            default:
+                break;
+        }
+
+        out.append("        generator.writeFieldName(").append(property.keyRef).append(");\n");
+        switch (property.kind) {
+            case STRING_LIST:
+                out.append("        ModelCodecs.writeStringList(generator, ").append(field);
+                break;
+            case MODEL:
+                out.append("        ").append(property.codec)
+                        .append(".INSTANCE.write(generator, ").append(field);
+                break;
+            case MODEL_LIST:
+                out.append("        ModelCodecs.writeList(generator, ").append(field)
+                        .append(", ").append(property.codec).append(".INSTANCE");
+                break;
+            case MODEL_MAP:
+                out.append("        ModelCodecs.writeMap(generator, ").append(field)
+                        .append(", ").append(property.codec).append(".INSTANCE");
+                break;
+            default:
+                out.append("        ModelCodecs.writeUntyped(generator, ").append(field);
+                break;
+        }
+        out.append(");\n");
+    }
+
+    private Kind kind(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case INT:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case DOUBLE:
+                return Kind.DOUBLE;
+            case DECLARED:
+                break;
+            default:
+                return null;
+        }
+
+        DeclaredType declared = (DeclaredType) type;
+        String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+        List<? extends TypeMirror> args = declared.getTypeArguments();
+        if (name.equals("java.lang.String")) return Kind.STRING;
+        if (isModel(type)) return Kind.MODEL;
+
+        if ((name.equals("java.util.List") || name.equals("java.util.ArrayList"))
+                && args.size() == 1) {
+            if (isNamed(args.get(0), "java.lang.String")) return Kind.STRING_LIST;
+            if (isModel(args.get(0))) return Kind.MODEL_LIST;
+        } else if ((name.equals("java.util.Map") || name.equals("java.util.LinkedHashMap"))
+                && args.size() == 2 && isNamed(args.get(0), "java.lang.String")) {
+            if (isNamed(args.get(1), "java.lang.Object")) return Kind.UNTYPED_MAP;
+            if (isModel(args.get(1))) return Kind.MODEL_MAP;
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the field is interned, or null if it has a deserializer a codec can not
+     * replace.
+     */
+    private Boolean interns(VariableElement field, Kind kind) {
+        AnnotationMirror deserialize = annotation(field, JSON_DESERIALIZE);
+        if (deserialize == null) return false;
+
+        Object using = explicitValue(deserialize, "using");
+        Object contentUsing = explicitValue(deserialize, "contentUsing");
+        if (kind == Kind.STRING && contentUsing == null && isStringPool(using)) return true;
+        if (kind == Kind.STRING_LIST && using == null && isStringPool(contentUsing)) return true;
+        return null;
+    }
+
+    private static boolean isStringPool(Object deserializer) {
+        return deserializer != null && deserializer.toString().equals(STRING_POOL_DESERIALIZER);
+    }
+
+    private String nestedCodec(TypeMirror type, Kind kind) {
+        switch (kind) {
+            case MODEL:
+                return codecName((TypeElement) processingEnv.getTypeUtils().asElement(type));
+            case MODEL_LIST:
+                return nestedCodec(((DeclaredType) type).getTypeArguments().get(0), Kind.MODEL);
+            case MODEL_MAP:
+                return nestedCodec(((DeclaredType) type).getTypeArguments().get(1), Kind.MODEL);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the {@code KEY_*} constant of the model or its superclasses that holds the key, or
+     * the key as a literal if there is none.
+     */
+    private String keyRef(TypeElement model, String key) {
+        String packageName = packageOf(model);
+        List<TypeElement> types = hierarchy(model);
+        Collections.reverse(types);
+        for (TypeElement type : types) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (key.equals(field.getConstantValue()) && modifiers.contains(Modifier.STATIC)
+                        && !modifiers.contains(Modifier.PRIVATE)) {
+                    return relativeName(type, packageName) + "." + field.getSimpleName();
+                }
+            }
+        }
+        return "\"" + key.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private boolean hasConstructor(TypeElement model) {
+        if (model.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(model, "A codec needs a model that can be instantiated");
+            return false;
+        }
+        for (ExecutableElement constructor
+                : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(model, "A codec needs a constructor without parameters that is not private");
+        return false;
+    }
+
+    //Superclasses first, up to but excluding Object
+    private List<TypeElement> hierarchy(TypeElement model) {
+        List<TypeElement> types = new ArrayList<>();
+        TypeElement type = model;
+        while (type != null && !type.getQualifiedName().contentEquals("java.lang.Object")) {
+            types.add(0, type);
+            TypeMirror superclass = type.getSuperclass();
+            type = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) processingEnv.getTypeUtils().asElement(superclass) : null;
+        }
+        return types;
+    }
+
+    //Class annotations of databind are inherited, the closest one wins
+    private boolean flag(TypeElement model, String annotationName, String name) {
+        List<TypeElement> types = hierarchy(model);
+        Collections.reverse(types);
+        for (TypeElement type : types) {
+            AnnotationMirror annotation = annotation(type, annotationName);
+            if (annotation != null) return Boolean.TRUE.equals(value(annotation, name));
+        }
+        return false;
+    }
+
+    private boolean isModel(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) return false;
+        return annotation(processingEnv.getTypeUtils().asElement(type), GENERATE_CODEC) != null;
+    }
+
+    private static boolean isNamed(TypeMirror type, String name) {
+        return type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type)
+                .asElement()).getQualifiedName().contentEquals(name);
+    }
+
+    private String codecName(TypeElement model) {
+        return processingEnv.getElementUtils().getBinaryName(model).toString().replace('$', '_')
+                + SUFFIX;
+    }
+
+    private String packageOf(TypeElement type) {
+        PackageElement element = processingEnv.getElementUtils().getPackageOf(type);
+        return element.isUnnamed() ? "" : element.getQualifiedName().toString();
+    }
+
+    //The name of a type as seen from a class in the package, e.g. Structure.Where
+    private String relativeName(TypeElement type, String packageName) {
+        String name = type.getQualifiedName().toString();
+        return !packageName.isEmpty() && packageOf(type).equals(packageName)
+                ? name.substring(packageName.length() + 1) : name;
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(name)) return mirror;
+        }
+        return null;
+    }
+
+    private Object value(AnnotationMirror annotation, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+        return valueOf(values, name);
+    }
+
+    private static Object explicitValue(AnnotationMirror annotation, String name) {
+        return valueOf(annotation.getElementValues(), name);
+    }
+
+    private static Object valueOf(Map<? extends ExecutableElement, ? extends AnnotationValue> values,
+                                  String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
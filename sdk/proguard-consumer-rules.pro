@@ -10,6 +10,11 @@
 -keepnames interface com.fasterxml.jackson.** { *; }
 -keepclassmembers enum org.codehaus.jackson.annotate.** { *; }
 
+# ModelCodecs looks up the generated codecs by name
+-keep class **_ModelCodec {
+  <init>();
+}
+
 # Firebase use reflections
 -keep class com.firebase.client.android.AndroidPlatform {
   <init>(...);
@@ -0,0 +1,12 @@
+package com.nestlabs.sdk;
+
+/**
+ * Passed to {@link Callback#onFailure(NestException)} when a debounced write was never sent,
+ * because a newer value for the same field replaced it. The newer write reports its own result.
+ */
+public class CoalescedWriteException extends NestException {
+
+    public CoalescedWriteException() {
+        super("Write coalesced into a newer write of the same field.");
+    }
+}
@@ -20,6 +20,8 @@ package com.nestlabs.sdk;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import com.nestlabs.sdk.models.Utils;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -39,6 +41,8 @@ public final class NestConfig implements Parcelable {
     private String mClientSecret;
     private String mRedirectURL;
 
+    private int mHashCode;
+
     private NestConfig(Builder builder) {
         mClientID = builder.mBuilderClientID;
         mStateValue = builder.mBuilderStateValue;
@@ -175,12 +179,25 @@ public final class NestConfig implements Parcelable {
             return true;
         } else if (obj instanceof NestConfig) {
             NestConfig t = (NestConfig) obj;
-            return t.toString().equals(this.toString());
+            return Utils.equal(mClientID, t.mClientID)
+                    && Utils.equal(mStateValue, t.mStateValue)
+                    && Utils.equal(mClientSecret, t.mClientSecret)
+                    && Utils.equal(mRedirectURL, t.mRedirectURL);
         } else {
             return false;
         }
     }
 
+    @Override
+    public int hashCode() {
+        int hashCode = mHashCode;
+        if (hashCode == 0) {
+            hashCode = Utils.hash(mClientID, mStateValue, mClientSecret, mRedirectURL);
+            mHashCode = hashCode;
+        }
+        return hashCode;
+    }
+
     @Override
     public int describeContents() {
         return 0;
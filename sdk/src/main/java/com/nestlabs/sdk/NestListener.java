@@ -19,12 +19,14 @@ package com.nestlabs.sdk;
 import android.support.annotation.NonNull;
 
 import com.nestlabs.sdk.models.Camera;
+import com.nestlabs.sdk.models.ChangeSet;
 import com.nestlabs.sdk.models.DeviceUpdate;
 import com.nestlabs.sdk.models.GlobalUpdate;
 import com.nestlabs.sdk.models.Metadata;
 import com.nestlabs.sdk.models.SmokeCOAlarm;
 import com.nestlabs.sdk.models.Structure;
 import com.nestlabs.sdk.models.Thermostat;
+import com.nestlabs.sdk.rest.StreamHealth;
 import com.nestlabs.sdk.rest.parsers.ErrorMessage;
 
 import java.util.List;
@@ -127,6 +129,20 @@ public interface NestListener {
         void onUpdate(@NonNull Metadata metadata);
     }
 
+    /**
+     * Listens for the {@link Thermostat}, {@link SmokeCOAlarm}, {@link Camera} and {@link
+     * Structure} objects that were added, removed or changed by an update.
+     */
+    interface ChangeListener extends NestListener {
+        /**
+         * Called when an update adds, removes or changes at least one object. Updates that do not
+         * change anything are not reported.
+         *
+         * @param changes a {@link ChangeSet} with the objects that changed and their changed keys.
+         */
+        void onChange(@NonNull ChangeSet changes);
+    }
+
     /**
      * Listens for updates to the status of authentication of {@link WwnApiUrls} to the Nest service.
      */
@@ -150,4 +166,16 @@ public interface NestListener {
 
         void onError(ErrorMessage errorMessage);
     }
+
+    /**
+     * Listens for changes to the health of the event stream.
+     */
+    interface StreamHealthListener extends NestListener {
+        /**
+         * Called when the stream connects, starts receiving, goes silent or disconnects.
+         *
+         * @param health the new {@link StreamHealth} of the stream.
+         */
+        void onStreamHealthChanged(@NonNull StreamHealth health);
+    }
 }
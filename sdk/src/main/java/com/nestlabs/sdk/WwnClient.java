@@ -2,28 +2,50 @@ package com.nestlabs.sdk;
 
 import android.support.annotation.NonNull;
 
+import com.nestlabs.sdk.models.GlobalUpdate;
 import com.nestlabs.sdk.models.NestToken;
 import com.nestlabs.sdk.setters.CameraSetter;
+import com.nestlabs.sdk.rest.parsers.AsyncDispatch;
+import com.nestlabs.sdk.rest.parsers.ChangeDetector;
 import com.nestlabs.sdk.rest.parsers.MessageParser;
 import com.nestlabs.sdk.rest.parsers.Notifier;
 import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
 import com.nestlabs.sdk.rest.parsers.Parser;
+import com.nestlabs.sdk.rest.parsers.SnapshotFile;
+import com.nestlabs.sdk.rest.parsers.SnapshotPersister;
+import com.nestlabs.sdk.rest.parsers.StateStore;
+import com.nestlabs.sdk.rest.parsers.Subscription;
+import com.nestlabs.sdk.rest.ExecutorRetryScheduler;
 import com.nestlabs.sdk.rest.RestConfig;
 import com.nestlabs.sdk.rest.RestStreamClient;
+import com.nestlabs.sdk.rest.StreamHealth;
 import com.nestlabs.sdk.setters.StructureSetter;
 import com.nestlabs.sdk.setters.ThermostatSetter;
 import com.nestlabs.sdk.rest.StreamingClient;
 import com.nestlabs.sdk.rest.RestClient;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.OkHttpClient;
 
 public class WwnClient {
 
+    private static final long SNAPSHOT_INTERVAL_MILLIS = 5000;
+    private static final long DEFAULT_READ_TIMEOUT_MILLIS = 60000;
+
     private final RestClient restClient;
     private final StreamingClient streamingClient;
-    private final Notifier notifier = new Notifier();
+    private final Notifier notifier;
+    private final SnapshotPersister snapshots;
+
+    /**
+     * Latest state of the account as seen by the stream. Safe to query from any thread.
+     */
+    public final StateStore state;
 
     public final CameraSetter cameras;
     public final ThermostatSetter thermostats;
@@ -45,25 +67,64 @@ public class WwnClient {
      * Creates a new instance of the {@link WwnClient}.
      */
     public WwnClient(RestConfig restConfig, ExceptionHandler exceptionHandler) {
-        Parser messageParser = new MessageParser(new ObjectModelMapper(notifier));
+        this(new Builder(restConfig, exceptionHandler));
+    }
+
+    private WwnClient(Builder builder) {
+        ExceptionHandler exceptionHandler = builder.getExceptionHandler();
+        RestConfig restConfig = builder.getRestConfig();
+        Subscription subscription = builder.getSubscription();
+        SnapshotFile snapshot = builder.getSnapshotFile();
+        notifier = new Notifier(builder.getAsyncDispatch());
+        state = new StateStore(new ChangeDetector(notifier));
+        snapshots = snapshot == null ? null : new SnapshotPersister(state, snapshot,
+                SNAPSHOT_INTERVAL_MILLIS, ExecutorRetryScheduler.getDefault(),
+                snapshotWriter(), exceptionHandler);
+        Parser messageParser = new MessageParser(new ObjectModelMapper(
+                snapshots != null ? snapshots : state, subscription,
+                subscription.isObservedTypesOnly() ? notifier : null, exceptionHandler));
 
         OkHttpClient httpClient = new OkHttpClient();
-        OkHttpClient streamingHttpClient = new OkHttpClient().newBuilder()
+        OkHttpClient streamingHttpClient = httpClient.newBuilder()
                 .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(builder.getReadTimeout(), TimeUnit.MILLISECONDS)
                 .build();
 
         oauth2 = new Oauth2FlowHandler(httpClient);
         restClient = new RestClient(httpClient, restConfig, messageParser);
-        streamingClient = new RestStreamClient.Builder(streamingHttpClient, restConfig, messageParser)
+        RestStreamClient.Builder streamingBuilder =
+                new RestStreamClient.Builder(streamingHttpClient, restConfig, messageParser)
                 .setExceptionHandler(exceptionHandler)
-                .build();
+                .setCoalescingWindow(builder.getCoalescingWindow(), TimeUnit.MILLISECONDS)
+                .setStreamHealthHandler(new EventHandler<StreamHealth>() {
+                    @Override
+                    public void handle(StreamHealth health) {
+                        notifier.handleStreamHealth(health);
+                    }
+                });
+        if (builder.getSilenceTimeout() >= 0) {
+            streamingBuilder.setSilenceTimeout(builder.getSilenceTimeout(), TimeUnit.MILLISECONDS);
+        }
+        streamingClient = streamingBuilder.build();
 
         cameras = new CameraSetter(restClient);
         structures = new StructureSetter(restClient);
         thermostats = new ThermostatSetter(restClient);
     }
 
+    //Snapshots are written off the shared retry thread, so they never delay reconnects
+    private static Executor snapshotWriter() {
+        return new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "wwn-snapshot");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
     /**
      * Requests authentication with a {@link NestToken}.
      *
@@ -79,10 +140,26 @@ public class WwnClient {
      * @param token        the token String to authenticate with
      */
     public void startWithToken(@NonNull String token) {
+        state.clear();
+        if (snapshots != null) {
+            GlobalUpdate restored = snapshots.restore(token);
+            if (restored != null) state.handleData(restored);
+        }
         restClient.setToken(token);
         streamingClient.start(token);
     }
 
+    /**
+     * Turns debouncing of the writes of the setters on or off, e.g. for a slider that sets a
+     * temperature on every move. While it is on, at most one write per device and field is in
+     * flight and only the newest value of each field written meanwhile is sent after it, the
+     * callbacks of the writes whose values were all skipped fail with a
+     * {@link CoalescedWriteException}. Off by default.
+     */
+    public void setDebounceWrites(boolean debounce) {
+        restClient.setDebounceWrites(debounce);
+    }
+
     public void stop() {
         notifier.removeAllListeners();
         streamingClient.stop();
@@ -100,4 +177,120 @@ public class WwnClient {
         notifier.removeAllListeners();
     }
 
+    public static class Builder {
+        private final RestConfig restConfig;
+        private final ExceptionHandler exceptionHandler;
+        private AsyncDispatch dispatch;
+        private Subscription subscription = Subscription.ALL;
+        private SnapshotFile snapshotFile;
+        private long coalescingWindow;
+        private long readTimeout = DEFAULT_READ_TIMEOUT_MILLIS;
+        //-1 keeps the default of the RestStreamClient
+        private long silenceTimeout = -1;
+
+        public Builder(RestConfig restConfig, ExceptionHandler exceptionHandler) {
+            this.restConfig = restConfig;
+            this.exceptionHandler = exceptionHandler;
+        }
+
+        RestConfig getRestConfig() {
+            return restConfig;
+        }
+
+        ExceptionHandler getExceptionHandler() {
+            return exceptionHandler;
+        }
+
+        AsyncDispatch getAsyncDispatch() {
+            return dispatch;
+        }
+
+        /**
+         * Sets the {@link AsyncDispatch} that calls the listeners, so slow listeners never hold up
+         * the stream. By default listeners are called on the thread that reads the stream.
+         */
+        public Builder setAsyncDispatch(final AsyncDispatch dispatch) {
+            this.dispatch = dispatch;
+            return this;
+        }
+
+        Subscription getSubscription() {
+            return subscription;
+        }
+
+        /**
+         * Only materializes the part of the account selected by the {@link Subscription}.
+         * Listeners and the {@link WwnClient#state} never see anything outside of it. Defaults to
+         * {@link Subscription#ALL}.
+         */
+        public Builder setSubscription(@NonNull final Subscription subscription) {
+            this.subscription = subscription;
+            return this;
+        }
+
+        SnapshotFile getSnapshotFile() {
+            return snapshotFile;
+        }
+
+        /**
+         * Saves the state of the account to the {@link SnapshotFile}. The next
+         * {@link WwnClient#startWithToken(String)} with the same token publishes the saved state to
+         * listeners right away, as a {@link GlobalUpdate#isStale() stale} update, until the
+         * stream sends the live state. Off by default.
+         */
+        public Builder setSnapshotFile(final SnapshotFile snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        long getCoalescingWindow() {
+            return coalescingWindow;
+        }
+
+        /**
+         * Holds full-state {@code put} events for the window and only dispatches the newest one,
+         * so bursts of snapshots reach listeners once. Other events are never held back. 0, the
+         * default, disables coalescing.
+         *
+         * @see RestStreamClient.Builder#setCoalescingWindow(long, TimeUnit)
+         */
+        public Builder setCoalescingWindow(final long window, @NonNull final TimeUnit unit) {
+            this.coalescingWindow = unit.toMillis(window);
+            return this;
+        }
+
+        long getReadTimeout() {
+            return readTimeout;
+        }
+
+        /**
+         * Sets how long a read of the stream may block before the connection is dropped and
+         * reconnected. Defaults to 60 seconds, 0 disables it.
+         */
+        public Builder setReadTimeout(final long timeout, @NonNull final TimeUnit unit) {
+            if (timeout < 0) throw new IllegalArgumentException("timeout must not be negative");
+            this.readTimeout = unit.toMillis(timeout);
+            return this;
+        }
+
+        long getSilenceTimeout() {
+            return silenceTimeout;
+        }
+
+        /**
+         * Sets how long the stream may go without a single frame, keep-alives included, before
+         * it is reported {@link StreamHealth#STALE} and reconnected. 0 disables the check.
+         *
+         * @see RestStreamClient.Builder#setSilenceTimeout(long, TimeUnit)
+         */
+        public Builder setSilenceTimeout(final long timeout, @NonNull final TimeUnit unit) {
+            if (timeout < 0) throw new IllegalArgumentException("timeout must not be negative");
+            this.silenceTimeout = unit.toMillis(timeout);
+            return this;
+        }
+
+        public WwnClient build() {
+            return new WwnClient(this);
+        }
+    }
 }
@@ -0,0 +1,297 @@
+package com.nestlabs.sdk;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.rest.MissingTokenException;
+import com.nestlabs.sdk.rest.RestConfig;
+import com.nestlabs.sdk.rest.RestStreamClient;
+import com.nestlabs.sdk.rest.StreamHealth;
+import com.nestlabs.sdk.rest.parsers.AsyncDispatch;
+import com.nestlabs.sdk.rest.parsers.ChangeDetector;
+import com.nestlabs.sdk.rest.parsers.MessageParser;
+import com.nestlabs.sdk.rest.parsers.Notifier;
+import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
+import com.nestlabs.sdk.rest.parsers.StateStore;
+import com.nestlabs.sdk.rest.parsers.Subscription;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Streams many accounts at once, e.g. on a server. Unlike a {@link WwnClient} per account, all
+ * streams share a single http client, and so its connection pool and dispatcher, and a single
+ * pool of reader threads. Every stream gets its own {@link Notifier} and {@link StateStore}.
+ *
+ * Stream reads are blocking, so every connected stream still holds one reader thread of the
+ * pool. Reader threads are started with a small stack and time out once they are idle, the http
+ * client, its dispatcher and the retry timers are shared by all streams. {@link #shutdown()}
+ * stops all the streams and the pool.
+ */
+public class WwnStreamManager {
+
+    private static final long READER_STACK_SIZE = 256 * 1024;
+
+    private final RestConfig restConfig;
+    private final ExceptionHandler exceptionHandler;
+    private final AsyncDispatch dispatch;
+    private final OkHttpClient httpClient;
+    private final boolean ownsHttpClient;
+    private final long coalescingWindow;
+    private final ThreadPoolExecutor readers;
+    private final ConcurrentMap<String, Stream> streams = new ConcurrentHashMap<>();
+
+    private static final class Stream {
+        final Notifier notifier;
+        final StateStore state;
+        final RestStreamClient client;
+
+        Stream(Notifier notifier, StateStore state, RestStreamClient client) {
+            this.notifier = notifier;
+            this.state = state;
+            this.client = client;
+        }
+    }
+
+    public WwnStreamManager(RestConfig restConfig, ExceptionHandler exceptionHandler) {
+        this(new Builder(restConfig, exceptionHandler));
+    }
+
+    /**
+     * Creates a new instance of the {@link WwnStreamManager}.
+     *
+     * @param dispatch optional {@link AsyncDispatch} used by every {@link Notifier}, null to call
+     *                 listeners on the reader threads.
+     */
+    public WwnStreamManager(RestConfig restConfig, ExceptionHandler exceptionHandler,
+                            AsyncDispatch dispatch) {
+        this(new Builder(restConfig, exceptionHandler).setAsyncDispatch(dispatch));
+    }
+
+    /**
+     * Creates a new instance of the {@link WwnStreamManager} on an existing http client, so the
+     * streams share its connection pool and dispatcher with the rest of the application.
+     */
+    public WwnStreamManager(@NonNull OkHttpClient httpClient, RestConfig restConfig,
+                            ExceptionHandler exceptionHandler, AsyncDispatch dispatch) {
+        this(new Builder(restConfig, exceptionHandler)
+                .setHttpClient(httpClient)
+                .setAsyncDispatch(dispatch));
+    }
+
+    private WwnStreamManager(Builder builder) {
+        this.ownsHttpClient = builder.getHttpClient() == null;
+        this.httpClient = ownsHttpClient ? new OkHttpClient().newBuilder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build() : builder.getHttpClient();
+        this.restConfig = builder.getRestConfig();
+        this.exceptionHandler = builder.getExceptionHandler();
+        this.dispatch = builder.getAsyncDispatch();
+        this.coalescingWindow = builder.getCoalescingWindow();
+        this.readers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ReaderThreadFactory());
+    }
+
+    /**
+     * Starts streaming the account of the given token, unless it is already streaming.
+     *
+     * @param token     the access token of the account.
+     * @param listeners listeners added before the stream starts, so they see the first update.
+     * @return the {@link Notifier} to add listeners for the account to.
+     * @throws IllegalStateException if the manager is shut down.
+     */
+    public Notifier start(@NonNull String token, NestListener... listeners) {
+        return start(token, Subscription.ALL, listeners);
+    }
+
+    /**
+     * Starts streaming the part of the account selected by the {@link Subscription}, unless the
+     * account is already streaming, in which case its existing subscription is kept.
+     *
+     * @param token        the access token of the account.
+     * @param subscription the part of the account that is materialized for listeners.
+     * @param listeners    listeners added before the stream starts, so they see the first update.
+     * @return the {@link Notifier} to add listeners for the account to.
+     * @throws IllegalStateException if the manager is shut down.
+     */
+    public Notifier start(@NonNull String token, @NonNull Subscription subscription,
+                          NestListener... listeners) {
+        if (token == null || token.length() == 0) {
+            throw new MissingTokenException();
+        }
+        if (readers.isShutdown()) {
+            throw new IllegalStateException("The stream manager is shut down.");
+        }
+
+        Stream stream = streams.get(token);
+        if (stream != null) return addListeners(stream.notifier, listeners);
+
+        final Notifier notifier = addListeners(new Notifier(dispatch), listeners);
+        StateStore state = new StateStore(new ChangeDetector(notifier));
+        RestStreamClient client = new RestStreamClient.Builder(httpClient, restConfig,
+                new MessageParser(new ObjectModelMapper(state, subscription,
+                        subscription.isObservedTypesOnly() ? notifier : null, exceptionHandler)))
+                .setExceptionHandler(exceptionHandler)
+                .setExecutorService(readers)
+                .setCoalescingWindow(coalescingWindow, TimeUnit.MILLISECONDS)
+                .setStreamHealthHandler(new EventHandler<StreamHealth>() {
+                    @Override
+                    public void handle(StreamHealth health) {
+                        notifier.handleStreamHealth(health);
+                    }
+                })
+                .build();
+
+        stream = new Stream(notifier, state, client);
+        Stream existing = streams.putIfAbsent(token, stream);
+        if (existing != null) return addListeners(existing.notifier, listeners);
+
+        client.start(token);
+        return notifier;
+    }
+
+    private static Notifier addListeners(Notifier notifier, NestListener... listeners) {
+        for (NestListener listener : listeners) {
+            notifier.addListener(listener);
+        }
+        return notifier;
+    }
+
+    /**
+     * Stops streaming the account of the given token and removes its listeners.
+     */
+    public void stop(@NonNull String token) {
+        Stream stream = streams.remove(token);
+        if (stream == null) return;
+
+        stream.notifier.removeAllListeners();
+        stream.client.stop();
+    }
+
+    /**
+     * Stops all the streams.
+     */
+    public void stopAll() {
+        for (String token : streams.keySet()) {
+            stop(token);
+        }
+    }
+
+    /**
+     * Stops all the streams and the reader threads. The manager can not be started again. If it
+     * created its own http client, its connections and dispatcher are released as well.
+     */
+    public void shutdown() {
+        readers.shutdown();
+        stopAll();
+        if (ownsHttpClient) {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * Returns the {@link Notifier} of a started stream, or null.
+     */
+    public Notifier getNotifier(@NonNull String token) {
+        Stream stream = streams.get(token);
+        return stream == null ? null : stream.notifier;
+    }
+
+    /**
+     * Returns the {@link StateStore} of a started stream, or null.
+     */
+    public StateStore getState(@NonNull String token) {
+        Stream stream = streams.get(token);
+        return stream == null ? null : stream.state;
+    }
+
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    public static class Builder {
+        private final RestConfig restConfig;
+        private final ExceptionHandler exceptionHandler;
+        private OkHttpClient httpClient;
+        private AsyncDispatch dispatch;
+        private long coalescingWindow;
+
+        public Builder(RestConfig restConfig, ExceptionHandler exceptionHandler) {
+            this.restConfig = restConfig;
+            this.exceptionHandler = exceptionHandler;
+        }
+
+        RestConfig getRestConfig() {
+            return restConfig;
+        }
+
+        ExceptionHandler getExceptionHandler() {
+            return exceptionHandler;
+        }
+
+        OkHttpClient getHttpClient() {
+            return httpClient;
+        }
+
+        /**
+         * Sets an existing http client, so the streams share its connection pool and dispatcher
+         * with the rest of the application. By default the manager creates its own.
+         */
+        public Builder setHttpClient(@NonNull final OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        AsyncDispatch getAsyncDispatch() {
+            return dispatch;
+        }
+
+        /**
+         * Sets the {@link AsyncDispatch} used by every {@link Notifier}. By default listeners are
+         * called on the reader threads.
+         */
+        public Builder setAsyncDispatch(final AsyncDispatch dispatch) {
+            this.dispatch = dispatch;
+            return this;
+        }
+
+        long getCoalescingWindow() {
+            return coalescingWindow;
+        }
+
+        /**
+         * Holds full-state {@code put} events of every stream for the window and only dispatches
+         * the newest one. 0, the default, disables coalescing.
+         *
+         * @see RestStreamClient.Builder#setCoalescingWindow(long, TimeUnit)
+         */
+        public Builder setCoalescingWindow(final long window, @NonNull final TimeUnit unit) {
+            this.coalescingWindow = unit.toMillis(window);
+            return this;
+        }
+
+        public WwnStreamManager build() {
+            return new WwnStreamManager(this);
+        }
+    }
+
+    private static final class ReaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(null, runnable,
+                    "wwn-stream-" + count.incrementAndGet(), READER_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.nestlabs.sdk.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter for hot paths. Updates are spread over a fixed number of cells picked by
+ * thread, each on its own cache line, so threads that count at the same time rarely contend.
+ * Reading sums all the cells and is not an atomic snapshot while updates are in flight.
+ */
+public final class Counter {
+
+    //Longs per 64 byte cache line, so neighbouring cells are never written by two threads
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    Counter() { }
+
+    //Next power of two of twice the processors, so threads rarely share a cell
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors * 2 && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    private static int cell() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & (STRIPES - 1)) * PADDING;
+    }
+
+    public void increment() {
+        cells.getAndIncrement(cell());
+    }
+
+    public void add(long value) {
+        cells.getAndAdd(cell(), value);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,101 @@
+package com.nestlabs.sdk.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link Counter}s and {@link Timer}s of the streaming pipeline. Unless given a
+ * registry of their own, all clients record into {@link #getDefault()}, so the values cover
+ * every stream of the process.
+ *
+ * Components look up their metrics once and keep them, so recording never touches the registry.
+ */
+public final class Metrics {
+
+    /** Bytes read from event streams. */
+    public static final String STREAM_BYTES = "stream.bytes";
+    /** Events decoded from event streams, keep-alives included. */
+    public static final String STREAM_EVENTS = "stream.events";
+    /** Connections opened again after a stream ended or failed. */
+    public static final String STREAM_RECONNECTS = "stream.reconnects";
+    /** Delays chosen by the back off before reconnecting. */
+    public static final String STREAM_BACKOFF = "stream.backoff";
+    /** Events that failed to parse and were sent to the exception handler. */
+    public static final String STREAM_PARSE_FAILURES = "stream.parse_failures";
+    /** Parsed events whose dispatch failed, e.g. in a listener, sent to the exception handler. */
+    public static final String STREAM_DISPATCH_FAILURES = "stream.dispatch_failures";
+    /** Time spent dispatching an update to the listeners. */
+    public static final String LISTENER_DISPATCH = "listener.dispatch";
+    /** Prefix of the write latency by status code, e.g. {@code rest.write.429}. */
+    public static final String REST_WRITE = "rest.write.";
+    /** Latency of writes that failed without a response. */
+    public static final String REST_WRITE_FAILED = REST_WRITE + "failed";
+
+    private static final Metrics sDefault = new Metrics();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final long createdNanos = System.nanoTime();
+
+    /**
+     * Returns the registry shared by all clients that were not given one.
+     */
+    public static Metrics getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     */
+    public Counter counter(@NonNull String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) return counter;
+
+        counter = new Counter();
+        Counter existing = counters.putIfAbsent(name, counter);
+        return existing != null ? existing : counter;
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use.
+     */
+    public Timer timer(@NonNull String name) {
+        Timer timer = timers.get(name);
+        if (timer != null) return timer;
+
+        timer = new Timer();
+        Timer existing = timers.putIfAbsent(name, timer);
+        return existing != null ? existing : timer;
+    }
+
+    /**
+     * Returns all counters, sorted by name.
+     */
+    public SortedMap<String, Counter> getCounters() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+    }
+
+    /**
+     * Returns all timers, sorted by name.
+     */
+    public SortedMap<String, Timer> getTimers() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(timers));
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at which the registry was created.
+     */
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    public void export(@NonNull MetricsExporter exporter) throws IOException {
+        exporter.export(this);
+    }
+}
@@ -0,0 +1,13 @@
+package com.nestlabs.sdk.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Writes the current values of a {@link Metrics} registry somewhere, e.g. to a log or a
+ * monitoring system. Exporters are called by {@link Metrics#export(MetricsExporter)}.
+ */
+public interface MetricsExporter {
+    void export(@NonNull Metrics metrics) throws IOException;
+}
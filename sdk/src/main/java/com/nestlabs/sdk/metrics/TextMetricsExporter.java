@@ -0,0 +1,69 @@
+package com.nestlabs.sdk.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes metrics as plain text, one per line. Counters are followed by their rate per second
+ * since the previous export of this exporter, or since the registry was created.
+ *
+ * <pre>
+ * stream.bytes 1843200 rate=2048.0/s
+ * listener.dispatch count=1200 mean=0.052ms max=1.204ms
+ * </pre>
+ */
+public class TextMetricsExporter implements MetricsExporter {
+
+    private final Writer writer;
+    private final Map<String, Long> previous = new HashMap<>();
+    private long previousNanos = -1;
+
+    public TextMetricsExporter(@NonNull Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the metrics of the registry as text.
+     */
+    public static String dump(@NonNull Metrics metrics) {
+        StringWriter writer = new StringWriter();
+        try {
+            new TextMetricsExporter(writer).export(metrics);
+        } catch (IOException ignore) { }
+        return writer.toString();
+    }
+
+    @Override
+    public synchronized void export(@NonNull Metrics metrics) throws IOException {
+        long now = System.nanoTime();
+        double seconds = (now - (previousNanos < 0 ? metrics.getCreatedNanos() : previousNanos)) / 1e9;
+        previousNanos = now;
+
+        for (Map.Entry<String, Counter> entry : metrics.getCounters().entrySet()) {
+            long value = entry.getValue().sum();
+            Long last = previous.put(entry.getKey(), value);
+            double rate = seconds > 0 ? (value - (last == null ? 0 : last)) / seconds : 0;
+            writer.write(String.format(Locale.US, "%s %d rate=%.1f/s%n",
+                    entry.getKey(), value, rate));
+        }
+
+        for (Map.Entry<String, Timer> entry : metrics.getTimers().entrySet()) {
+            Timer timer = entry.getValue();
+            writer.write(String.format(Locale.US, "%s count=%d mean=%.3fms max=%.3fms%n",
+                    entry.getKey(), timer.getCount(), millis(timer.getMeanNanos()),
+                    millis(timer.getMaxNanos())));
+        }
+        writer.flush();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,55 @@
+package com.nestlabs.sdk.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the count, total and maximum of durations, e.g. listener dispatch or write latency.
+ * Count and total are {@link Counter}s, so recording is lock-free.
+ */
+public final class Timer {
+
+    private final Counter count = new Counter();
+    private final Counter total = new Counter();
+    private final AtomicLong max = new AtomicLong();
+
+    Timer() { }
+
+    public void record(long duration, TimeUnit unit) {
+        recordNanos(unit.toNanos(duration));
+    }
+
+    /**
+     * Records the time passed since a start time taken with {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    private void recordNanos(long nanos) {
+        count.increment();
+        total.add(nanos);
+
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Looks up the enum constants of the typed model getters by their value in the API.
+ */
+final class ApiEnums {
+
+    /**
+     * An enum constant with a value in the API.
+     */
+    interface Constant {
+        String getValue();
+    }
+
+    private ApiEnums() {}
+
+    /**
+     * Indexes the constants by value, once per enum, since {@code values()} copies the array on
+     * every call.
+     */
+    static <E extends Enum<E> & Constant> Map<String, E> index(E[] constants) {
+        Map<String, E> index = new HashMap<>();
+        for (E constant : constants) {
+            if (constant.getValue() != null) {
+                index.put(constant.getValue(), constant);
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Returns the constant for a value in the API, unknown if there is none, or null if value is
+     * null.
+     */
+    static <E> E fromValue(Map<String, E> index, String value, E unknown) {
+        if (value == null) {
+            return null;
+        }
+        E constant = index.get(value);
+        return constant != null ? constant : unknown;
+    }
+}
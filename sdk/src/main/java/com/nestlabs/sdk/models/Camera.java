@@ -33,6 +33,7 @@ import java.util.List;
  */
 @JsonPropertyOrder(alphabetic = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@GenerateCodec
 public class Camera extends Device implements Parcelable {
     public static final String KEY_IS_STREAMING = "is_streaming";
     public static final String KEY_IS_AUDIO_INPUT_ENABLED = "is_audio_input_enabled";
@@ -48,37 +49,37 @@ public class Camera extends Device implements Parcelable {
     private static final String TAG = "Camera";
 
     @JsonProperty(KEY_IS_STREAMING)
-    private boolean mIsStreaming;
+    boolean mIsStreaming;
 
     @JsonProperty(KEY_IS_AUDIO_INPUT_ENABLED)
-    private boolean mIsAudioInputEnabled;
+    boolean mIsAudioInputEnabled;
 
     @JsonProperty(KEY_LAST_IS_ONLINE_CHANGE)
-    private String mLastIsOnlineChange;
+    String mLastIsOnlineChange;
 
     @JsonProperty(KEY_IS_VIDEO_HISTORY_ENABLED)
-    private boolean mIsVideoHistoryEnabled;
+    boolean mIsVideoHistoryEnabled;
 
     @JsonProperty(KEY_WEB_URL)
-    private String mWebUrl;
+    String mWebUrl;
 
     @JsonProperty(KEY_APP_URL)
-    private String mAppUrl;
+    String mAppUrl;
 
     @JsonProperty(KEY_LAST_EVENT)
-    private LastEvent mLastEvent;
+    LastEvent mLastEvent;
 
     @JsonProperty(KEY_IS_PUBLIC_SHARE_ENABLED)
-    private boolean mIsPublicShareEnabled;
+    boolean mIsPublicShareEnabled;
 
     @JsonProperty(KEY_ACTIVITY_ZONES)
-    private List<ActivityZone> mActivityZones;
+    List<ActivityZone> mActivityZones;
 
     @JsonProperty(KEY_PUBLIC_SHARE_URL)
-    private String mPublicShareUrl;
+    String mPublicShareUrl;
 
     @JsonProperty(KEY_SNAPSHOT_URL)
-    private String mSnapshotUrl;
+    String mSnapshotUrl;
 
     public Camera() {
         mActivityZones = new ArrayList<>();
@@ -119,14 +120,28 @@ public class Camera extends Device implements Parcelable {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == this) {
-            return true;
-        } else if (obj instanceof Camera) {
-            Camera otherCamera = (Camera) obj;
-            return otherCamera.toString().equals(this.toString());
-        } else {
+        if (!super.equals(obj)) {
             return false;
         }
+        Camera otherCamera = (Camera) obj;
+        return mIsStreaming == otherCamera.mIsStreaming
+                && mIsAudioInputEnabled == otherCamera.mIsAudioInputEnabled
+                && Utils.equal(mLastIsOnlineChange, otherCamera.mLastIsOnlineChange)
+                && mIsVideoHistoryEnabled == otherCamera.mIsVideoHistoryEnabled
+                && Utils.equal(mWebUrl, otherCamera.mWebUrl)
+                && Utils.equal(mAppUrl, otherCamera.mAppUrl)
+                && Utils.equal(mLastEvent, otherCamera.mLastEvent)
+                && mIsPublicShareEnabled == otherCamera.mIsPublicShareEnabled
+                && Utils.equal(mActivityZones, otherCamera.mActivityZones)
+                && Utils.equal(mPublicShareUrl, otherCamera.mPublicShareUrl)
+                && Utils.equal(mSnapshotUrl, otherCamera.mSnapshotUrl);
+    }
+
+    @Override
+    int computeHashCode() {
+        return 31 * super.computeHashCode() + Utils.hash(mIsStreaming, mIsAudioInputEnabled,
+                mLastIsOnlineChange, mIsVideoHistoryEnabled, mWebUrl, mAppUrl, mLastEvent,
+                mIsPublicShareEnabled, mActivityZones, mPublicShareUrl, mSnapshotUrl);
     }
 
     @Override
@@ -265,6 +280,7 @@ public class Camera extends Device implements Parcelable {
      * to capture last event data, the Nest Cam must have a Nest Aware with Video History
      * subscription.
      */
+    @GenerateCodec
     public static class LastEvent implements Parcelable {
         public static final String KEY_HAS_SOUND = "has_sound";
         public static final String KEY_HAS_MOTION = "has_motion";
@@ -279,37 +295,39 @@ public class Camera extends Device implements Parcelable {
         public static final String KEY_ACTIVITY_ZONE_IDS = "activity_zone_ids";
 
         @JsonProperty(KEY_HAS_SOUND)
-        private boolean mHasSound;
+        boolean mHasSound;
 
         @JsonProperty(KEY_HAS_MOTION)
-        private boolean mHasMotion;
+        boolean mHasMotion;
 
         @JsonProperty(KEY_HAS_PERSON)
-        private boolean mHasPerson;
+        boolean mHasPerson;
 
         @JsonProperty(KEY_START_TIME)
-        private String mStartTime;
+        String mStartTime;
 
         @JsonProperty(KEY_END_TIME)
-        private String mEndTime;
+        String mEndTime;
 
         @JsonProperty(KEY_URLS_EXPIRE_TIME)
-        private String mUrlsExpireTime;
+        String mUrlsExpireTime;
 
         @JsonProperty(KEY_WEB_URL)
-        private String mWebUrl;
+        String mWebUrl;
 
         @JsonProperty(KEY_APP_URL)
-        private String mAppUrl;
+        String mAppUrl;
 
         @JsonProperty(KEY_IMAGE_URL)
-        private String mImageUrl;
+        String mImageUrl;
 
         @JsonProperty(KEY_ANIMATED_IMAGE_URL)
-        private String mAnimatedImageUrl;
+        String mAnimatedImageUrl;
 
         @JsonProperty(KEY_ACTIVITY_ZONE_IDS)
-        private List<String> mActivityZoneIds;
+        List<String> mActivityZoneIds;
+
+        private int mHashCode;
 
         public LastEvent() {
             mActivityZoneIds = new ArrayList<>();
@@ -353,12 +371,34 @@ public class Camera extends Device implements Parcelable {
                 return true;
             } else if (obj instanceof LastEvent) {
                 LastEvent event = (LastEvent) obj;
-                return event.toString().equals(this.toString());
+                return mHasSound == event.mHasSound
+                        && mHasMotion == event.mHasMotion
+                        && mHasPerson == event.mHasPerson
+                        && Utils.equal(mStartTime, event.mStartTime)
+                        && Utils.equal(mEndTime, event.mEndTime)
+                        && Utils.equal(mUrlsExpireTime, event.mUrlsExpireTime)
+                        && Utils.equal(mWebUrl, event.mWebUrl)
+                        && Utils.equal(mAppUrl, event.mAppUrl)
+                        && Utils.equal(mImageUrl, event.mImageUrl)
+                        && Utils.equal(mAnimatedImageUrl, event.mAnimatedImageUrl)
+                        && Utils.equal(mActivityZoneIds, event.mActivityZoneIds);
             } else {
                 return false;
             }
         }
 
+        @Override
+        public int hashCode() {
+            int hashCode = mHashCode;
+            if (hashCode == 0) {
+                hashCode = Utils.hash(mHasSound, mHasMotion, mHasPerson, mStartTime, mEndTime,
+                        mUrlsExpireTime, mWebUrl, mAppUrl, mImageUrl, mAnimatedImageUrl,
+                        mActivityZoneIds);
+                mHashCode = hashCode;
+            }
+            return hashCode;
+        }
+
         /**
          * Returns whether sound was detected in the last event.
          *
@@ -492,15 +532,18 @@ public class Camera extends Device implements Parcelable {
         }
     }
 
+    @GenerateCodec
     public static class ActivityZone implements Parcelable {
         public static final String KEY_NAME = "name";
         public static final String KEY_ID = "id";
 
         @JsonProperty(KEY_NAME)
-        private String mName;
+        String mName;
 
         @JsonProperty(KEY_ID)
-        private String mId;
+        String mId;
+
+        private int mHashCode;
 
         protected ActivityZone() {
             mName = "";
@@ -527,6 +570,28 @@ public class Camera extends Device implements Parcelable {
             return Utils.toString(this);
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            } else if (obj instanceof ActivityZone) {
+                ActivityZone zone = (ActivityZone) obj;
+                return Utils.equal(mName, zone.mName) && Utils.equal(mId, zone.mId);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            int hashCode = mHashCode;
+            if (hashCode == 0) {
+                hashCode = Utils.hash(mName, mId);
+                mHashCode = hashCode;
+            }
+            return hashCode;
+        }
+
         @Override
         public void writeToParcel(Parcel dest, int flags) {
             dest.writeString(mName);
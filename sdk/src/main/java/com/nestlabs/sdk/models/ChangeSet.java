@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.models;
+
+import android.os.Parcelable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ChangeSet contains the {@link Thermostat}, {@link SmokeCOAlarm}, {@link Camera} and {@link
+ * Structure} objects that were added, removed or changed by an update. A ChangeSet object is
+ * returned by {@link com.nestlabs.sdk.NestListener.ChangeListener#onChange(ChangeSet)} when an
+ * update changes anything.
+ */
+public final class ChangeSet {
+    private final List<Parcelable> mAdded;
+    private final List<Parcelable> mRemoved;
+    private final List<Change> mChanged;
+
+    public ChangeSet(List<Parcelable> added, List<Parcelable> removed, List<Change> changed) {
+        mAdded = Collections.unmodifiableList(added);
+        mRemoved = Collections.unmodifiableList(removed);
+        mChanged = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * Returns the objects that were not present before the update.
+     *
+     * @return the objects that were not present before the update.
+     */
+    public List<Parcelable> getAdded() {
+        return mAdded;
+    }
+
+    /**
+     * Returns the objects, as last seen, that are no longer present after the update.
+     *
+     * @return the objects that are no longer present after the update.
+     */
+    public List<Parcelable> getRemoved() {
+        return mRemoved;
+    }
+
+    /**
+     * Returns a {@link Change} for every object that has at least one changed value.
+     *
+     * @return a {@link Change} for every object that has at least one changed value.
+     */
+    public List<Change> getChanged() {
+        return mChanged;
+    }
+
+    /**
+     * Returns whether the update did not add, remove or change anything.
+     *
+     * @return true if nothing was added, removed or changed.
+     */
+    public boolean isEmpty() {
+        return mAdded.isEmpty() && mRemoved.isEmpty() && mChanged.isEmpty();
+    }
+
+    /**
+     * Change holds the previous and current version of a changed object, along with the keys of
+     * the values that differ, e.g. {@link Thermostat#KEY_AMBIENT_TEMP_F}.
+     */
+    public static final class Change {
+        private final Parcelable mPrevious;
+        private final Parcelable mCurrent;
+        private final Set<String> mChangedKeys;
+
+        public Change(Parcelable previous, Parcelable current, Set<String> changedKeys) {
+            mPrevious = previous;
+            mCurrent = current;
+            mChangedKeys = Collections.unmodifiableSet(changedKeys);
+        }
+
+        /**
+         * Returns the object before the update.
+         *
+         * @return the object before the update.
+         */
+        public Parcelable getPrevious() {
+            return mPrevious;
+        }
+
+        /**
+         * Returns the object after the update.
+         *
+         * @return the object after the update.
+         */
+        public Parcelable getCurrent() {
+            return mCurrent;
+        }
+
+        /**
+         * Returns the keys of the values that changed.
+         *
+         * @return the keys of the values that changed.
+         */
+        public Set<String> getChangedKeys() {
+            return mChangedKeys;
+        }
+
+        /**
+         * Returns whether the value with the given key changed.
+         *
+         * @param key the key of the value, e.g. {@link Thermostat#KEY_AMBIENT_TEMP_F}.
+         * @return true if the value changed.
+         */
+        public boolean hasChanged(String key) {
+            return mChangedKeys.contains(key);
+        }
+    }
+}
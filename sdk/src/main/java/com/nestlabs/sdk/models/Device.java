@@ -23,6 +23,7 @@ import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * Device represents any Nest device. All devices (e.g. {@link Thermostat}, {@link Camera}, {@link
@@ -30,6 +31,7 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
  */
 @JsonPropertyOrder(alphabetic = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@GenerateCodec
 public class Device implements Parcelable {
     public static final String KEY_DEVICE_ID = "device_id";
     public static final String KEY_LOCALE = "locale";
@@ -42,15 +44,19 @@ public class Device implements Parcelable {
     public static final String KEY_WHERE_ID = "where_id";
 
     @JsonProperty(KEY_DEVICE_ID)
+    @JsonDeserialize(using = StringPool.Deserializer.class)
     String mDeviceId;
 
     @JsonProperty(KEY_LOCALE)
+    @JsonDeserialize(using = StringPool.Deserializer.class)
     String mLocale;
 
     @JsonProperty(KEY_SOFTWARE_VERSION)
+    @JsonDeserialize(using = StringPool.Deserializer.class)
     String mSoftwareVersion;
 
     @JsonProperty(KEY_STRUCTURE_ID)
+    @JsonDeserialize(using = StringPool.Deserializer.class)
     String mStructureId;
 
     @JsonProperty(KEY_NAME)
@@ -66,20 +72,23 @@ public class Device implements Parcelable {
     boolean mIsOnline;
 
     @JsonProperty(KEY_WHERE_ID)
+    @JsonDeserialize(using = StringPool.Deserializer.class)
     String mWhereId;
 
+    private int mHashCode;
+
     public Device() {}
 
     protected Device(Parcel in) {
-        mDeviceId = in.readString();
-        mLocale = in.readString();
-        mSoftwareVersion = in.readString();
-        mStructureId = in.readString();
+        mDeviceId = StringPool.intern(in.readString());
+        mLocale = StringPool.intern(in.readString());
+        mSoftwareVersion = StringPool.intern(in.readString());
+        mStructureId = StringPool.intern(in.readString());
         mName = in.readString();
         mNameLong = in.readString();
         mLastConnection = in.readString();
         mIsOnline = Utils.readBoolean(in);
-        mWhereId = in.readString();
+        mWhereId = StringPool.intern(in.readString());
     }
 
     public static final Creator<Device> CREATOR = new Creator<Device>() {
@@ -101,11 +110,40 @@ public class Device implements Parcelable {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof Device) {
-            Device device = (Device) obj;
-            return device.toString().equals(this.toString());
+        if (obj == this) {
+            return true;
+        } else if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        Device device = (Device) obj;
+        return Utils.equal(mDeviceId, device.mDeviceId)
+                && Utils.equal(mLocale, device.mLocale)
+                && Utils.equal(mSoftwareVersion, device.mSoftwareVersion)
+                && Utils.equal(mStructureId, device.mStructureId)
+                && Utils.equal(mName, device.mName)
+                && Utils.equal(mNameLong, device.mNameLong)
+                && Utils.equal(mLastConnection, device.mLastConnection)
+                && mIsOnline == device.mIsOnline
+                && Utils.equal(mWhereId, device.mWhereId);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = mHashCode;
+        if (hashCode == 0) {
+            hashCode = computeHashCode();
+            mHashCode = hashCode;
         }
-        return false;
+        return hashCode;
+    }
+
+    /**
+     * Returns the hash code of the fields, which subclasses extend with their own. Models are not
+     * modified once they are bound, so {@link #hashCode()} only calls this once.
+     */
+    int computeHashCode() {
+        return Utils.hash(mDeviceId, mLocale, mSoftwareVersion, mStructureId, mName, mNameLong,
+                mLastConnection, mIsOnline, mWhereId);
     }
 
     /**
@@ -22,16 +22,26 @@ import java.util.List;
  * DeviceUpdate contains the state of all devices in the Nest account when a change is detected in
  * any device. A DeviceUpdate object is returned by {@link com.nestlabs.sdk.NestListener
  * .DeviceListener#onUpdate(DeviceUpdate)} when an update occurs.
+ *
+ * The lists of an update created with {@link ModelLoader}s are only loaded the first time they
+ * are read, so listeners only pay for the device types they look at.
  */
 public final class DeviceUpdate {
-    private final List<Thermostat> mThermostats;
-    private final List<SmokeCOAlarm> mSmokeCOAlarms;
-    private final List<Camera> mCameras;
+    private final LazyList<Thermostat> mThermostats;
+    private final LazyList<SmokeCOAlarm> mSmokeCOAlarms;
+    private final LazyList<Camera> mCameras;
 
     public DeviceUpdate(List<Thermostat> thermostats, List<SmokeCOAlarm> smokeCOAlarms, List<Camera> cameras) {
-        mThermostats = thermostats;
-        mSmokeCOAlarms = smokeCOAlarms;
-        mCameras = cameras;
+        mThermostats = new LazyList<>(thermostats);
+        mSmokeCOAlarms = new LazyList<>(smokeCOAlarms);
+        mCameras = new LazyList<>(cameras);
+    }
+
+    public DeviceUpdate(ModelLoader<Thermostat> thermostats, ModelLoader<SmokeCOAlarm> smokeCOAlarms,
+                        ModelLoader<Camera> cameras) {
+        mThermostats = new LazyList<>(thermostats);
+        mSmokeCOAlarms = new LazyList<>(smokeCOAlarms);
+        mCameras = new LazyList<>(cameras);
     }
 
     /**
@@ -40,7 +50,7 @@ public final class DeviceUpdate {
      * @return all the {@link Thermostat} objects in the Nest account at the time of the update.
      */
     public final List<Thermostat> getThermostats() {
-        return mThermostats;
+        return mThermostats.get();
     }
 
     /**
@@ -49,7 +59,7 @@ public final class DeviceUpdate {
      * @return all the {@link SmokeCOAlarm} objects in the Nest account at the time of the update.
      */
     public final List<SmokeCOAlarm> getSmokeCOAlarms() {
-        return mSmokeCOAlarms;
+        return mSmokeCOAlarms.get();
     }
 
     /**
@@ -58,6 +68,6 @@ public final class DeviceUpdate {
      * @return all the {@link Camera} objects in the Nest account at the time of the update.
      */
     public final List<Camera> getCameras() {
-        return mCameras;
+        return mCameras.get();
     }
 }
@@ -22,17 +22,41 @@ import java.util.List;
  * GlobalUpdate contains the state of all devices, structures and metadata in the Nest account when
  * a change is detected in anything. A GlobalUpdate object is returned by {@link
  * com.nestlabs.sdk.NestListener.GlobalListener#onUpdate(GlobalUpdate)} when an update occurs.
+ *
+ * The lists of an update created with {@link ModelLoader}s are only loaded the first time they
+ * are read, so a listener that only reads the metadata or one type of device does not pay for the
+ * rest.
+ *
+ * An update restored from a snapshot saved by an earlier session is {@link #isStale() stale}
+ * until the stream sends the first live update.
  */
 public class GlobalUpdate {
     private final DeviceUpdate devices;
-    private final List<Structure> mStructures;
+    private final LazyList<Structure> mStructures;
     private final Metadata mMetadata;
+    private final boolean mStale;
 
     public GlobalUpdate(List<Thermostat> thermostats, List<SmokeCOAlarm> smokeCOAlarms,
                  List<Camera> cameras, List<Structure> structures, Metadata metadata) {
         devices = new DeviceUpdate(thermostats, smokeCOAlarms, cameras);
-        mStructures = structures;
+        mStructures = new LazyList<>(structures);
         mMetadata = metadata;
+        mStale = false;
+    }
+
+    public GlobalUpdate(ModelLoader<Thermostat> thermostats, ModelLoader<SmokeCOAlarm> smokeCOAlarms,
+                        ModelLoader<Camera> cameras, ModelLoader<Structure> structures,
+                        Metadata metadata) {
+        this(thermostats, smokeCOAlarms, cameras, structures, metadata, false);
+    }
+
+    public GlobalUpdate(ModelLoader<Thermostat> thermostats, ModelLoader<SmokeCOAlarm> smokeCOAlarms,
+                        ModelLoader<Camera> cameras, ModelLoader<Structure> structures,
+                        Metadata metadata, boolean stale) {
+        devices = new DeviceUpdate(thermostats, smokeCOAlarms, cameras);
+        mStructures = new LazyList<>(structures);
+        mMetadata = metadata;
+        mStale = stale;
     }
 
     public final DeviceUpdate getDevices() {
@@ -72,7 +96,7 @@ public class GlobalUpdate {
      * @return all the {@link Structure} objects in the Nest account at the time of the update.
      */
     public final List<Structure> getStructures() {
-        return mStructures;
+        return mStructures.get();
     }
 
     /**
@@ -83,4 +107,13 @@ public class GlobalUpdate {
     public final Metadata getMetadata() {
         return mMetadata;
     }
+
+    /**
+     * Returns true if the update was restored from a snapshot and not yet confirmed by the stream.
+     *
+     * @return true if the update was restored from a snapshot and not yet confirmed by the stream.
+     */
+    public final boolean isStale() {
+        return mStale;
+    }
 }
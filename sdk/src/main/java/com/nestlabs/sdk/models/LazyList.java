@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.models;
+
+import java.util.List;
+
+/**
+ * A list that is loaded on first access and memoized. Safe to read from any thread.
+ */
+final class LazyList<T> {
+    private ModelLoader<T> loader;
+    private volatile List<T> list;
+
+    LazyList(List<T> list) {
+        this.list = list;
+    }
+
+    LazyList(ModelLoader<T> loader) {
+        this.loader = loader;
+    }
+
+    List<T> get() {
+        List<T> loaded = list;
+        if (loaded != null) return loaded;
+
+        synchronized (this) {
+            if (loader != null) {
+                list = loader.load();
+                loader = null;
+            }
+            return list;
+        }
+    }
+}
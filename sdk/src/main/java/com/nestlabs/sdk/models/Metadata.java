@@ -29,15 +29,18 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
  */
 @JsonPropertyOrder(alphabetic = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@GenerateCodec
 public class Metadata implements Parcelable {
     public static final String KEY_ACCESS_TOKEN = "access_token";
     public static final String KEY_CLIENT_VERSION = "client_version";
 
     @JsonProperty(KEY_ACCESS_TOKEN)
-    private String mAccessToken;
+    String mAccessToken;
 
     @JsonProperty(KEY_CLIENT_VERSION)
-    private long mClientVersion;
+    long mClientVersion;
+
+    private int mHashCode;
 
     public Metadata() {}
 
@@ -104,9 +107,20 @@ public class Metadata implements Parcelable {
             return true;
         } else if (obj instanceof Metadata) {
             Metadata metadata = (Metadata) obj;
-            return metadata.toString().equals(this.toString());
+            return Utils.equal(mAccessToken, metadata.mAccessToken)
+                    && mClientVersion == metadata.mClientVersion;
         } else {
             return false;
         }
     }
+
+    @Override
+    public int hashCode() {
+        int hashCode = mHashCode;
+        if (hashCode == 0) {
+            hashCode = Utils.hash(mAccessToken, mClientVersion);
+            mHashCode = hashCode;
+        }
+        return hashCode;
+    }
 }
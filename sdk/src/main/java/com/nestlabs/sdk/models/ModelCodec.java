@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a model without reflection. Codecs are generated for the models annotated
+ * with {@link GenerateCodec}, and looked up with {@link ModelCodecs#get(Class)}.
+ *
+ * @param <T> the type of the model.
+ */
+public interface ModelCodec<T> {
+
+    /**
+     * Reads a model. The parser is positioned on the START_OBJECT token of the model, or before
+     * it, and is left on its END_OBJECT token.
+     *
+     * @param parser the parser to read from.
+     * @return the model, or null if the value is null.
+     * @throws IOException if the JSON is malformed or does not match the model.
+     */
+    T read(JsonParser parser) throws IOException;
+
+    /**
+     * Writes a model as a JSON object, or null.
+     *
+     * @param generator the generator to write to.
+     * @param value     the model, may be null.
+     * @throws IOException if the generator fails to write.
+     */
+    void write(JsonGenerator generator, T value) throws IOException;
+}
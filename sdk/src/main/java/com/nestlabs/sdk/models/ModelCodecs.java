@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks up the {@link ModelCodec} generated for a model, and provides the reading and writing
+ * steps shared by the generated codecs. The readers coerce values the way Jackson databind does
+ * by default, so a codec binds the same model that an {@code ObjectReader} would.
+ */
+public final class ModelCodecs {
+
+    private static final String SUFFIX = "_ModelCodec";
+    private static final Object NONE = new Object();
+    private static final ConcurrentHashMap<Class<?>, Object> sCodecs = new ConcurrentHashMap<>();
+
+    private ModelCodecs() {}
+
+    /**
+     * Returns the codec generated for exactly this class, e.g. {@code Structure_Where_ModelCodec}
+     * for {@link Structure.Where}. Subclasses do not share the codec of their superclass.
+     *
+     * @param type the class of the model.
+     * @return the codec, or null if none was generated.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ModelCodec<T> get(Class<T> type) {
+        Object codec = sCodecs.get(type);
+        if (codec == null) {
+            codec = load(type);
+            sCodecs.put(type, codec);
+        }
+        return codec != NONE ? (ModelCodec<T>) codec : null;
+    }
+
+    private static Object load(Class<?> type) {
+        try {
+            String name = type.getName().replace('$', '_') + SUFFIX;
+            return Class.forName(name, true, type.getClassLoader()).newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+            //Not generated, the model is bound with databind
+            return NONE;
+        }
+    }
+
+    /**
+     * Moves the parser onto the START_OBJECT token of a model if it is before it.
+     *
+     * @return true if there is a model to read, false if the value is null.
+     */
+    public static boolean startObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null) token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) return false;
+        if (token != JsonToken.START_OBJECT) throw mismatch(parser, "an object");
+        return true;
+    }
+
+    public static boolean readBoolean(JsonParser parser) throws IOException {
+        scalar(parser, "a boolean");
+        return parser.getValueAsBoolean();
+    }
+
+    public static int readInt(JsonParser parser) throws IOException {
+        scalar(parser, "a number");
+        return parser.getValueAsInt();
+    }
+
+    public static long readLong(JsonParser parser) throws IOException {
+        scalar(parser, "a number");
+        return parser.getValueAsLong();
+    }
+
+    public static double readDouble(JsonParser parser) throws IOException {
+        scalar(parser, "a number");
+        return parser.getValueAsDouble();
+    }
+
+    public static String readString(JsonParser parser) throws IOException {
+        scalar(parser, "a string");
+        return parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    public static ArrayList<String> readStringList(JsonParser parser, boolean intern)
+            throws IOException {
+        if (!startArray(parser)) return null;
+
+        ArrayList<String> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String value = readString(parser);
+            list.add(intern ? StringPool.intern(value) : value);
+        }
+        return list;
+    }
+
+    public static <T> ArrayList<T> readList(JsonParser parser, ModelCodec<T> codec)
+            throws IOException {
+        if (!startArray(parser)) return null;
+
+        ArrayList<T> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(codec.read(parser));
+        }
+        return list;
+    }
+
+    public static <T> LinkedHashMap<String, T> readMap(JsonParser parser, ModelCodec<T> codec)
+            throws IOException {
+        if (!startObject(parser)) return null;
+
+        LinkedHashMap<String, T> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            map.put(name, codec.read(parser));
+        }
+        return map;
+    }
+
+    /**
+     * Reads an object of arbitrary JSON, as maps, lists, strings, numbers and booleans.
+     */
+    @SuppressWarnings("unchecked")
+    public static LinkedHashMap<String, Object> readUntypedMap(JsonParser parser)
+            throws IOException {
+        if (!startObject(parser)) return null;
+        return (LinkedHashMap<String, Object>) readUntyped(parser);
+    }
+
+    private static Object readUntyped(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(name, readUntyped(parser));
+                }
+                return map;
+            case START_ARRAY:
+                ArrayList<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readUntyped(parser));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            default:
+                return null;
+        }
+    }
+
+    public static void writeStringList(JsonGenerator generator, List<String> list)
+            throws IOException {
+        if (list == null) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartArray();
+        for (String value : list) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    public static <T> void writeList(JsonGenerator generator, List<T> list, ModelCodec<T> codec)
+            throws IOException {
+        if (list == null) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartArray();
+        for (T value : list) {
+            codec.write(generator, value);
+        }
+        generator.writeEndArray();
+    }
+
+    public static <T> void writeMap(JsonGenerator generator, Map<String, T> map,
+                                    ModelCodec<T> codec) throws IOException {
+        if (map == null) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartObject();
+        for (Map.Entry<String, T> entry : map.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            codec.write(generator, entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes arbitrary JSON read by {@link #readUntypedMap(JsonParser)}.
+     */
+    public static void writeUntyped(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeUntyped(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof List) {
+            generator.writeStartArray();
+            for (Object item : (List<?>) value) {
+                writeUntyped(generator, item);
+            }
+            generator.writeEndArray();
+        } else {
+            //Strings, numbers, booleans and null
+            generator.writeObject(value);
+        }
+    }
+
+    /**
+     * Returns the error for a property that is not bound by a model which does not ignore unknown
+     * properties, like databind fails on it.
+     */
+    public static JsonParseException unknownProperty(JsonParser parser, String name) {
+        return new JsonParseException(parser, "Unrecognized field " + name);
+    }
+
+    private static boolean startArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) return false;
+        if (token != JsonToken.START_ARRAY) throw mismatch(parser, "an array");
+        return true;
+    }
+
+    private static void scalar(JsonParser parser, String expected) throws IOException {
+        if (!parser.getCurrentToken().isScalarValue()) throw mismatch(parser, expected);
+    }
+
+    private static JsonParseException mismatch(JsonParser parser, String expected) {
+        return new JsonParseException(parser, "Expected " + expected + " for "
+                + parser.getParsingContext().getCurrentName() + " but got " + parser.getCurrentToken());
+    }
+}
@@ -36,6 +36,8 @@ public final class NestToken implements Parcelable {
     @JsonProperty(KEY_EXPIRES_IN_SECS)
     private long mExpiresInSecs;
 
+    private int mHashCode;
+
     public NestToken() {}
 
     /**
@@ -86,11 +88,21 @@ public final class NestToken implements Parcelable {
     public boolean equals(Object obj) {
         if (obj instanceof NestToken) {
             NestToken token = (NestToken) obj;
-            return token.toString().equals(this.toString());
+            return Utils.equal(mToken, token.mToken) && mExpiresInSecs == token.mExpiresInSecs;
         }
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        int hashCode = mHashCode;
+        if (hashCode == 0) {
+            hashCode = Utils.hash(mToken, mExpiresInSecs);
+            mHashCode = hashCode;
+        }
+        return hashCode;
+    }
+
     @Override
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeString(mToken);
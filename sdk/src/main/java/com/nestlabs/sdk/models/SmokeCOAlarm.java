@@ -20,15 +20,20 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.Map;
 
 /**
  * SmokeCOAlarm represents and contains all properties of a Nest smoke+CO alarm device.
  */
 @JsonPropertyOrder(alphabetic = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@GenerateCodec
 public final class SmokeCOAlarm extends Device implements Parcelable {
 
     public static final String KEY_BATTERY_HEALTH = "battery_health";
@@ -39,33 +44,37 @@ public final class SmokeCOAlarm extends Device implements Parcelable {
     public static final String KEY_UI_COLOR_STATE = "ui_color_state";
 
     @JsonProperty(KEY_BATTERY_HEALTH)
-    private String mBatteryHealth;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mBatteryHealth;
 
     @JsonProperty(KEY_CO_ALARM_STATE)
-    private String mCoAlarmState;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mCoAlarmState;
 
     @JsonProperty(KEY_SMOKE_ALARM_STATE)
-    private String mSmokeAlarmState;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mSmokeAlarmState;
 
     @JsonProperty(KEY_IS_MANUAL_TEST_ACTIVE)
-    private boolean mIsManualTestActive;
+    boolean mIsManualTestActive;
 
     @JsonProperty(KEY_LAST_MANUAL_TEST_TIME)
-    private String mLastManualTestTime;
+    String mLastManualTestTime;
 
     @JsonProperty(KEY_UI_COLOR_STATE)
-    private String mUiColorState;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mUiColorState;
 
     public SmokeCOAlarm() {}
 
     protected SmokeCOAlarm(Parcel in) {
         super(in);
-        mBatteryHealth = in.readString();
-        mCoAlarmState = in.readString();
-        mSmokeAlarmState = in.readString();
+        mBatteryHealth = StringPool.intern(in.readString());
+        mCoAlarmState = StringPool.intern(in.readString());
+        mSmokeAlarmState = StringPool.intern(in.readString());
         mIsManualTestActive = Utils.readBoolean(in);
         mLastManualTestTime = in.readString();
-        mUiColorState = in.readString();
+        mUiColorState = StringPool.intern(in.readString());
     }
 
     @Override
@@ -108,6 +117,16 @@ public final class SmokeCOAlarm extends Device implements Parcelable {
         return mBatteryHealth;
     }
 
+    /**
+     * Returns the battery life/health as a {@link BatteryHealth}.
+     *
+     * @return the battery life/health, or null if it is not set.
+     */
+    @JsonIgnore
+    public BatteryHealth getBatteryHealthType() {
+        return BatteryHealth.fromValue(mBatteryHealth);
+    }
+
     /**
      * Returns the CO alarm status.
      * <p/>
@@ -120,6 +139,16 @@ public final class SmokeCOAlarm extends Device implements Parcelable {
         return mCoAlarmState;
     }
 
+    /**
+     * Returns the CO alarm status as a {@link AlarmState}.
+     *
+     * @return the CO alarm status, or null if it is not set.
+     */
+    @JsonIgnore
+    public AlarmState getCOAlarmStateType() {
+        return AlarmState.fromValue(mCoAlarmState);
+    }
+
     /**
      * Returns the smoke alarm status.
      * <p/>
@@ -132,6 +161,16 @@ public final class SmokeCOAlarm extends Device implements Parcelable {
         return mSmokeAlarmState;
     }
 
+    /**
+     * Returns the smoke alarm status as a {@link AlarmState}.
+     *
+     * @return the smoke alarm status, or null if it is not set.
+     */
+    @JsonIgnore
+    public AlarmState getSmokeAlarmStateType() {
+        return AlarmState.fromValue(mSmokeAlarmState);
+    }
+
     /**
      * Returns the device status by color in the Nest app UI. It is an aggregate condition for
      * battery+smoke+co states, and reflects the actual color indicators displayed in the Nest app.
@@ -145,6 +184,16 @@ public final class SmokeCOAlarm extends Device implements Parcelable {
         return mUiColorState;
     }
 
+    /**
+     * Returns the device status by color in the Nest app UI as a {@link UiColorState}.
+     *
+     * @return the device status by color in the Nest app UI, or null if it is not set.
+     */
+    @JsonIgnore
+    public UiColorState getUIColorStateType() {
+        return UiColorState.fromValue(mUiColorState);
+    }
+
     /**
      * Returns the state of the manual smoke and CO alarm test.
      *
@@ -172,13 +221,139 @@ public final class SmokeCOAlarm extends Device implements Parcelable {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == this) {
-            return true;
-        } else if (obj instanceof SmokeCOAlarm) {
-            SmokeCOAlarm smokeCOAlarm = (SmokeCOAlarm) obj;
-            return smokeCOAlarm.toString().equals(this.toString());
-        } else {
+        if (!super.equals(obj)) {
             return false;
         }
+        SmokeCOAlarm smokeCOAlarm = (SmokeCOAlarm) obj;
+        return Utils.equal(mBatteryHealth, smokeCOAlarm.mBatteryHealth)
+                && Utils.equal(mCoAlarmState, smokeCOAlarm.mCoAlarmState)
+                && Utils.equal(mSmokeAlarmState, smokeCOAlarm.mSmokeAlarmState)
+                && mIsManualTestActive == smokeCOAlarm.mIsManualTestActive
+                && Utils.equal(mLastManualTestTime, smokeCOAlarm.mLastManualTestTime)
+                && Utils.equal(mUiColorState, smokeCOAlarm.mUiColorState);
+    }
+
+    @Override
+    int computeHashCode() {
+        return 31 * super.computeHashCode() + Utils.hash(mBatteryHealth, mCoAlarmState,
+                mSmokeAlarmState, mIsManualTestActive, mLastManualTestTime, mUiColorState);
+    }
+
+    /**
+     * Battery health of an alarm, see {@link #getBatteryHealth()}.
+     */
+    public enum BatteryHealth implements ApiEnums.Constant {
+        OK("ok"),
+        REPLACE("replace"),
+        UNKNOWN(null);
+
+        private static final Map<String, BatteryHealth> sByValue = ApiEnums.index(values());
+
+        private final String mValue;
+
+        BatteryHealth(String value) {
+            mValue = value;
+        }
+
+        /**
+         * Returns the value of this state in the API, or null for {@link #UNKNOWN}.
+         *
+         * @return the value in the API.
+         */
+        @Override
+        public String getValue() {
+            return mValue;
+        }
+
+        /**
+         * Returns the constant for a value in the API.
+         *
+         * @param value the value in the API, may be null.
+         * @return the matching constant, {@link #UNKNOWN} for values added to the API later, or null
+         * if value is null.
+         */
+        public static BatteryHealth fromValue(String value) {
+            return ApiEnums.fromValue(sByValue, value, UNKNOWN);
+        }
+    }
+
+    /**
+     * States of the smoke and CO alarms, see {@link #getSmokeAlarmState()} and
+     * {@link #getCOAlarmState()}.
+     */
+    public enum AlarmState implements ApiEnums.Constant {
+        OK("ok"),
+        WARNING("warning"),
+        EMERGENCY("emergency"),
+        UNKNOWN(null);
+
+        private static final Map<String, AlarmState> sByValue = ApiEnums.index(values());
+
+        private final String mValue;
+
+        AlarmState(String value) {
+            mValue = value;
+        }
+
+        /**
+         * Returns the value of this state in the API, or null for {@link #UNKNOWN}.
+         *
+         * @return the value in the API.
+         */
+        @Override
+        public String getValue() {
+            return mValue;
+        }
+
+        /**
+         * Returns the constant for a value in the API.
+         *
+         * @param value the value in the API, may be null.
+         * @return the matching constant, {@link #UNKNOWN} for values added to the API later, or null
+         * if value is null.
+         */
+        public static AlarmState fromValue(String value) {
+            return ApiEnums.fromValue(sByValue, value, UNKNOWN);
+        }
+    }
+
+    /**
+     * Colors of an alarm in the Nest app UI, see {@link #getUIColorState()}.
+     */
+    public enum UiColorState implements ApiEnums.Constant {
+        GRAY("gray"),
+        GREEN("green"),
+        YELLOW("yellow"),
+        RED("red"),
+        UNKNOWN(null);
+
+        private static final Map<String, UiColorState> sByValue = ApiEnums.index(values());
+
+        private final String mValue;
+
+        UiColorState(String value) {
+            mValue = value;
+        }
+
+        /**
+         * Returns the value of this color in the API, or null for {@link #UNKNOWN}.
+         *
+         * @return the value in the API.
+         */
+        @Override
+        public String getValue() {
+            return mValue;
+        }
+
+        /**
+         * Returns the constant for a value in the API.
+         *
+         * @param value the value in the API, may be null.
+         * @return the matching constant, {@link #UNKNOWN} for values added to the API later, or null
+         * if value is null.
+         */
+        public static UiColorState fromValue(String value) {
+            return ApiEnums.fromValue(sByValue, value, UNKNOWN);
+        }
     }
 }
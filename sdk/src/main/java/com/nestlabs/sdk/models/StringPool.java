@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.models;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Shares one instance between equal strings, for the IDs and enum-like values that repeat across
+ * every model of an account, e.g. {@code structure_id}, {@code hvac_mode} or {@code locale}.
+ * Strings are only weakly held, so entries go away with the last model that uses them. The pool
+ * is split into stripes by hash, each with a lock of its own, so models bound on different
+ * threads rarely wait for each other.
+ */
+public final class StringPool {
+
+    private static final int STRIPES = 16;
+
+    @SuppressWarnings("unchecked")
+    private static final WeakHashMap<String, WeakReference<String>>[] sStripes =
+            new WeakHashMap[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            sStripes[i] = new WeakHashMap<>();
+        }
+    }
+
+    private StringPool() {}
+
+    /**
+     * Returns the pooled instance equal to the string, adding the string if there is none.
+     *
+     * @param value the string to intern, may be null.
+     * @return an instance equal to value, or null if value is null.
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        int hash = value.hashCode();
+        WeakHashMap<String, WeakReference<String>> stripe =
+                sStripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            WeakReference<String> ref = stripe.get(value);
+            String pooled = ref != null ? ref.get() : null;
+            if (pooled == null) {
+                pooled = value;
+                stripe.put(pooled, new WeakReference<>(pooled));
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * Returns the number of strings in the pool.
+     *
+     * @return the number of strings in the pool.
+     */
+    static int size() {
+        int size = 0;
+        for (WeakHashMap<String, WeakReference<String>> stripe : sStripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Interns strings while a model is bound, for use with
+     * {@code @JsonDeserialize(using = StringPool.Deserializer.class)}.
+     */
+    public static final class Deserializer extends StdScalarDeserializer<String> {
+
+        public Deserializer() {
+            super(String.class);
+        }
+
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return intern(StringDeserializer.instance.deserialize(p, ctxt));
+        }
+    }
+}
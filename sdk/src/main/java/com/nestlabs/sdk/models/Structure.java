@@ -20,18 +20,22 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Structure represents and contains all properties of a Nest structure.
  */
 @JsonPropertyOrder(alphabetic = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@GenerateCodec
 public final class Structure implements Parcelable {
     public static final String KEY_STRUCTURE_ID = "structure_id";
     public static final String KEY_THERMOSTATS = "thermostats";
@@ -50,60 +54,67 @@ public final class Structure implements Parcelable {
     public static final String KEY_WHERES = "wheres";
 
     @JsonProperty(KEY_STRUCTURE_ID)
-    private String mStructureId;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mStructureId;
 
     @JsonProperty(KEY_THERMOSTATS)
-    private ArrayList<String> mThermostats;
+    @JsonDeserialize(contentUsing = StringPool.Deserializer.class)
+    ArrayList<String> mThermostats;
 
     @JsonProperty(KEY_SMOKE_CO_ALARMS)
-    private ArrayList<String> mSmokeCoAlarms;
+    @JsonDeserialize(contentUsing = StringPool.Deserializer.class)
+    ArrayList<String> mSmokeCoAlarms;
 
     @JsonProperty(KEY_CAMERAS)
-    private ArrayList<String> mCameras;
+    @JsonDeserialize(contentUsing = StringPool.Deserializer.class)
+    ArrayList<String> mCameras;
 
     @JsonProperty(KEY_DEVICES)
-    private LinkedHashMap<String, Object> mDevices;
+    LinkedHashMap<String, Object> mDevices;
 
     @JsonProperty(KEY_AWAY)
-    private String mAway;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mAway;
 
     @JsonProperty(KEY_NAME)
-    private String mName;
+    String mName;
 
     @JsonProperty(KEY_COUNTRY_CODE)
-    private String mCountryCode;
+    String mCountryCode;
 
     @JsonProperty(KEY_POSTAL_CODE)
-    private String mPostalCode;
+    String mPostalCode;
 
     @JsonProperty(KEY_PEAK_PERIOD_START_TIME)
-    private String mPeakPeriodStartTime;
+    String mPeakPeriodStartTime;
 
     @JsonProperty(KEY_PEAK_PERIOD_END_TIME)
-    private String mPeakPeriodEndTime;
+    String mPeakPeriodEndTime;
 
     @JsonProperty(KEY_TIME_ZONE)
-    private String mTimeZone;
+    String mTimeZone;
 
     @JsonProperty(KEY_ETA)
-    private ETA mEta;
+    ETA mEta;
 
     @JsonProperty(KEY_RHR_ENROLLMENT)
-    private boolean mRhrEnrollment;
+    boolean mRhrEnrollment;
 
     @JsonProperty(KEY_WHERES)
-    private LinkedHashMap<String, Where> mWheres;
+    LinkedHashMap<String, Where> mWheres;
+
+    private int mHashCode;
 
     public Structure() {}
 
     public Structure(Parcel in) {
-        mStructureId = in.readString();
+        mStructureId = StringPool.intern(in.readString());
         mThermostats = in.createStringArrayList();
         mSmokeCoAlarms = in.createStringArrayList();
         mCameras = in.createStringArrayList();
         mDevices = new LinkedHashMap<>();
         in.readMap(mDevices, LinkedHashMap.class.getClassLoader());
-        mAway = in.readString();
+        mAway = StringPool.intern(in.readString());
         mName = in.readString();
         mCountryCode = in.readString();
         mPostalCode = in.readString();
@@ -182,6 +193,16 @@ public final class Structure implements Parcelable {
         return mAway;
     }
 
+    /**
+     * Returns the away state of the structure as a {@link Away}.
+     *
+     * @return the away state of the structure, or null if it is not set.
+     */
+    @JsonIgnore
+    public Away getAwayType() {
+        return Away.fromValue(mAway);
+    }
+
     /**
      * Returns the user-defined name of the structure.
      *
@@ -317,21 +338,25 @@ public final class Structure implements Parcelable {
     /**
      * Where is an object containing where identifiers for devices in the structure.
      */
+    @GenerateCodec
     public static class Where implements Parcelable {
 
         public static final String KEY_WHERE_ID = "where_id";
         public static final String KEY_NAME = "name";
 
         @JsonProperty(KEY_WHERE_ID)
-        private String mWhereId;
+        @JsonDeserialize(using = StringPool.Deserializer.class)
+        String mWhereId;
 
         @JsonProperty(KEY_NAME)
-        private String name;
+        String name;
+
+        private int mHashCode;
 
         public Where() {}
 
         protected Where(Parcel in) {
-            mWhereId = in.readString();
+            mWhereId = StringPool.intern(in.readString());
             name = in.readString();
         }
 
@@ -378,12 +403,23 @@ public final class Structure implements Parcelable {
                 return true;
             } else if (obj instanceof Structure.Where) {
                 Structure.Where where = (Structure.Where) obj;
-                return where.toString().equals(this.toString());
+                return Utils.equal(mWhereId, where.mWhereId)
+                        && Utils.equal(name, where.name);
             } else {
                 return false;
             }
         }
 
+        @Override
+        public int hashCode() {
+            int hashCode = mHashCode;
+            if (hashCode == 0) {
+                hashCode = Utils.hash(mWhereId, name);
+                mHashCode = hashCode;
+            }
+            return hashCode;
+        }
+
         @Override
         public int describeContents() {
             return 0;
@@ -400,19 +436,22 @@ public final class Structure implements Parcelable {
     /**
      * ETA is used to let Nest know that a user is expected to return home at a specific time.
      */
+    @GenerateCodec
     public static class ETA implements Parcelable {
         public static final String KEY_TRIP_ID = "trip_id";
         public static final String KEY_EST_ARRIVAL_WINDOW_BEGIN = "estimated_arrival_window_begin";
         public static final String KEY_EST_ARRIVAL_WINDOW_END = "estimated_arrival_window_end";
 
         @JsonProperty(KEY_TRIP_ID)
-        private String mTripId;
+        String mTripId;
 
         @JsonProperty(KEY_EST_ARRIVAL_WINDOW_BEGIN)
-        private String mEstimatedArrivalWindowBegin;
+        String mEstimatedArrivalWindowBegin;
 
         @JsonProperty(KEY_EST_ARRIVAL_WINDOW_END)
-        private String mEstimatedArrivalWindowEnd;
+        String mEstimatedArrivalWindowEnd;
+
+        private int mHashCode;
 
         public ETA() {}
 
@@ -481,12 +520,25 @@ public final class Structure implements Parcelable {
                 return true;
             } else if (obj instanceof Structure.ETA) {
                 Structure.ETA eta = (Structure.ETA) obj;
-                return eta.toString().equals(this.toString());
+                return Utils.equal(mTripId, eta.mTripId)
+                        && Utils.equal(mEstimatedArrivalWindowBegin, eta.mEstimatedArrivalWindowBegin)
+                        && Utils.equal(mEstimatedArrivalWindowEnd, eta.mEstimatedArrivalWindowEnd);
             } else {
                 return false;
             }
         }
 
+        @Override
+        public int hashCode() {
+            int hashCode = mHashCode;
+            if (hashCode == 0) {
+                hashCode = Utils.hash(mTripId, mEstimatedArrivalWindowBegin,
+                        mEstimatedArrivalWindowEnd);
+                mHashCode = hashCode;
+            }
+            return hashCode;
+        }
+
         @Override
         public int describeContents() {
             return 0;
@@ -511,9 +563,74 @@ public final class Structure implements Parcelable {
             return true;
         } else if (o instanceof Structure) {
             Structure structure = (Structure) o;
-            return structure.toString().equals(this.toString());
+            return Utils.equal(mStructureId, structure.mStructureId)
+                    && Utils.equal(mThermostats, structure.mThermostats)
+                    && Utils.equal(mSmokeCoAlarms, structure.mSmokeCoAlarms)
+                    && Utils.equal(mCameras, structure.mCameras)
+                    && Utils.equal(mDevices, structure.mDevices)
+                    && Utils.equal(mAway, structure.mAway)
+                    && Utils.equal(mName, structure.mName)
+                    && Utils.equal(mCountryCode, structure.mCountryCode)
+                    && Utils.equal(mPostalCode, structure.mPostalCode)
+                    && Utils.equal(mPeakPeriodStartTime, structure.mPeakPeriodStartTime)
+                    && Utils.equal(mPeakPeriodEndTime, structure.mPeakPeriodEndTime)
+                    && Utils.equal(mTimeZone, structure.mTimeZone)
+                    && Utils.equal(mEta, structure.mEta)
+                    && mRhrEnrollment == structure.mRhrEnrollment
+                    && Utils.equal(mWheres, structure.mWheres);
         } else {
             return false;
         }
     }
+
+    @Override
+    public int hashCode() {
+        int hashCode = mHashCode;
+        if (hashCode == 0) {
+            hashCode = Utils.hash(mStructureId, mThermostats, mSmokeCoAlarms, mCameras, mDevices,
+                    mAway, mName, mCountryCode, mPostalCode, mPeakPeriodStartTime,
+                    mPeakPeriodEndTime, mTimeZone, mEta, mRhrEnrollment, mWheres);
+            mHashCode = hashCode;
+        }
+        return hashCode;
+    }
+
+    /**
+     * Away states of a structure, see {@link #getAway()}.
+     */
+    public enum Away implements ApiEnums.Constant {
+        HOME("home"),
+        AWAY("away"),
+        AUTO_AWAY("auto-away"),
+        UNKNOWN(null);
+
+        private static final Map<String, Away> sByValue = ApiEnums.index(values());
+
+        private final String mValue;
+
+        Away(String value) {
+            mValue = value;
+        }
+
+        /**
+         * Returns the value of this state in the API, or null for {@link #UNKNOWN}.
+         *
+         * @return the value in the API.
+         */
+        @Override
+        public String getValue() {
+            return mValue;
+        }
+
+        /**
+         * Returns the constant for a value in the API.
+         *
+         * @param value the value in the API, may be null.
+         * @return the matching constant, {@link #UNKNOWN} for values added to the API later, or null
+         * if value is null.
+         */
+        public static Away fromValue(String value) {
+            return ApiEnums.fromValue(sByValue, value, UNKNOWN);
+        }
+    }
 }
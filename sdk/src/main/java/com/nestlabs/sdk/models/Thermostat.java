@@ -21,15 +21,20 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.Map;
 
 /**
  * Thermostat represents and contains all properties of a Nest Thermostat.
  */
 @JsonPropertyOrder(alphabetic = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@GenerateCodec
 public class Thermostat extends Device implements Parcelable {
     public static final String KEY_CAN_COOL = "can_cool";
     public static final String KEY_CAN_HEAT = "can_heat";
@@ -62,91 +67,94 @@ public class Thermostat extends Device implements Parcelable {
     public static final String KEY_LABEL = "label";
 
     @JsonProperty(KEY_CAN_COOL)
-    private boolean mCanCool;
+    boolean mCanCool;
 
     @JsonProperty(KEY_CAN_HEAT)
-    private boolean mCanHeat;
+    boolean mCanHeat;
 
     @JsonProperty(KEY_IS_USING_EMERGENCY_HEAT)
-    private boolean mIsUsingEmergencyHeat;
+    boolean mIsUsingEmergencyHeat;
 
     @JsonProperty(KEY_HAS_FAN)
-    private boolean mHasFan;
+    boolean mHasFan;
 
     @JsonProperty(KEY_FAN_TIMER_ACTIVE)
-    private boolean mFanTimerActive;
+    boolean mFanTimerActive;
 
     @JsonProperty(KEY_FAN_TIMER_TIMEOUT)
-    private String mFanTimerTimeout;
+    String mFanTimerTimeout;
 
     @JsonProperty(KEY_HAS_LEAF)
-    private boolean mHasLeaf;
+    boolean mHasLeaf;
 
     @JsonProperty(KEY_TEMP_SCALE)
-    private String mTemperatureScale;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mTemperatureScale;
 
     @JsonProperty(KEY_TARGET_TEMP_F)
-    private long mTargetTemperatureF;
+    long mTargetTemperatureF;
 
     @JsonProperty(KEY_TARGET_TEMP_C)
-    private double mTargetTemperatureC;
+    double mTargetTemperatureC;
 
     @JsonProperty(KEY_TARGET_TEMP_HIGH_F)
-    private long mTargetTemperatureHighF;
+    long mTargetTemperatureHighF;
 
     @JsonProperty(KEY_TARGET_TEMP_HIGH_C)
-    private double mTargetTemperatureHighC;
+    double mTargetTemperatureHighC;
 
     @JsonProperty(KEY_TARGET_TEMP_LOW_F)
-    private long mTargetTemperatureLowF;
+    long mTargetTemperatureLowF;
 
     @JsonProperty(KEY_TARGET_TEMP_LOW_C)
-    private double mTargetTemperatureLowC;
+    double mTargetTemperatureLowC;
 
     @JsonProperty(KEY_AWAY_TEMP_HIGH_F)
-    private long mAwayTemperatureHighF;
+    long mAwayTemperatureHighF;
 
     @JsonProperty(KEY_AWAY_TEMP_HIGH_C)
-    private double mAwayTemperatureHighC;
+    double mAwayTemperatureHighC;
 
     @JsonProperty(KEY_AWAY_TEMP_LOW_F)
-    private long mAwayTemperatureLowF;
+    long mAwayTemperatureLowF;
 
     @JsonProperty(KEY_AWAY_TEMP_LOW_C)
-    private double mAwayTemperatureLowC;
+    double mAwayTemperatureLowC;
 
     @JsonProperty(KEY_HVAC_MODE)
-    private String mHvacMode;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mHvacMode;
 
     @JsonProperty(KEY_AMBIENT_TEMP_F)
-    private long mAmbientTemperatureF;
+    long mAmbientTemperatureF;
 
     @JsonProperty(KEY_AMBIENT_TEMP_C)
-    private double mAmbientTemperatureC;
+    double mAmbientTemperatureC;
 
     @JsonProperty(KEY_HUMIDITY)
-    private long mHumidity;
+    long mHumidity;
 
     @JsonProperty(KEY_HVAC_STATE)
-    private String mHvacState;
+    @JsonDeserialize(using = StringPool.Deserializer.class)
+    String mHvacState;
 
     @JsonProperty(KEY_IS_LOCKED)
-    private boolean mIsLocked;
+    boolean mIsLocked;
 
     @JsonProperty(KEY_LOCKED_TEMP_MIN_F)
-    private String mLockedTempMinF;
+    String mLockedTempMinF;
 
     @JsonProperty(KEY_LOCKED_TEMP_MAX_F)
-    private String mLockedTempMaxF;
+    String mLockedTempMaxF;
 
     @JsonProperty(KEY_LOCKED_TEMP_MIN_C)
-    private String mLockedTempMinC;
+    String mLockedTempMinC;
 
     @JsonProperty(KEY_LOCKED_TEMP_MAX_C)
-    private String mLockedTempMaxC;
+    String mLockedTempMaxC;
 
     @JsonProperty(KEY_LABEL)
-    private String mLabel;
+    String mLabel;
 
     public Thermostat() {}
 
@@ -159,7 +167,7 @@ public class Thermostat extends Device implements Parcelable {
         mFanTimerActive = Utils.readBoolean(in);
         mFanTimerTimeout = in.readString();
         mHasLeaf = Utils.readBoolean(in);
-        mTemperatureScale = in.readString();
+        mTemperatureScale = StringPool.intern(in.readString());
         mTargetTemperatureF = in.readLong();
         mTargetTemperatureC = in.readDouble();
         mTargetTemperatureHighF = in.readLong();
@@ -170,11 +178,11 @@ public class Thermostat extends Device implements Parcelable {
         mAwayTemperatureHighC = in.readDouble();
         mAwayTemperatureLowF = in.readLong();
         mAwayTemperatureLowC = in.readDouble();
-        mHvacMode = in.readString();
+        mHvacMode = StringPool.intern(in.readString());
         mAmbientTemperatureF = in.readLong();
         mAmbientTemperatureC = in.readDouble();
         mHumidity = in.readLong();
-        mHvacState = in.readString();
+        mHvacState = StringPool.intern(in.readString());
         mIsLocked = Utils.readBoolean(in);
         mLockedTempMinF = in.readString();
         mLockedTempMaxF = in.readString();
@@ -195,6 +203,16 @@ public class Thermostat extends Device implements Parcelable {
         return mHvacState;
     }
 
+    /**
+     * Returns whether HVAC system is actively heating, cooling or is off as a {@link HvacState}.
+     *
+     * @return whether HVAC system is actively heating, cooling or is off, or null if it is not set.
+     */
+    @JsonIgnore
+    public HvacState getHvacStateType() {
+        return HvacState.fromValue(mHvacState);
+    }
+
     /**
      * Returns the humidity, in percent (%) format, measured at the device.
      *
@@ -434,6 +452,16 @@ public class Thermostat extends Device implements Parcelable {
         return mHvacMode;
     }
 
+    /**
+     * Returns the current operating mode of the thermostat as a {@link HvacMode}.
+     *
+     * @return the current operating mode of the thermostat, or null if it is not set.
+     */
+    @JsonIgnore
+    public HvacMode getHvacModeType() {
+        return HvacMode.fromValue(mHvacMode);
+    }
+
     /**
      * Returns true if the thermostat is locked.
      *
@@ -518,14 +546,51 @@ public class Thermostat extends Device implements Parcelable {
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == this) {
-            return true;
-        } else if (obj instanceof Thermostat) {
-            Thermostat t = (Thermostat) obj;
-            return t.toString().equals(this.toString());
-        } else {
+        if (!super.equals(obj)) {
             return false;
         }
+        Thermostat t = (Thermostat) obj;
+        return mCanCool == t.mCanCool
+                && mCanHeat == t.mCanHeat
+                && mIsUsingEmergencyHeat == t.mIsUsingEmergencyHeat
+                && mHasFan == t.mHasFan
+                && mFanTimerActive == t.mFanTimerActive
+                && Utils.equal(mFanTimerTimeout, t.mFanTimerTimeout)
+                && mHasLeaf == t.mHasLeaf
+                && Utils.equal(mTemperatureScale, t.mTemperatureScale)
+                && mTargetTemperatureF == t.mTargetTemperatureF
+                && Double.compare(mTargetTemperatureC, t.mTargetTemperatureC) == 0
+                && mTargetTemperatureHighF == t.mTargetTemperatureHighF
+                && Double.compare(mTargetTemperatureHighC, t.mTargetTemperatureHighC) == 0
+                && mTargetTemperatureLowF == t.mTargetTemperatureLowF
+                && Double.compare(mTargetTemperatureLowC, t.mTargetTemperatureLowC) == 0
+                && mAwayTemperatureHighF == t.mAwayTemperatureHighF
+                && Double.compare(mAwayTemperatureHighC, t.mAwayTemperatureHighC) == 0
+                && mAwayTemperatureLowF == t.mAwayTemperatureLowF
+                && Double.compare(mAwayTemperatureLowC, t.mAwayTemperatureLowC) == 0
+                && Utils.equal(mHvacMode, t.mHvacMode)
+                && mAmbientTemperatureF == t.mAmbientTemperatureF
+                && Double.compare(mAmbientTemperatureC, t.mAmbientTemperatureC) == 0
+                && mHumidity == t.mHumidity
+                && Utils.equal(mHvacState, t.mHvacState)
+                && mIsLocked == t.mIsLocked
+                && Utils.equal(mLockedTempMinF, t.mLockedTempMinF)
+                && Utils.equal(mLockedTempMaxF, t.mLockedTempMaxF)
+                && Utils.equal(mLockedTempMinC, t.mLockedTempMinC)
+                && Utils.equal(mLockedTempMaxC, t.mLockedTempMaxC)
+                && Utils.equal(mLabel, t.mLabel);
+    }
+
+    @Override
+    int computeHashCode() {
+        return 31 * super.computeHashCode() + Utils.hash(mCanCool, mCanHeat,
+                mIsUsingEmergencyHeat, mHasFan, mFanTimerActive, mFanTimerTimeout, mHasLeaf,
+                mTemperatureScale, mTargetTemperatureF, mTargetTemperatureC,
+                mTargetTemperatureHighF, mTargetTemperatureHighC, mTargetTemperatureLowF,
+                mTargetTemperatureLowC, mAwayTemperatureHighF, mAwayTemperatureHighC,
+                mAwayTemperatureLowF, mAwayTemperatureLowC, mHvacMode, mAmbientTemperatureF,
+                mAmbientTemperatureC, mHumidity, mHvacState, mIsLocked, mLockedTempMinF,
+                mLockedTempMaxF, mLockedTempMinC, mLockedTempMaxC, mLabel);
     }
 
     @Override
@@ -561,4 +626,84 @@ public class Thermostat extends Device implements Parcelable {
         dest.writeString(mLockedTempMaxC);
         dest.writeString(mLabel);
     }
+
+    /**
+     * Operating modes of a thermostat, see {@link #getHvacMode()}.
+     */
+    public enum HvacMode implements ApiEnums.Constant {
+        HEAT("heat"),
+        COOL("cool"),
+        HEAT_COOL("heat-cool"),
+        ECO("eco"),
+        OFF("off"),
+        UNKNOWN(null);
+
+        private static final Map<String, HvacMode> sByValue = ApiEnums.index(values());
+
+        private final String mValue;
+
+        HvacMode(String value) {
+            mValue = value;
+        }
+
+        /**
+         * Returns the value of this mode in the API, or null for {@link #UNKNOWN}.
+         *
+         * @return the value in the API.
+         */
+        @Override
+        public String getValue() {
+            return mValue;
+        }
+
+        /**
+         * Returns the constant for a value in the API.
+         *
+         * @param value the value in the API, may be null.
+         * @return the matching constant, {@link #UNKNOWN} for values added to the API later, or null
+         * if value is null.
+         */
+        public static HvacMode fromValue(String value) {
+            return ApiEnums.fromValue(sByValue, value, UNKNOWN);
+        }
+    }
+
+    /**
+     * Activity of the HVAC system, see {@link #getHvacState()}.
+     */
+    public enum HvacState implements ApiEnums.Constant {
+        HEATING("heating"),
+        COOLING("cooling"),
+        OFF("off"),
+        UNKNOWN(null);
+
+        private static final Map<String, HvacState> sByValue = ApiEnums.index(values());
+
+        private final String mValue;
+
+        HvacState(String value) {
+            mValue = value;
+        }
+
+        /**
+         * Returns the value of this state in the API, or null for {@link #UNKNOWN}.
+         *
+         * @return the value in the API.
+         */
+        @Override
+        public String getValue() {
+            return mValue;
+        }
+
+        /**
+         * Returns the constant for a value in the API.
+         *
+         * @param value the value in the API, may be null.
+         * @return the matching constant, {@link #UNKNOWN} for values added to the API later, or null
+         * if value is null.
+         */
+        public static HvacState fromValue(String value) {
+            return ApiEnums.fromValue(sByValue, value, UNKNOWN);
+        }
+    }
 }
@@ -21,15 +21,22 @@ import android.os.Parcel;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
 /**
  * Provides utilities methods for various common operations within this library.
  */
 public final class Utils {
 
     private static final ObjectMapper sMapper = new ObjectMapper();
+    private static final JsonFactory sFactory = sMapper.getFactory();
 
     /**
      * Writes a boolean value to a Parcel.
@@ -53,19 +60,51 @@ public final class Utils {
 
     /**
      * Returns the object in a JSON string representation if possible. If this fails, it will return
-     * the superclass' string representation of the object.
+     * the superclass' string representation of the object. Models are written by their
+     * {@link ModelCodec} if one was generated.
      *
      * @param obj the object to convert.
      * @return a string representation of the object.
      */
+    @SuppressWarnings("unchecked")
     static String toString(Object obj) {
+        ModelCodec<Object> codec = (ModelCodec<Object>) ModelCodecs.get(obj.getClass());
         try {
-            return sMapper.writeValueAsString(obj);
+            if (codec == null) return sMapper.writeValueAsString(obj);
+
+            StringWriter writer = new StringWriter();
+            JsonGenerator generator = sFactory.createGenerator(writer);
+            codec.write(generator, obj);
+            generator.close();
+            return writer.toString();
         } catch (JsonProcessingException e) {
             return obj.getClass().getSuperclass().toString();
+        } catch (IOException e) {
+            return obj.getClass().getSuperclass().toString();
         }
     }
 
+    /**
+     * Returns whether two objects are equal, where either may be null.
+     *
+     * @param a an object, or null.
+     * @param b an object, or null.
+     * @return true if both are null or a equals b, false otherwise.
+     */
+    public static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Returns a hash code combining the hash codes of the provided values.
+     *
+     * @param values the values to hash, any of which may be null.
+     * @return the combined hash code of the values.
+     */
+    public static int hash(Object... values) {
+        return Arrays.hashCode(values);
+    }
+
     /**
      * Returns whether any of the provided Strings are empty (null or zero-length).
      *
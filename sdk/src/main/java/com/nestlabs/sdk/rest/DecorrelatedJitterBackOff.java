@@ -0,0 +1,80 @@
+package com.nestlabs.sdk.rest;
+
+import java.util.Random;
+
+/**
+ * Backs off with decorrelated jitter: every interval is picked at random between the initial
+ * delay and three times the previous interval, capped at the maximum delay. Clients that lost
+ * their connection at the same time spread their reconnects out instead of retrying in lockstep.
+ * This is the default of {@link RestStreamClient.Builder#setBackOff(BackOff)}.
+ *
+ * Keeps the previous interval, so every client needs an instance of its own.
+ */
+public final class DecorrelatedJitterBackOff implements BackOff {
+
+    private static final long DEFAULT_DELAY_MILLIS = 60000;
+    private static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
+
+    private final long maxDelayMillis;
+    private final long initialDelayMillis;
+    private final Random random;
+    private long lastDelay;
+
+    private DecorrelatedJitterBackOff(Builder builder) {
+        maxDelayMillis = builder.getMaxDelayMillis();
+        initialDelayMillis = builder.getInitialDelayMillis();
+        random = builder.getRandom();
+        lastDelay = initialDelayMillis;
+    }
+
+    @Override
+    public long nextInterval() {
+        long upper = Math.max(initialDelayMillis, Math.min(maxDelayMillis, lastDelay * 3));
+        long delay = initialDelayMillis + (long) (random.nextDouble() * (upper - initialDelayMillis));
+
+        lastDelay = Math.min(maxDelayMillis, delay);
+        return lastDelay;
+    }
+
+    @Override
+    public void reset() {
+        lastDelay = initialDelayMillis;
+    }
+
+    public static class Builder {
+        private long maxDelayMillis = DEFAULT_DELAY_MILLIS;
+        private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+        private Random random = new Random();
+
+        long getMaxDelayMillis() {
+            return maxDelayMillis;
+        }
+
+        public Builder setMaxDelayMillis(long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        long getInitialDelayMillis() {
+            return initialDelayMillis;
+        }
+
+        public Builder setInitialDelayMillis(long initialDelayMillis) {
+            this.initialDelayMillis = initialDelayMillis;
+            return this;
+        }
+
+        Random getRandom() {
+            return random;
+        }
+
+        Builder setRandom(Random random) {
+            this.random = random;
+            return this;
+        }
+
+        public DecorrelatedJitterBackOff build() {
+            return new DecorrelatedJitterBackOff(this);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.nestlabs.sdk.rest;
+
+import com.nestlabs.sdk.rest.parsers.EventParser;
+import com.nestlabs.sdk.rest.parsers.Parser;
+import com.nestlabs.sdk.rest.parsers.ParserException;
+import com.nestlabs.sdk.rest.parsers.StreamingEvent;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * Splits a text/event-stream into frames on the blank-line terminator. Partial frames are kept as
+ * bytes in a reusable buffer between reads, and each scan only looks at bytes it has not seen yet,
+ * so large events are decoded in linear time.
+ */
+final class EventStreamDecoder {
+
+    private static final ByteString FRAME_TERMINATOR = ByteString.encodeUtf8("\n\n");
+    private static final ByteString EVENT_FIELD = ByteString.encodeUtf8("event:");
+    private static final ByteString DATA_FIELD = ByteString.encodeUtf8("data:");
+    private static final ByteString ERROR_PREFIX = ByteString.encodeUtf8("{\"error\":");
+    private static final String EVENT_ERROR = "error";
+    private static final String[] KNOWN_EVENTS = {"put", "patch", "keep-alive", "auth_revoked", EVENT_ERROR};
+    private static final ByteString[] KNOWN_EVENT_BYTES = new ByteString[KNOWN_EVENTS.length];
+
+    static {
+        for (int i = 0; i < KNOWN_EVENTS.length; i++) {
+            KNOWN_EVENT_BYTES[i] = ByteString.encodeUtf8(KNOWN_EVENTS[i]);
+        }
+    }
+
+    private final Buffer pending = new Buffer();
+    private final Buffer frame = new Buffer();
+    private final Buffer payload = new Buffer();
+    private long scanFrom = 0;
+
+    long read(BufferedSource source, long byteCount) throws IOException {
+        return source.read(pending, byteCount);
+    }
+
+    /**
+     * Copies the last bytes read, which have not been decoded yet, into the sink.
+     */
+    void copyLastRead(long byteCount, Buffer sink) {
+        pending.copyTo(sink, pending.size() - byteCount, byteCount);
+    }
+
+    /**
+     * Moves the next complete frame, if any, into the frame buffer.
+     *
+     * @return true if a frame is ready to be dispatched.
+     */
+    boolean nextFrame() throws IOException {
+        long end = pending.indexOf(FRAME_TERMINATOR, scanFrom);
+        if (end == -1) {
+            //Resume the scan where it stopped, allowing for a terminator split across reads
+            scanFrom = Math.max(0, pending.size() - (FRAME_TERMINATOR.size() - 1));
+            return false;
+        }
+
+        frame.clear();
+        frame.write(pending, end);
+        pending.skip(FRAME_TERMINATOR.size());
+        scanFrom = 0;
+        return true;
+    }
+
+    /**
+     * Moves the unterminated tail of an exhausted stream into the frame buffer.
+     *
+     * @return true if a frame is ready to be dispatched.
+     */
+    boolean finish() {
+        scanFrom = 0;
+        if (pending.size() == 0) return false;
+
+        frame.clear();
+        frame.write(pending, pending.size());
+        return true;
+    }
+
+    /**
+     * Hands the current frame to the parser. An {@link EventParser} receives decoded
+     * {@link StreamingEvent}s, any other {@link Parser} receives the raw frame text.
+     */
+    void dispatch(Parser parser) throws ParserException, IOException {
+        if (!(parser instanceof EventParser)) {
+            if (frame.size() > 0) parser.parse(frame.readUtf8());
+            return;
+        }
+
+        EventParser eventParser = (EventParser) parser;
+        String eventType = null;
+        boolean hasData = false;
+        payload.clear();
+
+        while (frame.size() > 0) {
+            long eol = frame.indexOf((byte) '\n');
+            long length = eol == -1 ? frame.size() : eol;
+
+            if (length >= EVENT_FIELD.size() && frame.rangeEquals(0, EVENT_FIELD)) {
+                frame.skip(EVENT_FIELD.size());
+                eventType = readEventType(length - EVENT_FIELD.size() - skipSpace());
+            } else if (length >= DATA_FIELD.size() && frame.rangeEquals(0, DATA_FIELD)) {
+                frame.skip(DATA_FIELD.size());
+                if (hasData) payload.writeByte('\n');
+                payload.write(frame, length - DATA_FIELD.size() - skipSpace());
+                hasData = true;
+            } else if (length >= ERROR_PREFIX.size() && frame.rangeEquals(0, ERROR_PREFIX)) {
+                ByteString error = frame.readByteString(length);
+                eventParser.parseEvent(StreamingEvent.fromBytes(EVENT_ERROR, error));
+            } else {
+                frame.skip(length);
+            }
+
+            if (eol != -1) frame.skip(1);
+        }
+
+        if (eventType != null && hasData) {
+            eventParser.parseEvent(StreamingEvent.fromBytes(eventType, payload.readByteString()));
+        }
+    }
+
+    private long skipSpace() throws IOException {
+        if (frame.size() > 0 && frame.getByte(0) == ' ') {
+            frame.skip(1);
+            return 1;
+        }
+        return 0;
+    }
+
+    private String readEventType(long length) throws IOException {
+        for (int i = 0; i < KNOWN_EVENT_BYTES.length; i++) {
+            ByteString known = KNOWN_EVENT_BYTES[i];
+            if (length == known.size() && frame.rangeEquals(0, known)) {
+                frame.skip(length);
+                return KNOWN_EVENTS[i];
+            }
+        }
+        return frame.readUtf8(length);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nestlabs.sdk.rest;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RetryScheduler} backed by a {@link ScheduledExecutorService}.
+ */
+public final class ExecutorRetryScheduler implements RetryScheduler {
+
+    private static ExecutorRetryScheduler sDefault;
+
+    private final ScheduledExecutorService executor;
+
+    public ExecutorRetryScheduler(@NonNull final ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the scheduler shared by all clients that were not given one, backed by a single
+     * daemon thread that is started on first use.
+     */
+    public static synchronized ExecutorRetryScheduler getDefault() {
+        if (sDefault == null) {
+            sDefault = new ExecutorRetryScheduler(new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            Thread thread = new Thread(runnable, "wwn-retry");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }));
+        }
+        return sDefault;
+    }
+
+    @Override
+    public Future<?> schedule(Runnable task, long delayMillis) {
+        return executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -4,7 +4,7 @@ package com.nestlabs.sdk.rest;
  * Exponential {@link BackOff} implementation that starts with initial delay and follows Fibonacci sequence
  * up to maximum delay.
  */
-final class FibonacciBackOff implements BackOff {
+public final class FibonacciBackOff implements BackOff {
 
     private static final long DEFAULT_DELAY_MILLIS = 60000;
     private static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
@@ -2,9 +2,12 @@ package com.nestlabs.sdk.rest;
 
 import android.support.annotation.NonNull;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.nestlabs.sdk.Callback;
 import com.nestlabs.sdk.NestException;
 import com.nestlabs.sdk.ServerException;
+import com.nestlabs.sdk.metrics.Metrics;
+import com.nestlabs.sdk.metrics.Timer;
 import com.nestlabs.sdk.rest.parsers.Parser;
 import com.nestlabs.sdk.rest.parsers.ParserException;
 
@@ -12,7 +15,10 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import okhttp3.Call;
 import okhttp3.MediaType;
@@ -28,6 +34,12 @@ public class RestClient {
     private String token = null;
     private final Parser parser;
     private final OkHttpClient httpClient;
+    private final Metrics metrics;
+    //Indexed by status code, each created on the first response with its code
+    private final AtomicReferenceArray<Timer> writeTimers = new AtomicReferenceArray<>(600);
+    private final Timer failedWrites;
+    private final WriteDebouncer debouncer = new WriteDebouncer(this);
+    private volatile boolean debounceWrites;
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     private static final Callback callbackStub = new Callback() {
         @Override
@@ -37,11 +49,36 @@ public class RestClient {
     };
 
     public RestClient(@NonNull OkHttpClient httpClient, @NonNull final RestConfig restConfig, @NonNull final Parser parser) {
+        this(httpClient, restConfig, parser, Metrics.getDefault());
+    }
+
+    /**
+     * Creates a RestClient that records the latency of writes by status code into the given
+     * {@link Metrics}.
+     */
+    public RestClient(@NonNull OkHttpClient httpClient, @NonNull final RestConfig restConfig,
+                      @NonNull final Parser parser, @NonNull final Metrics metrics) {
         this.httpClient = httpClient;
         this.parser = parser;
+        this.metrics = metrics;
+        this.failedWrites = metrics.timer(Metrics.REST_WRITE_FAILED);
         baseApiUrl = restConfig.getUrl();
     }
 
+    private Timer writeTimer(int code) {
+        if (code < 0 || code >= writeTimers.length()) {
+            return metrics.timer(Metrics.REST_WRITE + code);
+        }
+
+        //The registry returns the same timer for a name, so racing lookups store the same one
+        Timer timer = writeTimers.get(code);
+        if (timer == null) {
+            timer = metrics.timer(Metrics.REST_WRITE + code);
+            writeTimers.set(code, timer);
+        }
+        return timer;
+    }
+
     public void setToken(String token) {
         if (token == null || token.length() == 0) {
             throw new MissingTokenException();
@@ -49,23 +86,47 @@ public class RestClient {
         this.token = token;
     }
 
+    /**
+     * Turns debouncing of writes on or off. While it is on, at most one write per object and
+     * field is in flight. Writes made meanwhile are held and merged per object, and only the
+     * newest value of each field is sent once the write in flight completes. The callbacks of the
+     * writes whose fields were all replaced fail with a
+     * {@link com.nestlabs.sdk.CoalescedWriteException}. Writes held when it is turned off are
+     * still sent. Off by default.
+     */
+    public void setDebounceWrites(boolean debounce) {
+        debounceWrites = debounce;
+    }
+
     public void writeLong(String path, String field, long value, Callback callback) {
-        write(path, field, String.format(Locale.US, "%d", value), callback);
+        write(path).set(field, value).commit(callback);
     }
 
     public void writeDouble(String path, String field, double value, Callback callback) {
-        write(path, field, String.format(Locale.US, "%f", value), callback);
+        write(path).set(field, value).commit(callback);
     }
 
     public void writeString(String path, String field, String value, Callback callback) {
-        write(path, field, "\"" + value + "\"", callback);
+        write(path).set(field, value).commit(callback);
     }
 
     public void writeBoolean(String path, String field, Boolean value, Callback callback) {
-        write(path, field, value.toString(), callback);
+        write(path).set(field, (boolean) value).commit(callback);
     }
 
-    private void write(final String path, final String field, final String value, final Callback callback) {
+    /**
+     * Starts a write of one or more fields of the object at the path. All the fields are sent in
+     * a single request when the write is committed, so they are applied together, e.g. both ends
+     * of a temperature range.
+     *
+     * @param path the path of the object to write to.
+     * @return a {@link Write} to add the fields to.
+     */
+    public Write write(@NonNull String path) {
+        return new Write(path);
+    }
+
+    void write(final String path, final String body, final Callback callback) {
         if (token == null || token.length() == 0) {
             throw new MissingTokenException();
         }
@@ -73,21 +134,23 @@ public class RestClient {
         final Callback internalCallback = callback == null ? callbackStub : callback;
 
         String apiUrl = redirectApiUrl == null ? baseApiUrl : redirectApiUrl;
-        String body = "{\"" + field + "\": " + value + "}";
         Request request = new Request.Builder()
                 .url(apiUrl + path)
                 .addHeader("Accept", "application/json")
                 .addHeader("Authorization", "Bearer " + token)
                 .put(RequestBody.create(JSON, body))
                 .build();
+        final long start = System.nanoTime();
 
         httpClient.newCall(request).enqueue(new okhttp3.Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
+                failedWrites.recordSince(start);
+
                 //Reset redirect url if WWN host goes offline
                 if (e instanceof UnknownHostException) {
                     redirectApiUrl = null;
-                    write(path, field, value, callback);
+                    write(path, body, callback);
                     return;
                 }
                 internalCallback.onFailure(new NestException("Write request failed.", e));
@@ -108,12 +171,13 @@ public class RestClient {
                     return true;
                 }
 
-                write(path, field, value, callback);
+                write(path, body, callback);
                 return true;
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
+                writeTimer(response.code()).recordSince(start);
                 if (handleRedirect(response)) return; //Redirect if 307
 
                 if (response.code() < 200 || response.code() >= 500) {
@@ -130,4 +194,73 @@ public class RestClient {
             }
         });
     }
+
+    /**
+     * The fields of a write to a single object, sent as one request by {@link #commit(Callback)}.
+     * Setting a field again replaces its value.
+     */
+    public final class Write {
+        private final String path;
+        private final Map<String, String> values = new LinkedHashMap<>();
+
+        private Write(String path) {
+            this.path = path;
+        }
+
+        public Write set(@NonNull String field, long value) {
+            values.put(field, String.format(Locale.US, "%d", value));
+            return this;
+        }
+
+        public Write set(@NonNull String field, double value) {
+            values.put(field, String.format(Locale.US, "%f", value));
+            return this;
+        }
+
+        /**
+         * Sets a string field, or writes JSON {@code null} to it if the value is null.
+         */
+        public Write set(@NonNull String field, String value) {
+            values.put(field, value == null ? "null" : quote(value));
+            return this;
+        }
+
+        public Write set(@NonNull String field, boolean value) {
+            values.put(field, Boolean.toString(value));
+            return this;
+        }
+
+        /**
+         * Sends all the fields in a single request.
+         *
+         * @param callback a {@link Callback} to receive whether the write was successful.
+         * @throws IllegalStateException if no field was set.
+         */
+        public void commit(Callback callback) {
+            if (values.isEmpty()) throw new IllegalStateException("No field to write.");
+
+            if (debounceWrites) {
+                debouncer.write(path, new LinkedHashMap<>(values), callback);
+            } else {
+                write(path, body(values), callback);
+            }
+        }
+    }
+
+    /**
+     * Returns the JSON object of the fields, from the JSON value of each field.
+     */
+    static String body(Map<String, String> values) {
+        StringBuilder body = new StringBuilder("{");
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            if (body.length() > 1) body.append(", ");
+            body.append(quote(value.getKey())).append(": ").append(value.getValue());
+        }
+        return body.append('}').toString();
+    }
+
+    //Quotes and backslashes in names and values must not end the string early
+    private static String quote(String value) {
+        return '"' + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + '"';
+    }
 }
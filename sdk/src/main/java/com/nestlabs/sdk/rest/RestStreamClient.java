@@ -5,36 +5,106 @@ import android.support.annotation.NonNull;
 import com.nestlabs.sdk.EventHandler;
 import com.nestlabs.sdk.ExceptionHandler;
 import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.metrics.Counter;
+import com.nestlabs.sdk.metrics.Metrics;
+import com.nestlabs.sdk.metrics.Timer;
+import com.nestlabs.sdk.rest.parsers.CoalescingParser;
+import com.nestlabs.sdk.rest.parsers.EventParser;
 import com.nestlabs.sdk.rest.parsers.Parser;
 import com.nestlabs.sdk.rest.parsers.ParserException;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okio.Buffer;
+import okio.BufferedSource;
 
 public class RestStreamClient implements StreamingClient {
 
     private static final Long DEFAULT_BYTE_COUNT = 2048L;
+    private static final long DEFAULT_SILENCE_TIMEOUT = 45000;
 
     private String token = null;
-    private Boolean started = false;
+    private volatile Boolean started = false;
+    //Bumped by every start(), readers and retries of an earlier start() must not go on
+    private final AtomicInteger generation = new AtomicInteger();
     private final String apiUrl;
     private final Parser parser;
     private final OkHttpClient httpClient;
     private final RetryExecutor retryExecutor;
     private final ExceptionHandler exceptionHandler;
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ExecutorService executorService;
+    private final RetryScheduler scheduler;
+    private final long silenceTimeout;
+    private final EventHandler<StreamHealth> healthHandler;
+    private final StreamRecorder recorder;
+    private final CoalescingParser coalescer;
+    private final Counter bytesRead;
+    private final Counter eventsRead;
+    private final Counter reconnects;
+    private final Counter parseFailures;
+    private final Counter dispatchFailures;
+    private final Timer backOffDelays;
+    private final Object healthLock = new Object();
+    private StreamHealth health = StreamHealth.DISCONNECTED;
+    //Transitions not handed to the handler yet, and whether a thread is handing them over
+    private final ArrayDeque<StreamHealth> healthUpdates = new ArrayDeque<>();
+    private boolean reportingHealth = false;
+    private final AtomicReference<Call> call = new AtomicReference<>();
 
     private RestStreamClient(Builder builder) {
-        this.parser = builder.getParser();
         this.httpClient = builder.getHttpClient();
         this.exceptionHandler = builder.getExceptionHandler();
         this.apiUrl = builder.getRestConfig().getUrl();
-        this.retryExecutor = new RetryExecutor(builder.getBackOff());
+        this.scheduler = builder.getRetryScheduler();
+        this.retryExecutor = new RetryExecutor(builder.getBackOff(), scheduler);
+        this.silenceTimeout = builder.getSilenceTimeout();
+        this.healthHandler = builder.getStreamHealthHandler();
+        this.recorder = builder.getRecorder();
+
+        //The retry scheduler times the window like the watchdog, but is shared by every client,
+        //so held puts are dispatched on a thread of this client that stops when idle
+        Parser parser = builder.getParser();
+        if (builder.getCoalescingWindow() > 0) {
+            ThreadPoolExecutor releaser = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            Thread thread = new Thread(runnable, "wwn-coalesce");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            this.coalescer = new CoalescingParser((EventParser) parser,
+                    builder.getCoalescingWindow(), scheduler, releaser, exceptionHandler);
+            this.parser = coalescer;
+        } else {
+            this.coalescer = null;
+            this.parser = parser;
+        }
+
+        Metrics metrics = builder.getMetrics();
+        this.bytesRead = metrics.counter(Metrics.STREAM_BYTES);
+        this.eventsRead = metrics.counter(Metrics.STREAM_EVENTS);
+        this.reconnects = metrics.counter(Metrics.STREAM_RECONNECTS);
+        this.parseFailures = metrics.counter(Metrics.STREAM_PARSE_FAILURES);
+        this.dispatchFailures = metrics.counter(Metrics.STREAM_DISPATCH_FAILURES);
+        this.backOffDelays = metrics.timer(Metrics.STREAM_BACKOFF);
+        this.executorService = builder.getExecutorService() != null
+                ? builder.getExecutorService() : Executors.newSingleThreadExecutor();
     }
 
     @Override
@@ -45,8 +115,9 @@ public class RestStreamClient implements StreamingClient {
         }
 
         token = accessToken;
-        executorService.execute(new RestStreamClient.Reader());
+        int current = generation.incrementAndGet();
         started = true;
+        executorService.execute(new RestStreamClient.Reader(current));
         return true;
     }
 
@@ -55,20 +126,131 @@ public class RestStreamClient implements StreamingClient {
         started = false;
         retryExecutor.reset();
         retryExecutor.cancel();
-        httpClient.dispatcher().cancelAll();
+
+        //Only cancel our own call, the http client may be shared with other streams
+        Call current = call.get();
+        if (current != null) current.cancel();
+        if (coalescer != null) coalescer.discard();
+        setHealth(StreamHealth.DISCONNECTED);
+    }
+
+    /**
+     * Returns the current {@link StreamHealth} of the stream.
+     */
+    public StreamHealth getHealth() {
+        synchronized (healthLock) {
+            return health;
+        }
+    }
+
+    //Only transitions are reported. They are queued under the lock and handed to the handler
+    //outside of it, by one thread at a time, so they arrive in order.
+    private void setHealth(StreamHealth health) {
+        synchronized (healthLock) {
+            if (this.health == health) return;
+            this.health = health;
+            if (healthHandler == null) return;
+
+            healthUpdates.add(health);
+            if (reportingHealth) return;
+            reportingHealth = true;
+        }
+
+        while (true) {
+            StreamHealth next;
+            synchronized (healthLock) {
+                next = healthUpdates.poll();
+                if (next == null) {
+                    reportingHealth = false;
+                    return;
+                }
+            }
+
+            try {
+                healthHandler.handle(next);
+            } catch (RuntimeException ex) {
+                //A failing handler must not hold up the transitions after it
+                exceptionHandler.handle(new NestException(ex));
+            }
+        }
+    }
+
+    private boolean isCurrent(int generation) {
+        return started && this.generation.get() == generation;
+    }
+
+    //start() refuses to run while started, so retries open the new connection directly
+    private void reconnect(int generation) {
+        if (isCurrent(generation)) {
+            reconnects.increment();
+            executorService.execute(new RestStreamClient.Reader(generation));
+        }
     }
 
     private class Reader implements Runnable {
 
-        private String accumulator = "";
-        private String segment(String buf) {
-            if (buf.endsWith("\n") || buf.endsWith("}")) {
-                String msg = accumulator + buf;
-                accumulator = "";
-                return msg;
-            } else accumulator = accumulator + buf;
+        private final int generation;
+        private final EventStreamDecoder decoder = new EventStreamDecoder();
+        private final Buffer recorded = new Buffer();
+        private boolean recording = recorder != null;
+        private volatile Call readerCall;
+        private volatile long lastFrameNanos;
+        private volatile boolean done;
+        private volatile boolean stale;
+        private volatile Future<?> watchdog;
 
-            return null;
+        Reader(int generation) {
+            this.generation = generation;
+        }
+
+        private void watch(long delayMillis) {
+            watchdog = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    checkSilence();
+                }
+            }, delayMillis);
+        }
+
+        //Half-open connections never fail a read on their own, so tear them down when silent
+        private void checkSilence() {
+            if (done) return;
+
+            long silent = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFrameNanos);
+            if (silent < silenceTimeout) {
+                watch(silenceTimeout - silent);
+                return;
+            }
+
+            stale = true;
+            setHealth(StreamHealth.STALE);
+            Call current = readerCall;
+            if (current != null) current.cancel();
+        }
+
+        //A failing capture is reported once and dropped, the stream itself keeps going
+        private void record(long byteCount) {
+            try {
+                decoder.copyLastRead(byteCount, recorded);
+                recorder.record(recorded);
+            } catch (IOException ex) {
+                recording = false;
+                recorded.clear();
+                exceptionHandler.handle(new NestException("Recording the stream failed.", ex));
+            }
+        }
+
+        private void dispatch() {
+            try {
+                decoder.dispatch(parser);
+            } catch (ParserException ex) {
+                parseFailures.increment();
+                exceptionHandler.handle(ex);
+            } catch (Exception ex) {
+                //notify client and ignore downstream exceptions
+                dispatchFailures.increment();
+                exceptionHandler.handle(new NestException(ex));
+            }
         }
 
         @Override
@@ -80,38 +262,59 @@ public class RestStreamClient implements StreamingClient {
 
             Response response = null;
             try {
-                response = httpClient.newCall(request).execute();
-
-                Buffer buffer = new Buffer();
-                while (!response.body().source().exhausted()) {
-                    long count = response.body().source().read(buffer, DEFAULT_BYTE_COUNT);
-                    if (count > 0) {
-                        String msg = segment(buffer.readUtf8());
-                        if (msg != null) {
-                            try {
-                                parser.parse(msg);
-                            } catch (ParserException ex) {
-                                exceptionHandler.handle(ex);
-                            } catch (Exception ex) {
-                                //notify client and ignore downstream exceptions
-                                exceptionHandler.handle(new NestException(ex));
+                readerCall = httpClient.newCall(request);
+                call.set(readerCall);
+                if (!isCurrent(generation)) return;
+                setHealth(StreamHealth.CONNECTING);
+                response = readerCall.execute();
+
+                lastFrameNanos = System.nanoTime();
+                if (silenceTimeout > 0) watch(silenceTimeout);
+
+                BufferedSource source = response.body().source();
+                boolean receiving = false;
+                while (!source.exhausted()) {
+                    long read = decoder.read(source, DEFAULT_BYTE_COUNT);
+                    if (read > 0) {
+                        bytesRead.add(read);
+                        if (recording) record(read);
+                        while (decoder.nextFrame()) {
+                            //Every frame counts as a sign of life, keep-alives included
+                            lastFrameNanos = System.nanoTime();
+                            eventsRead.increment();
+
+                            //The stream is healthy again once data comes through
+                            if (!receiving) {
+                                retryExecutor.reset();
+                                setHealth(StreamHealth.CONNECTED);
                             }
+                            receiving = true;
+                            dispatch();
                         }
                     }
                 }
+                if (decoder.finish()) dispatch();
             } catch (Exception ex) {
-                exceptionHandler.handle(new NestException(ex));
+                //A stale connection was torn down on purpose, the reconnect below is enough
+                if (!stale) exceptionHandler.handle(new NestException(ex));
             } finally {
+                done = true;
+                Future<?> pending = watchdog;
+                if (pending != null) pending.cancel(false);
 
                 if (response != null) response.body().close();
+                call.compareAndSet(readerCall, null);
 
-                if (started) {
-                    retryExecutor.schedule(new EventHandler<String>() {
+                //A reader of an earlier start() leaves the health and retries to the new one
+                if (isCurrent(generation)) {
+                    setHealth(StreamHealth.DISCONNECTED);
+                    long delay = retryExecutor.schedule(new EventHandler<Integer>() {
                         @Override
-                        public void handle(String accessToken) {
-                            RestStreamClient.this.start(accessToken);
+                        public void handle(Integer generation) {
+                            reconnect(generation);
                         }
-                    }, RestStreamClient.this.token);
+                    }, generation);
+                    backOffDelays.record(delay, TimeUnit.MILLISECONDS);
                 }
             }
         }
@@ -121,8 +324,15 @@ public class RestStreamClient implements StreamingClient {
         private final Parser parser;
         private final RestConfig restConfig;
         private final OkHttpClient httpClient;
-        private BackOff backOff = new FibonacciBackOff.Builder().build();
+        private BackOff backOff = new DecorrelatedJitterBackOff.Builder().build();
+        private RetryScheduler retryScheduler;
         private ExceptionHandler exceptionHandler;
+        private ExecutorService executorService;
+        private long silenceTimeout = DEFAULT_SILENCE_TIMEOUT;
+        private EventHandler<StreamHealth> streamHealthHandler;
+        private Metrics metrics;
+        private StreamRecorder recorder;
+        private long coalescingWindow;
 
         Parser getParser() {
             return parser;
@@ -140,11 +350,29 @@ public class RestStreamClient implements StreamingClient {
             return backOff;
         }
 
+        /**
+         * Sets how long to wait before reconnecting. Defaults to a
+         * {@link DecorrelatedJitterBackOff}, a {@link FibonacciBackOff} retries on a fixed
+         * schedule instead.
+         */
         public Builder setBackOff(@NonNull final BackOff backOff) {
             this.backOff = backOff;
             return this;
         }
 
+        RetryScheduler getRetryScheduler() {
+            return retryScheduler != null ? retryScheduler : ExecutorRetryScheduler.getDefault();
+        }
+
+        /**
+         * Sets the scheduler for reconnect attempts. By default all clients share
+         * {@link ExecutorRetryScheduler#getDefault()}.
+         */
+        public Builder setRetryScheduler(@NonNull final RetryScheduler retryScheduler) {
+            this.retryScheduler = retryScheduler;
+            return this;
+        }
+
         ExceptionHandler getExceptionHandler() {
             return exceptionHandler;
         }
@@ -154,6 +382,88 @@ public class RestStreamClient implements StreamingClient {
             return this;
         }
 
+        ExecutorService getExecutorService() {
+            return executorService;
+        }
+
+        /**
+         * Sets the executor that runs the stream reader. It can be shared by many clients, as long
+         * as it has a thread for every stream that is started. By default every client starts a
+         * thread of its own.
+         */
+        public Builder setExecutorService(@NonNull final ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        long getSilenceTimeout() {
+            return silenceTimeout;
+        }
+
+        /**
+         * Sets how long the stream may go without a single frame, keep-alives included, before
+         * the connection is considered half-open and reconnected. Checks run on the retry
+         * scheduler. 0 disables the watchdog and leaves it to the read timeout of the http client.
+         */
+        public Builder setSilenceTimeout(final long silenceTimeout, @NonNull final TimeUnit unit) {
+            this.silenceTimeout = unit.toMillis(silenceTimeout);
+            return this;
+        }
+
+        EventHandler<StreamHealth> getStreamHealthHandler() {
+            return streamHealthHandler;
+        }
+
+        /**
+         * Sets the handler that is called on every {@link StreamHealth} transition. Transitions
+         * arrive in order and no lock of the client is held, so the handler may call back into it.
+         */
+        public Builder setStreamHealthHandler(@NonNull final EventHandler<StreamHealth> handler) {
+            this.streamHealthHandler = handler;
+            return this;
+        }
+
+        Metrics getMetrics() {
+            return metrics != null ? metrics : Metrics.getDefault();
+        }
+
+        /**
+         * Sets the registry the stream records its metrics into. By default all clients share
+         * {@link Metrics#getDefault()}.
+         */
+        public Builder setMetrics(@NonNull final Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        StreamRecorder getRecorder() {
+            return recorder;
+        }
+
+        /**
+         * Sets a {@link StreamRecorder} that captures the raw bytes of the stream, e.g. to replay
+         * production traffic with a {@link StreamReplayer}. Closing it is up to the caller.
+         */
+        public Builder setRecorder(@NonNull final StreamRecorder recorder) {
+            this.recorder = recorder;
+            return this;
+        }
+
+        long getCoalescingWindow() {
+            return coalescingWindow;
+        }
+
+        /**
+         * Holds full-state {@code put} events for the window and only parses the newest one, so
+         * bursts of snapshots are dispatched once. Other events are never held back, they release
+         * a held snapshot first. Requires a parser that is an {@link EventParser}, which
+         * {@link #build()} checks. 0, the default, disables coalescing.
+         */
+        public Builder setCoalescingWindow(final long window, @NonNull final TimeUnit unit) {
+            this.coalescingWindow = unit.toMillis(window);
+            return this;
+        }
+
         public Builder(@NonNull final OkHttpClient httpClient,
                        @NonNull final RestConfig restConfig, @NonNull final Parser parser) {
             this.parser = parser;
@@ -161,7 +471,14 @@ public class RestStreamClient implements StreamingClient {
             this.httpClient = httpClient;
         }
 
+        /**
+         * @throws IllegalArgumentException if a coalescing window is set and the parser is not an
+         *                                  {@link EventParser}.
+         */
         public RestStreamClient build() {
+            if (coalescingWindow > 0 && !(parser instanceof EventParser)) {
+                throw new IllegalArgumentException("coalescing requires an EventParser");
+            }
             return new RestStreamClient(this);
         }
     }
@@ -2,33 +2,44 @@ package com.nestlabs.sdk.rest;
 
 import com.nestlabs.sdk.EventHandler;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Future;
 
 class RetryExecutor {
-    private final Timer timer = new Timer();
+    private final RetryScheduler scheduler;
     private final BackOff backOff;
+    private Future<?> pending;
 
-    RetryExecutor(BackOff backOff) {
+    RetryExecutor(BackOff backOff, RetryScheduler scheduler) {
         this.backOff = backOff;
+        this.scheduler = scheduler;
     }
 
-    void reset() {
+    synchronized void reset() {
         backOff.reset();
     }
 
-    <T> void schedule(final EventHandler<T> consumer, final T value) {
+    /**
+     * Schedules the consumer after the next back off interval, and returns the interval.
+     */
+    synchronized <T> long schedule(final EventHandler<T> consumer, final T value) {
         long delay = backOff.nextInterval();
 
-        timer.schedule(new TimerTask() {
+        if (pending != null) pending.cancel(false);
+        pending = scheduler.schedule(new Runnable() {
             @Override
             public void run() {
                 consumer.handle(value);
             }
         }, delay);
+        return delay;
     }
 
-    void cancel() {
-        timer.cancel();
+    /**
+     * Cancels the pending retry, if any. The scheduler itself is left running, so retries can
+     * be scheduled again after the client is restarted.
+     */
+    synchronized void cancel() {
+        if (pending != null) pending.cancel(false);
+        pending = null;
     }
 }
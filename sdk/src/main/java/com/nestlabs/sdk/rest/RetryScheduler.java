@@ -0,0 +1,12 @@
+package com.nestlabs.sdk.rest;
+
+import java.util.concurrent.Future;
+
+/**
+ * Runs delayed reconnect attempts. A single scheduler can be shared by any number of stream
+ * clients, e.g. one backed by a {@link java.util.concurrent.ScheduledExecutorService} or by a
+ * hashed timing wheel.
+ */
+public interface RetryScheduler {
+    Future<?> schedule(Runnable task, long delayMillis);
+}
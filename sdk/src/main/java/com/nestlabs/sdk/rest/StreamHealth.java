@@ -0,0 +1,27 @@
+package com.nestlabs.sdk.rest;
+
+/**
+ * Health of the event stream of a {@link RestStreamClient}.
+ */
+public enum StreamHealth {
+    /**
+     * A connection is being opened and no frame has been received on it yet.
+     */
+    CONNECTING,
+
+    /**
+     * Frames, including keep-alives, are being received.
+     */
+    CONNECTED,
+
+    /**
+     * Nothing was received for longer than the silence timeout. The connection is assumed to be
+     * half-open and is torn down.
+     */
+    STALE,
+
+    /**
+     * The connection was closed or failed. A reconnect is scheduled unless the client was stopped.
+     */
+    DISCONNECTED
+}
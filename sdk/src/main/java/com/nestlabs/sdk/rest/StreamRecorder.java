@@ -0,0 +1,100 @@
+package com.nestlabs.sdk.rest;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import okio.Buffer;
+
+/**
+ * Records the raw bytes of an event stream, exactly as they were read from the socket, into an
+ * append-only capture file that a {@link StreamReplayer} can play back. Captures are written
+ * through memory-mapped regions, so recording does not add a system call per read.
+ *
+ * A capture starts with the {@link #MAGIC} bytes and the wall clock time the recording started,
+ * followed by one record per read: the receive time in nanoseconds since the start, the length
+ * and the bytes. A record length of 0 marks the end of a capture that was not closed.
+ *
+ * A recorder is meant for a single stream, so it should not be shared between clients.
+ */
+public final class StreamRecorder implements Closeable {
+
+    static final byte[] MAGIC = {'W', 'W', 'N', 'S', 'S', 'E', '0', '1'};
+    static final int HEADER_SIZE = MAGIC.length + 8;
+    static final int RECORD_HEADER_SIZE = 8 + 4;
+
+    private static final int REGION_SIZE = 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long startNanos = System.nanoTime();
+    private final byte[] scratch = new byte[8192];
+    private MappedByteBuffer region;
+    private long regionStart;
+    private boolean closed;
+
+    /**
+     * Creates a new capture file, replacing any existing file.
+     */
+    public StreamRecorder(@NonNull File capture) throws IOException {
+        file = new RandomAccessFile(capture, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+
+        ensureCapacity(HEADER_SIZE);
+        region.put(MAGIC);
+        region.putLong(System.currentTimeMillis());
+    }
+
+    private void ensureCapacity(int byteCount) throws IOException {
+        if (region != null && region.remaining() >= byteCount) return;
+
+        regionStart = position();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart,
+                Math.max(REGION_SIZE, byteCount));
+    }
+
+    private long position() {
+        return region == null ? 0 : regionStart + region.position();
+    }
+
+    /**
+     * Appends the bytes of the chunk as one read, received now, consuming it. Stream clients call
+     * this for every read, it can also be used to write synthetic captures.
+     */
+    public synchronized void record(@NonNull Buffer chunk) throws IOException {
+        if (closed) return;
+
+        long receivedNanos = System.nanoTime() - startNanos;
+        int length = (int) chunk.size();
+        if (length == 0) return;
+
+        ensureCapacity(RECORD_HEADER_SIZE + length);
+        region.putLong(receivedNanos);
+        region.putInt(length);
+        while (chunk.size() > 0) {
+            int read = chunk.read(scratch, 0, (int) Math.min(scratch.length, chunk.size()));
+            region.put(scratch, 0, read);
+        }
+    }
+
+    /**
+     * Flushes the capture and trims it to the recorded bytes.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+
+        long size = position();
+        region.force();
+        region = null;
+        channel.truncate(size);
+        file.close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.nestlabs.sdk.rest;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.rest.parsers.Parser;
+import com.nestlabs.sdk.rest.parsers.ParserException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+/**
+ * Plays a capture written by a {@link StreamRecorder} back through a {@link Parser}, decoding it
+ * the same way {@link RestStreamClient} decodes a live stream. Reads are replayed with their
+ * original sizes, so frames split across reads are split the same way again.
+ */
+public final class StreamReplayer {
+
+    /**
+     * How fast a capture is replayed.
+     */
+    public enum Pacing {
+        /** Every read is replayed at the time it was received, relative to the first. */
+        ORIGINAL,
+        /** Reads are replayed back to back. */
+        AS_FAST_AS_POSSIBLE
+    }
+
+    private final ByteBuffer capture;
+    private final long startedAt;
+
+    public StreamReplayer(@NonNull File capture) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(capture, "r");
+        try {
+            this.capture = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+            file.close();
+        }
+
+        byte[] magic = new byte[StreamRecorder.MAGIC.length];
+        if (this.capture.remaining() < StreamRecorder.HEADER_SIZE) {
+            throw new IOException("Not a stream capture: " + capture);
+        }
+        this.capture.get(magic);
+        if (!Arrays.equals(magic, StreamRecorder.MAGIC)) {
+            throw new IOException("Not a stream capture: " + capture);
+        }
+        startedAt = this.capture.getLong();
+    }
+
+    /**
+     * Returns the wall clock time in milliseconds the capture was started at.
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Replays the whole capture through the parser. Parser exceptions are thrown, so a replay
+     * stops at the first frame that fails to parse.
+     *
+     * @return the number of frames that were dispatched.
+     */
+    public long replay(@NonNull Parser parser, @NonNull Pacing pacing)
+            throws IOException, ParserException, InterruptedException {
+        ByteBuffer records = capture.duplicate();
+        records.position(StreamRecorder.HEADER_SIZE);
+
+        EventStreamDecoder decoder = new EventStreamDecoder();
+        Buffer chunk = new Buffer();
+        byte[] scratch = new byte[8192];
+        long frames = 0;
+        long replayStartNanos = System.nanoTime();
+        long firstReceivedNanos = -1;
+
+        while (records.remaining() >= StreamRecorder.RECORD_HEADER_SIZE) {
+            long receivedNanos = records.getLong();
+            int length = records.getInt();
+            //A capture that was not closed ends with the zeroes of its last region
+            if (length <= 0 || length > records.remaining()) break;
+
+            if (firstReceivedNanos < 0) firstReceivedNanos = receivedNanos;
+            if (pacing == Pacing.ORIGINAL) {
+                long waitNanos = replayStartNanos + receivedNanos - firstReceivedNanos
+                        - System.nanoTime();
+                if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+
+            while (length > 0) {
+                int count = Math.min(length, scratch.length);
+                records.get(scratch, 0, count);
+                chunk.write(scratch, 0, count);
+                length -= count;
+            }
+
+            decoder.read(chunk, chunk.size());
+            while (decoder.nextFrame()) {
+                decoder.dispatch(parser);
+                frames++;
+            }
+        }
+
+        if (decoder.finish()) {
+            decoder.dispatch(parser);
+            frames++;
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,185 @@
+package com.nestlabs.sdk.rest;
+
+import com.nestlabs.sdk.Callback;
+import com.nestlabs.sdk.CoalescedWriteException;
+import com.nestlabs.sdk.NestException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Debounces the writes of a {@link RestClient} per object and field. At most one write per field
+ * is in flight at a time. Writes to a field in flight are held and merged per object, the newest
+ * value of each field replacing the older ones, and the merged fields are sent as one request
+ * once none of them is in flight anymore. A burst of writes to a field is therefore sent as the
+ * first and the last value, in order. The callback of a held write completes with the request
+ * that sends its fields, or fails with a {@link CoalescedWriteException} once newer writes
+ * replaced all of them.
+ */
+final class WriteDebouncer {
+
+    private final RestClient restClient;
+    private final Object lock = new Object();
+    //Fields with a write in flight, as path and field name, and the writes held per path
+    private final Set<String> inFlight = new HashSet<>();
+    private final Map<String, Batch> held = new HashMap<>();
+
+    WriteDebouncer(RestClient restClient) {
+        this.restClient = restClient;
+    }
+
+    private static final class Writer {
+        final Callback callback;
+        //The fields of the write that no newer write replaced yet
+        final Set<String> fields;
+
+        Writer(Callback callback, Set<String> fields) {
+            this.callback = callback;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Fields of one object that are sent in a single request, with the writes they came from.
+     */
+    private static final class Batch {
+        final String path;
+        final Map<String, String> values = new LinkedHashMap<>();
+        final List<Writer> writers = new ArrayList<>();
+
+        Batch(String path) {
+            this.path = path;
+        }
+
+        /**
+         * Adds the values of a write and returns the earlier writes it replaced every field of.
+         */
+        List<Writer> merge(Map<String, String> values, Callback callback) {
+            List<Writer> replaced = new ArrayList<>();
+            for (Iterator<Writer> it = writers.iterator(); it.hasNext(); ) {
+                Writer writer = it.next();
+                writer.fields.removeAll(values.keySet());
+                if (writer.fields.isEmpty()) {
+                    it.remove();
+                    replaced.add(writer);
+                }
+            }
+            this.values.putAll(values);
+            writers.add(new Writer(callback, new HashSet<>(values.keySet())));
+            return replaced;
+        }
+    }
+
+    /**
+     * Sends the write now if none of its fields is in flight or held, or merges it into the
+     * writes held for the object otherwise.
+     *
+     * @param path   the path of the object to write to.
+     * @param values the JSON value of each field to write.
+     */
+    void write(String path, Map<String, String> values, Callback callback) {
+        Batch send = null;
+        List<Writer> replaced;
+        synchronized (lock) {
+            Batch batch = held.get(path);
+            if (!isInFlight(path, values.keySet())
+                    && (batch == null || !containsAny(batch.values.keySet(), values.keySet()))) {
+                send = new Batch(path);
+                replaced = send.merge(values, callback);
+                setInFlight(send, true);
+            } else {
+                if (batch == null) {
+                    batch = new Batch(path);
+                    held.put(path, batch);
+                }
+                replaced = batch.merge(values, callback);
+            }
+        }
+
+        for (Writer writer : replaced) {
+            if (writer.callback != null) writer.callback.onFailure(new CoalescedWriteException());
+        }
+        if (send != null) send(send);
+    }
+
+    private boolean isInFlight(String path, Set<String> fields) {
+        for (String field : fields) {
+            if (inFlight.contains(path + '/' + field)) return true;
+        }
+        return false;
+    }
+
+    private void setInFlight(Batch batch, boolean inFlight) {
+        for (String field : batch.values.keySet()) {
+            if (inFlight) this.inFlight.add(batch.path + '/' + field);
+            else this.inFlight.remove(batch.path + '/' + field);
+        }
+    }
+
+    private static boolean containsAny(Set<String> fields, Set<String> others) {
+        for (String field : others) {
+            if (fields.contains(field)) return true;
+        }
+        return false;
+    }
+
+    private void send(final Batch batch) {
+        try {
+            restClient.write(batch.path, RestClient.body(batch.values), new Callback() {
+                @Override
+                public void onSuccess() {
+                    try {
+                        for (Writer writer : batch.writers) {
+                            if (writer.callback != null) writer.callback.onSuccess();
+                        }
+                    } finally {
+                        completed(batch);
+                    }
+                }
+
+                @Override
+                public void onFailure(NestException exception) {
+                    try {
+                        for (Writer writer : batch.writers) {
+                            if (writer.callback != null) writer.callback.onFailure(exception);
+                        }
+                    } finally {
+                        completed(batch);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            completed(batch);
+            throw e;
+        }
+    }
+
+    private void completed(Batch sent) {
+        Batch next = null;
+        synchronized (lock) {
+            setInFlight(sent, false);
+            Batch batch = held.get(sent.path);
+            if (batch != null && !isInFlight(batch.path, batch.values.keySet())) {
+                held.remove(batch.path);
+                setInFlight(batch, true);
+                next = batch;
+            }
+        }
+        if (next == null) return;
+
+        try {
+            send(next);
+        } catch (RuntimeException e) {
+            //Called on the thread of the completed write, so report it to the held ones instead
+            for (Writer writer : next.writers) {
+                if (writer.callback != null) writer.callback.onFailure(new NestException(e));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Configures the {@link Notifier} to call listeners on an {@link Executor} instead of the stream
+ * thread. Every listener gets its own bounded queue, drained in order, so a slow listener neither
+ * delays the stream nor the other listeners.
+ */
+public final class AsyncDispatch {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * What to do when an event arrives for a listener whose queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait on the stream thread until the listener catches up. No event is lost. */
+        BLOCK,
+        /**
+         * Discard the oldest queued update. Errors, auth events and change sets are never
+         * discarded.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop a queued update of the same kind and queue the newer one, so a slow listener only
+         * sees the latest state. Errors, auth events and change sets are never coalesced, and the
+         * oldest update is discarded if the queue is still full.
+         */
+        LATEST_WINS
+    }
+
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final ExceptionHandler exceptionHandler;
+
+    private AsyncDispatch(Builder builder) {
+        executor = builder.getExecutor();
+        capacity = builder.getCapacity();
+        overflowPolicy = builder.getOverflowPolicy();
+        exceptionHandler = builder.getExceptionHandler();
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    ExceptionHandler getExceptionHandler() {
+        return exceptionHandler;
+    }
+
+    public static class Builder {
+        private final Executor executor;
+        private int capacity = DEFAULT_CAPACITY;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.LATEST_WINS;
+        private ExceptionHandler exceptionHandler = new ExceptionHandler() {
+            @Override
+            public void handle(NestException value) { }
+        };
+
+        public Builder(@NonNull final Executor executor) {
+            this.executor = executor;
+        }
+
+        Executor getExecutor() {
+            return executor;
+        }
+
+        int getCapacity() {
+            return capacity;
+        }
+
+        public Builder setCapacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+            this.capacity = capacity;
+            return this;
+        }
+
+        OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public Builder setOverflowPolicy(@NonNull final OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        ExceptionHandler getExceptionHandler() {
+            return exceptionHandler;
+        }
+
+        /**
+         * Sets the handler for exceptions thrown by listeners on the executor.
+         */
+        public Builder setExceptionHandler(@NonNull final ExceptionHandler exceptionHandler) {
+            this.exceptionHandler = exceptionHandler;
+            return this;
+        }
+
+        public AsyncDispatch build() {
+            return new AsyncDispatch(this);
+        }
+    }
+}
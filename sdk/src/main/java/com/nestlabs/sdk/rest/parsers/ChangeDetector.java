@@ -0,0 +1,155 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nestlabs.sdk.models.ChangeSet;
+import com.nestlabs.sdk.models.Device;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.Structure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares every {@link GlobalUpdate} with the previous one before it reaches the {@link Notifier},
+ * and reports the added, removed and changed objects to its change listeners. Objects are compared
+ * on their JSON representation, so the changed keys are the model KEY_* constants. Instances that
+ * were reused from the previous update are skipped without being compared.
+ *
+ * Without change listeners the models of an update are not read at all, so lazy updates stay
+ * unloaded. The last update is kept to compare with once a change listener is added.
+ */
+public class ChangeDetector implements StreamingEventHandler {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Notifier notifier;
+
+    //Keyed by type and id, in the order of the last update. Null until it is compared with.
+    private GlobalUpdate previousUpdate;
+    private Map<String, Parcelable> previous;
+    private Map<Object, JsonNode> trees = new IdentityHashMap<>();
+
+    public ChangeDetector(@NonNull final Notifier notifier) {
+        this.notifier = notifier;
+    }
+
+    @Override
+    public void handleData(GlobalUpdate event) {
+        ChangeSet changes = null;
+        if (notifier.hasChangeListeners()) {
+            if (previous == null) previous = collect(previousUpdate);
+            Map<String, Parcelable> current = collect(event);
+            changes = diff(current);
+            previous = current;
+        } else {
+            trees = new IdentityHashMap<>();
+            previous = null;
+        }
+        previousUpdate = event;
+
+        notifier.handleData(event);
+        if (changes != null && !changes.isEmpty()) notifier.handleChanges(changes);
+    }
+
+    @Override
+    public void handleError(ErrorMessage errorMessage) {
+        notifier.handleError(errorMessage);
+    }
+
+    @Override
+    public void handleAuthRevoked() {
+        notifier.handleAuthRevoked();
+    }
+
+    private static Map<String, Parcelable> collect(GlobalUpdate update) {
+        Map<String, Parcelable> models = new LinkedHashMap<>();
+        if (update == null) return models;
+
+        collect(models, update.getStructures());
+        collect(models, update.getThermostats());
+        collect(models, update.getSmokeCOAlarms());
+        collect(models, update.getCameras());
+        return models;
+    }
+
+    private static void collect(Map<String, Parcelable> target, List<? extends Parcelable> models) {
+        if (models == null) return;
+
+        for (Parcelable model : models) {
+            String id = model instanceof Structure ? ((Structure) model).getStructureId()
+                    : ((Device) model).getDeviceId();
+            target.put(model.getClass().getName() + '/' + id, model);
+        }
+    }
+
+    private ChangeSet diff(Map<String, Parcelable> current) {
+        List<Parcelable> added = new ArrayList<>();
+        List<ChangeSet.Change> changed = new ArrayList<>();
+        Map<Object, JsonNode> currentTrees = new IdentityHashMap<>();
+        Map<String, Parcelable> removed = new HashMap<>(previous);
+
+        for (Map.Entry<String, Parcelable> entry : current.entrySet()) {
+            Parcelable model = entry.getValue();
+            Parcelable old = removed.remove(entry.getKey());
+            if (old == null) {
+                added.add(model);
+                continue;
+            }
+
+            if (old == model) {
+                //Reused instance, keep its tree around for the next comparison
+                JsonNode tree = trees.get(old);
+                if (tree != null) currentTrees.put(model, tree);
+                continue;
+            }
+
+            JsonNode oldTree = trees.get(old);
+            if (old.equals(model)) {
+                //Nothing changed, so the old tree still describes the new model
+                if (oldTree != null) currentTrees.put(model, oldTree);
+                continue;
+            }
+
+            if (oldTree == null) oldTree = mapper.valueToTree(old);
+            JsonNode newTree = mapper.valueToTree(model);
+            currentTrees.put(model, newTree);
+
+            Set<String> keys = changedKeys(oldTree, newTree);
+            if (!keys.isEmpty()) changed.add(new ChangeSet.Change(old, model, keys));
+        }
+
+        List<Parcelable> gone = new ArrayList<>();
+        for (Map.Entry<String, Parcelable> entry : previous.entrySet()) {
+            if (removed.containsKey(entry.getKey())) gone.add(entry.getValue());
+        }
+
+        trees = currentTrees;
+        return new ChangeSet(added, gone, changed);
+    }
+
+    private static Set<String> changedKeys(JsonNode oldTree, JsonNode newTree) {
+        Set<String> keys = new HashSet<>();
+        Iterator<String> names = newTree.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!newTree.get(name).equals(oldTree.get(name))) keys.add(name);
+        }
+
+        names = oldTree.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!newTree.has(name)) keys.add(name);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,157 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import android.support.annotation.NonNull;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.rest.RetryScheduler;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Coalesces bursts of full-state {@code put} events. A full-state put is held for a window, and
+ * only the newest one received in that window is parsed and dispatched when it ends. Any other
+ * event that changes state first releases the held put, so events are never reordered, while
+ * {@code auth_revoked}, {@code error} and keep-alive events always pass straight through.
+ *
+ * The {@link RetryScheduler} only times the window. Held puts are parsed and dispatched on the
+ * release {@link Executor}, so slow listeners never hold up the scheduler, and parse failures
+ * there are reported to the {@link ExceptionHandler}. Events are passed on one at a time.
+ */
+public class CoalescingParser implements Parser, EventParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final EventParser delegate;
+    private final long windowMillis;
+    private final RetryScheduler scheduler;
+    private final Executor releaseExecutor;
+    private final ExceptionHandler exceptionHandler;
+    private final Object lock = new Object();
+    private StreamingEvent held;
+    private Future<?> release;
+
+    private final Runnable releaseTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (lock) {
+                release = null;
+                try {
+                    releaseHeld();
+                } catch (ParserException ex) {
+                    exceptionHandler.handle(ex);
+                } catch (Exception ex) {
+                    exceptionHandler.handle(new NestException(ex));
+                }
+            }
+        }
+    };
+
+    private final Runnable windowEnd = new Runnable() {
+        @Override
+        public void run() {
+            releaseExecutor.execute(releaseTask);
+        }
+    };
+
+    /**
+     * Creates a parser that holds full-state puts for the window before passing them on.
+     *
+     * @param scheduler       times the window of a held put.
+     * @param releaseExecutor parses and dispatches held puts once their window ended.
+     */
+    public CoalescingParser(@NonNull EventParser delegate, long windowMillis,
+                            @NonNull RetryScheduler scheduler, @NonNull Executor releaseExecutor,
+                            @NonNull ExceptionHandler exceptionHandler) {
+        this.delegate = delegate;
+        this.windowMillis = windowMillis;
+        this.scheduler = scheduler;
+        this.releaseExecutor = releaseExecutor;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    //Called with the lock held
+    private void releaseHeld() throws ParserException {
+        StreamingEvent event = held;
+        held = null;
+        if (event != null) delegate.parseEvent(event);
+    }
+
+    @Override
+    public void parseEvent(StreamingEvent event) throws ParserException {
+        synchronized (lock) {
+            switch (event.getEventType()) {
+                case "keep-alive":
+                case "auth_revoked":
+                case "error":
+                    delegate.parseEvent(event);
+                    return;
+                case "put":
+                    if (isFullState(event)) {
+                        held = event;
+                        if (release == null) release = scheduler.schedule(windowEnd, windowMillis);
+                        return;
+                    }
+                    break;
+            }
+
+            releaseHeld();
+            delegate.parseEvent(event);
+        }
+    }
+
+    /**
+     * Releases the held put, then passes the raw message on if the delegate is a {@link Parser}.
+     */
+    @Override
+    public void parse(String msg) throws ParserException {
+        synchronized (lock) {
+            releaseHeld();
+            if (delegate instanceof Parser) ((Parser) delegate).parse(msg);
+        }
+    }
+
+    /**
+     * Drops the held put without dispatching it, e.g. when the stream is stopped.
+     */
+    public void discard() {
+        synchronized (lock) {
+            held = null;
+            if (release != null) release.cancel(false);
+            release = null;
+        }
+    }
+
+    //The stream sends the path first, so this rarely looks further than the first field
+    private static boolean isFullState(StreamingEvent event) {
+        JsonParser parser = null;
+        try {
+            parser = FACTORY.createParser(event.getData().toByteArray());
+            if (parser.nextToken() != JsonToken.START_OBJECT) return false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("path".equals(field)) {
+                    return value == JsonToken.VALUE_STRING && "/".equals(parser.getText());
+                }
+                parser.skipChildren();
+            }
+            return false;
+        } catch (IOException e) {
+            //Let the delegate report the malformed event
+            return false;
+        } finally {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException ignore) { }
+            }
+        }
+    }
+}
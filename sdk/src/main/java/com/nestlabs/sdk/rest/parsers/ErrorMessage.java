@@ -6,6 +6,7 @@ import android.os.Parcelable;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.nestlabs.sdk.models.Utils;
 
 @JsonPropertyOrder(alphabetic = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -78,4 +79,24 @@ public class ErrorMessage implements Parcelable {
             return new ErrorMessage[size];
         }
     };
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof ErrorMessage) {
+            ErrorMessage errorMessage = (ErrorMessage) obj;
+            return Utils.equal(error, errorMessage.error)
+                    && Utils.equal(type, errorMessage.type)
+                    && Utils.equal(message, errorMessage.message);
+        } else {
+            return false;
+        }
+    }
+
+    //Not cached, the setters can still change an error message
+    @Override
+    public int hashCode() {
+        return Utils.hash(error, type, message);
+    }
 }
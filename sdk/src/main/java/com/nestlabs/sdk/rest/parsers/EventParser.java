@@ -0,0 +1,9 @@
+package com.nestlabs.sdk.rest.parsers;
+
+/**
+ * A {@link Parser} counterpart that receives events already framed by the stream decoder, so the
+ * raw stream never has to be turned into a String.
+ */
+public interface EventParser {
+    void parseEvent(StreamingEvent event) throws ParserException;
+}
@@ -0,0 +1,141 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.NestListener;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded queue of pending callbacks for a single listener. At most one drain task per queue is
+ * submitted to the executor at a time, so callbacks run in order and never concurrently.
+ */
+final class ListenerQueue implements Runnable {
+
+    private static final class Item {
+        final int callback;
+        final Object value;
+        final boolean coalesce;
+
+        Item(int callback, Object value, boolean coalesce) {
+            this.callback = callback;
+            this.value = value;
+            this.coalesce = coalesce;
+        }
+    }
+
+    private final NestListener listener;
+    private final AsyncDispatch dispatch;
+    private final ArrayDeque<Item> pending = new ArrayDeque<>();
+    private boolean scheduled = false;
+    private boolean closed = false;
+
+    ListenerQueue(NestListener listener, AsyncDispatch dispatch) {
+        this.listener = listener;
+        this.dispatch = dispatch;
+    }
+
+    /**
+     * Queues a callback, applying the overflow policy if the queue is full. Only callbacks that
+     * may be coalesced are ever dropped, so the queue grows past its capacity rather than lose
+     * an error, an auth event or a change set.
+     *
+     * @param coalesce whether the callback may replace a queued callback of the same kind.
+     */
+    void offer(int callback, Object value, boolean coalesce) {
+        synchronized (this) {
+            if (closed) return;
+
+            AsyncDispatch.OverflowPolicy policy = dispatch.getOverflowPolicy();
+            if (coalesce && policy == AsyncDispatch.OverflowPolicy.LATEST_WINS) {
+                //Queued after the callbacks before it, so it is not delivered ahead of them
+                remove(callback);
+            }
+            while (pending.size() >= dispatch.getCapacity()) {
+                if (policy != AsyncDispatch.OverflowPolicy.BLOCK) {
+                    if (!removeOldest()) break;
+                    continue;
+                }
+
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (closed) return;
+            }
+
+            pending.addLast(new Item(callback, value, coalesce));
+            if (scheduled) return;
+            scheduled = true;
+        }
+
+        try {
+            dispatch.getExecutor().execute(this);
+        } catch (RejectedExecutionException e) {
+            //The callbacks stay queued, the next offer submits the queue again
+            synchronized (this) {
+                scheduled = false;
+            }
+            dispatch.getExceptionHandler().handle(
+                    new NestException("Listener dispatch was rejected by the executor.", e));
+        }
+    }
+
+    //Removes the queued callback of the same kind, if there is one
+    private void remove(int callback) {
+        Iterator<Item> items = pending.iterator();
+        while (items.hasNext()) {
+            Item item = items.next();
+            if (item.coalesce && item.callback == callback) {
+                items.remove();
+                return;
+            }
+        }
+    }
+
+    //Removes the oldest callback that may be coalesced, if there is one
+    private boolean removeOldest() {
+        Iterator<Item> items = pending.iterator();
+        while (items.hasNext()) {
+            if (items.next().coalesce) {
+                items.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops all pending callbacks. Callbacks offered after closing are ignored.
+     */
+    synchronized void close() {
+        closed = true;
+        pending.clear();
+        notifyAll();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Item item;
+            synchronized (this) {
+                item = pending.pollFirst();
+                if (item == null) {
+                    scheduled = false;
+                    return;
+                }
+                notifyAll();
+            }
+
+            try {
+                Notifier.invoke(listener, item.callback, item.value);
+            } catch (Exception ex) {
+                //A failing listener must not stop the queue
+                dispatch.getExceptionHandler().handle(new NestException(ex));
+            }
+        }
+    }
+}
@@ -2,7 +2,7 @@ package com.nestlabs.sdk.rest.parsers;
 
 import android.support.annotation.NonNull;
 
-public class MessageParser implements Parser {
+public class MessageParser implements Parser, EventParser {
 
     private final Mapper mapper;
 
@@ -41,4 +41,18 @@ public class MessageParser implements Parser {
             i++;
         }
     }
+
+    @Override
+    public void parseEvent(StreamingEvent event) throws ParserException {
+        String eventType = event.getEventType();
+        if (eventType == null || eventType.length() == 0) {
+            throw new ParserException("Unexpected length of event line.");
+        }
+
+        if (event.getData() == null || event.getData().size() == 0) {
+            throw new ParserException("Unexpected length of data line.");
+        }
+
+        mapper.map(event);
+    }
 }
@@ -1,67 +1,322 @@
 package com.nestlabs.sdk.rest.parsers;
 
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.models.ChangeSet;
+import com.nestlabs.sdk.models.DeviceUpdate;
 import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.Metadata;
 import com.nestlabs.sdk.NestException;
 import com.nestlabs.sdk.NestListener;
+import com.nestlabs.sdk.metrics.Metrics;
+import com.nestlabs.sdk.metrics.Timer;
+import com.nestlabs.sdk.rest.StreamHealth;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Dispatches events to the registered listeners. Listeners are sorted into one bucket per
+ * listener interface when they are added, so a listener implementing several interfaces receives
+ * every matching callback and dispatch only touches the buckets of the event. Buckets are
+ * copy-on-write arrays, so listeners can be added and removed from any thread while events are
+ * dispatched.
+ *
+ * By default listeners are called on the thread that handles the event. With an {@link
+ * AsyncDispatch} every listener is called on the executor through its own bounded queue instead.
+ *
+ * The Notifier also tells the mapping stage which model types its listeners can observe, see
+ * {@link #getObservedTypes()}, and calls back when they change. With {@link
+ * Subscription.Builder#setObservedTypesOnly(boolean)} nobody pays for models that no listener
+ * receives.
+ */
 public class Notifier implements StreamingEventHandler {
 
-    private final List<NestListener> listeners = new ArrayList<>();
+    private static final int GLOBAL = 0;
+    private static final int DEVICE = 1;
+    private static final int STRUCTURE = 2;
+    private static final int THERMOSTAT = 3;
+    private static final int CAMERA = 4;
+    private static final int SMOKE_CO_ALARM = 5;
+    private static final int METADATA = 6;
+    private static final int CHANGE = 7;
+    private static final int AUTH = 8;
+    private static final int ERROR = 9;
+    private static final int HEALTH = 10;
+
+    //Callbacks without a bucket of their own
+    private static final int AUTH_REVOKED = 11;
+
+    private static final Class<?>[] TYPES = {
+            NestListener.GlobalListener.class,
+            NestListener.DeviceListener.class,
+            NestListener.StructureListener.class,
+            NestListener.ThermostatListener.class,
+            NestListener.CameraListener.class,
+            NestListener.SmokeCOAlarmListener.class,
+            NestListener.MetadataListener.class,
+            NestListener.ChangeListener.class,
+            NestListener.AuthListener.class,
+            NestListener.ErrorListener.class,
+            NestListener.StreamHealthListener.class };
+
+    private static final Entry[] NONE = new Entry[0];
+
+    private static final class Entry {
+        final NestListener listener;
+        final ListenerQueue queue;
+
+        Entry(NestListener listener, ListenerQueue queue) {
+            this.listener = listener;
+            this.queue = queue;
+        }
+    }
+
+    private final AsyncDispatch dispatch;
+    private final Timer dispatchTime;
+    private final Object lock = new Object();
+    private volatile Entry[][] buckets = emptyBuckets();
+    private volatile Set<String> observedTypes = Collections.emptySet();
+    private final List<Runnable> observedTypesListeners = new CopyOnWriteArrayList<>();
+
+    public Notifier() {
+        this(null);
+    }
+
+    /**
+     * Creates a Notifier that calls listeners through the given {@link AsyncDispatch}, or on the
+     * calling thread if it is null.
+     */
+    public Notifier(AsyncDispatch dispatch) {
+        this(dispatch, Metrics.getDefault());
+    }
+
+    /**
+     * Creates a Notifier that records the time spent dispatching updates into the given {@link
+     * Metrics}. With an {@link AsyncDispatch} that is the time taken to queue them.
+     */
+    public Notifier(AsyncDispatch dispatch, @NonNull Metrics metrics) {
+        this.dispatch = dispatch;
+        this.dispatchTime = metrics.timer(Metrics.LISTENER_DISPATCH);
+    }
+
+    private static Entry[][] emptyBuckets() {
+        Entry[][] buckets = new Entry[TYPES.length][];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = NONE;
+        }
+        return buckets;
+    }
 
     public void addListener(final NestListener listener) {
-        listeners.add(listener);
+        if (listener == null) return;
+
+        Entry entry = new Entry(listener,
+                dispatch == null ? null : new ListenerQueue(listener, dispatch));
+        boolean changed;
+        synchronized (lock) {
+            Entry[][] updated = buckets.clone();
+            for (int i = 0; i < TYPES.length; i++) {
+                if (!TYPES[i].isInstance(listener)) continue;
+
+                Entry[] bucket = updated[i];
+                Entry[] copy = new Entry[bucket.length + 1];
+                System.arraycopy(bucket, 0, copy, 0, bucket.length);
+                copy[bucket.length] = entry;
+                updated[i] = copy;
+            }
+            changed = setBuckets(updated);
+        }
+        if (changed) observedTypesChanged();
     }
 
     public void removeListener(final NestListener listener) {
-        listeners.remove(listener);
+        if (listener == null) return;
+
+        Entry removed = null;
+        boolean changed;
+        synchronized (lock) {
+            Entry[][] updated = buckets.clone();
+            for (int i = 0; i < TYPES.length; i++) {
+                Entry[] bucket = updated[i];
+                for (int j = 0; j < bucket.length; j++) {
+                    if (!bucket[j].listener.equals(listener)) continue;
+                    if (removed != null && bucket[j] != removed) continue;
+
+                    removed = bucket[j];
+                    Entry[] copy = new Entry[bucket.length - 1];
+                    System.arraycopy(bucket, 0, copy, 0, j);
+                    System.arraycopy(bucket, j + 1, copy, j, bucket.length - j - 1);
+                    updated[i] = copy;
+                    break;
+                }
+            }
+            changed = setBuckets(updated);
+        }
+        if (removed != null && removed.queue != null) removed.queue.close();
+        if (changed) observedTypesChanged();
     }
 
     public void removeAllListeners() {
-        listeners.clear();
+        Entry[][] removed;
+        boolean changed;
+        synchronized (lock) {
+            removed = buckets;
+            changed = setBuckets(emptyBuckets());
+        }
+        for (Entry[] bucket : removed) {
+            for (Entry entry : bucket) {
+                if (entry.queue != null) entry.queue.close();
+            }
+        }
+        if (changed) observedTypesChanged();
+    }
+
+    //Called with the lock held, returns whether the observed types changed
+    private boolean setBuckets(Entry[][] updated) {
+        buckets = updated;
+        Set<String> types = observedTypes(updated);
+        if (types.equals(observedTypes)) return false;
+
+        observedTypes = types;
+        return true;
+    }
+
+    //Called without the lock, the listeners may add listeners of their own
+    private void observedTypesChanged() {
+        for (Runnable listener : observedTypesListeners) {
+            listener.run();
+        }
+    }
+
+    private static Set<String> observedTypes(Entry[][] buckets) {
+        Set<String> types = new HashSet<>();
+        boolean all = buckets[GLOBAL].length > 0 || buckets[CHANGE].length > 0;
+        boolean devices = all || buckets[DEVICE].length > 0;
+        if (all || buckets[STRUCTURE].length > 0) types.add(Constants.KEY_STRUCTURES);
+        if (devices || buckets[THERMOSTAT].length > 0) types.add(Constants.KEY_THERMOSTATS);
+        if (devices || buckets[CAMERA].length > 0) types.add(Constants.KEY_CAMERAS);
+        if (devices || buckets[SMOKE_CO_ALARM].length > 0) types.add(Constants.KEY_SMOKE_CO_ALARMS);
+        return Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Returns the model types, as {@link Constants} keys, that the registered listeners can
+     * observe. Global and change listeners observe every type. The set is only recomputed when
+     * listeners are added or removed.
+     */
+    public Set<String> getObservedTypes() {
+        return observedTypes;
+    }
+
+    /**
+     * Adds a callback that is run whenever the {@link #getObservedTypes() observed types} change,
+     * on the thread that added or removed the listener.
+     */
+    void addObservedTypesListener(Runnable listener) {
+        observedTypesListeners.add(listener);
+    }
+
+    public boolean hasChangeListeners() {
+        return buckets[CHANGE].length > 0;
+    }
+
+    private static void notify(Entry[] bucket, int callback, Object value, boolean coalesce) {
+        for (Entry entry : bucket) {
+            if (entry.queue == null) invoke(entry.listener, callback, value);
+            else entry.queue.offer(callback, value, coalesce);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static void invoke(NestListener listener, int callback, Object value) {
+        switch (callback) {
+            case GLOBAL:
+                ((NestListener.GlobalListener) listener).onUpdate((GlobalUpdate) value);
+                break;
+            case DEVICE:
+                ((NestListener.DeviceListener) listener).onUpdate((DeviceUpdate) value);
+                break;
+            case STRUCTURE:
+                ((NestListener.StructureListener) listener).onUpdate((List) value);
+                break;
+            case THERMOSTAT:
+                ((NestListener.ThermostatListener) listener).onUpdate((List) value);
+                break;
+            case CAMERA:
+                ((NestListener.CameraListener) listener).onUpdate((List) value);
+                break;
+            case SMOKE_CO_ALARM:
+                ((NestListener.SmokeCOAlarmListener) listener).onUpdate((List) value);
+                break;
+            case METADATA:
+                ((NestListener.MetadataListener) listener).onUpdate((Metadata) value);
+                break;
+            case CHANGE:
+                ((NestListener.ChangeListener) listener).onChange((ChangeSet) value);
+                break;
+            case AUTH:
+                ((NestListener.AuthListener) listener).onAuthFailure((NestException) value);
+                break;
+            case AUTH_REVOKED:
+                ((NestListener.AuthListener) listener).onAuthRevoked();
+                break;
+            case ERROR:
+                ((NestListener.ErrorListener) listener).onError((ErrorMessage) value);
+                break;
+            case HEALTH:
+                ((NestListener.StreamHealthListener) listener)
+                        .onStreamHealthChanged((StreamHealth) value);
+                break;
+        }
     }
 
     @Override
     public void handleData(final GlobalUpdate event) {
-        for(NestListener listener : listeners) {
-            if (listener instanceof NestListener.GlobalListener)
-                ((NestListener.GlobalListener) listener).onUpdate(event);
-            else if (listener instanceof NestListener.DeviceListener)
-                ((NestListener.DeviceListener) listener).onUpdate(event.getDevices());
-            else if (listener instanceof NestListener.StructureListener)
-                ((NestListener.StructureListener) listener).onUpdate(event.getStructures());
-            else if (listener instanceof NestListener.ThermostatListener)
-                ((NestListener.ThermostatListener) listener).onUpdate(event.getThermostats());
-            else if (listener instanceof NestListener.CameraListener)
-                ((NestListener.CameraListener) listener).onUpdate(event.getCameras());
-            else if (listener instanceof NestListener.SmokeCOAlarmListener)
-                ((NestListener.SmokeCOAlarmListener) listener).onUpdate(event.getSmokeCOAlarms());
-            else if (listener instanceof NestListener.MetadataListener)
-                ((NestListener.MetadataListener) listener).onUpdate(event.getMetadata());
-        }
+        long start = System.nanoTime();
+        Entry[][] buckets = this.buckets;
+
+        //Lists are only read for buckets with listeners, so lazy updates stay unloaded otherwise
+        notify(buckets[GLOBAL], GLOBAL, event, true);
+        notify(buckets[DEVICE], DEVICE, event.getDevices(), true);
+        if (buckets[STRUCTURE].length > 0)
+            notify(buckets[STRUCTURE], STRUCTURE, event.getStructures(), true);
+        if (buckets[THERMOSTAT].length > 0)
+            notify(buckets[THERMOSTAT], THERMOSTAT, event.getThermostats(), true);
+        if (buckets[CAMERA].length > 0)
+            notify(buckets[CAMERA], CAMERA, event.getCameras(), true);
+        if (buckets[SMOKE_CO_ALARM].length > 0)
+            notify(buckets[SMOKE_CO_ALARM], SMOKE_CO_ALARM, event.getSmokeCOAlarms(), true);
+        //Updates restored from a snapshot come without metadata
+        if (!event.isStale())
+            notify(buckets[METADATA], METADATA, event.getMetadata(), true);
+        dispatchTime.recordSince(start);
+    }
+
+    public void handleChanges(final ChangeSet changes) {
+        long start = System.nanoTime();
+        notify(buckets[CHANGE], CHANGE, changes, false);
+        dispatchTime.recordSince(start);
     }
 
     @Override
     public void handleError(ErrorMessage errorMessage) {
-        Boolean authError = errorMessage.getError().equals("unauthorized");
-
-        for(NestListener listener : listeners) {
-            if (listener instanceof NestListener.AuthListener && authError) {
-                ((NestListener.AuthListener) listener).onAuthFailure(new NestException(errorMessage.getMessage()));
-            } else if (listener instanceof NestListener.ErrorListener && !authError) {
-                ((NestListener.ErrorListener) listener).onError(errorMessage);
-            }
+        if ("unauthorized".equals(errorMessage.getError())) {
+            notify(buckets[AUTH], AUTH, new NestException(errorMessage.getMessage()), false);
+        } else {
+            notify(buckets[ERROR], ERROR, errorMessage, false);
         }
     }
 
     @Override
     public void handleAuthRevoked() {
-        for(NestListener listener : listeners) {
-            if (listener instanceof NestListener.AuthListener) {
-                ((NestListener.AuthListener) listener).onAuthRevoked();
-            }
-        }
+        notify(buckets[AUTH], AUTH_REVOKED, null, false);
+    }
+
+    public void handleStreamHealth(final StreamHealth health) {
+        notify(buckets[HEALTH], HEALTH, health, false);
     }
 }
@@ -3,120 +3,756 @@ package com.nestlabs.sdk.rest.parsers;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
 import com.nestlabs.sdk.models.Camera;
 import com.nestlabs.sdk.models.GlobalUpdate;
 import com.nestlabs.sdk.models.Metadata;
+import com.nestlabs.sdk.models.ModelCodec;
+import com.nestlabs.sdk.models.ModelCodecs;
+import com.nestlabs.sdk.models.ModelLoader;
 import com.nestlabs.sdk.models.SmokeCOAlarm;
 import com.nestlabs.sdk.models.Structure;
 import com.nestlabs.sdk.models.Thermostat;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Maps streaming events onto the object model. Full snapshots are read once with a streaming
+ * {@link JsonParser}, and every model is bound straight from the token stream by its generated
+ * {@link ModelCodec}, or by a cached {@link ObjectReader} if the model has none. Incremental
+ * {@code patch} events, and {@code put} events below the root, are applied to a local
+ * {@link StateTree} and only the models under the changed paths are rebuilt.
+ *
+ * A {@link Subscription} limits the models that are materialized. Models outside of it are
+ * skipped in the token stream of a snapshot, or never read from the state of a patch. Given a
+ * {@link Notifier}, model types that none of its listeners observe are skipped as well. Once a
+ * listener for them is added they are built from the state right away, on the thread that added
+ * it, and the listeners get an update with them.
+ *
+ * The models of a snapshot are bound lazily. Each collection only keeps the bytes of its JSON
+ * and is bound the first time it is read, by a listener of the {@link GlobalUpdate} or by a
+ * later patch, so nobody pays for models that are never read. A collection that fails to bind
+ * is reported to the {@link ExceptionHandler} and read as empty, or fails the reader with an
+ * {@link IllegalStateException} without one. Models whose JSON is byte for byte the same as in
+ * the last snapshot that was bound are not bound again, the previous instance is reused, so
+ * listeners can tell unchanged models by reference.
+ */
 public class ObjectModelMapper implements Mapper {
 
-    private ObjectMapper mapper = new ObjectMapper();
+    private static final String KEY_PATH = "path";
+    private static final String KEY_DATA = "data";
+    private static final String ROOT_PATH = "/";
+    private static final String KEY_STRUCTURE_ID = "structure_id";
+    private static final String[] MODEL_KEYS = {
+            Constants.KEY_STRUCTURES, Constants.KEY_THERMOSTATS,
+            Constants.KEY_CAMERAS, Constants.KEY_SMOKE_CO_ALARMS };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = mapper.getFactory();
+    private final Map<String, ObjectReader> readers = new HashMap<>();
+    private final Map<String, ModelCodec<? extends Parcelable>> codecs = new HashMap<>();
+    private final ObjectReader metadataReader = mapper.readerFor(Metadata.class);
+    private final ModelCodec<Metadata> metadataCodec = ModelCodecs.get(Metadata.class);
+    private final ObjectReader errorReader = mapper.readerFor(ErrorMessage.class);
     private final StreamingEventHandler eventHandler;
+    private final Subscription subscription;
+    private final Notifier demand;
+    private final ExceptionHandler exceptionHandler;
+
+    private final StateTree state = new StateTree(mapper);
+    private Map<String, ModelCollection> models = newModels();
+    private Metadata metadata;
+    //Types the models are built for, null before the first update, and the types demanded by the
+    //event being mapped
+    private Set<String> builtTypes;
+    private Set<String> observedTypes;
+    //The payload, and the devices in the subscribed structures, while a snapshot is read
+    private byte[] payload;
+    private Set<String> structureDevices;
+    private boolean mapping = false;
 
     public ObjectModelMapper(@NonNull final StreamingEventHandler handler) {
+        this(handler, Subscription.ALL);
+    }
+
+    /**
+     * Creates a mapper that only materializes the models selected by the subscription.
+     */
+    public ObjectModelMapper(@NonNull final StreamingEventHandler handler,
+                             @NonNull final Subscription subscription) {
+        this(handler, subscription, null);
+    }
+
+    /**
+     * Creates a mapper that only materializes the models selected by the subscription and
+     * observed by the listeners of the {@link Notifier}, or every model of the subscription if it
+     * is null.
+     */
+    public ObjectModelMapper(@NonNull final StreamingEventHandler handler,
+                             @NonNull final Subscription subscription, final Notifier demand) {
+        this(handler, subscription, demand, null);
+    }
+
+    /**
+     * Creates a mapper that only materializes the models selected by the subscription and
+     * observed by the listeners of the {@link Notifier}, and reports models that fail to bind
+     * when they are read to the {@link ExceptionHandler}.
+     */
+    public ObjectModelMapper(@NonNull final StreamingEventHandler handler,
+                             @NonNull final Subscription subscription, final Notifier demand,
+                             final ExceptionHandler exceptionHandler) {
         this.eventHandler = handler;
+        this.exceptionHandler = exceptionHandler;
+        this.subscription = subscription;
+        this.demand = demand;
+        readers.put(Constants.KEY_STRUCTURES, mapper.readerFor(Structure.class));
+        readers.put(Constants.KEY_THERMOSTATS, mapper.readerFor(Thermostat.class));
+        readers.put(Constants.KEY_CAMERAS, mapper.readerFor(Camera.class));
+        readers.put(Constants.KEY_SMOKE_CO_ALARMS, mapper.readerFor(SmokeCOAlarm.class));
+        putCodec(Constants.KEY_STRUCTURES, Structure.class);
+        putCodec(Constants.KEY_THERMOSTATS, Thermostat.class);
+        putCodec(Constants.KEY_CAMERAS, Camera.class);
+        putCodec(Constants.KEY_SMOKE_CO_ALARMS, SmokeCOAlarm.class);
+        if (demand != null) {
+            demand.addObservedTypesListener(new Runnable() {
+                @Override
+                public void run() {
+                    observedTypesChanged();
+                }
+            });
+        }
+    }
+
+    private void putCodec(String key, Class<? extends Parcelable> type) {
+        ModelCodec<? extends Parcelable> codec = ModelCodecs.get(type);
+        if (codec != null) codecs.put(key, codec);
+    }
+
+    private Map<String, ModelCollection> newModels() {
+        Map<String, ModelCollection> models = new HashMap<>();
+        for (String key : MODEL_KEYS) {
+            models.put(key, new ModelCollection(new LinkedHashMap<String, Parcelable>(), null));
+        }
+        return models;
+    }
+
+    //Expects the parser to be positioned on the START_OBJECT token of the field's value
+    private void parseField(JsonParser parser, Map<String, ModelCollection> target, String name)
+            throws IOException {
+
+        if (Constants.KEY_DEVICES.equals(name) || KEY_DATA.equals(name))
+            parse(parser, target);
+        else if (readers.containsKey(name) && builds(name))
+            target.put(name, skipCollection(parser, name));
+        else if (Constants.KEY_METADATA.equals(name))
+            metadata = readMetadata(parser);
+        else
+            parser.skipChildren();
+    }
+
+    //Skips the collection, keeping its bytes to bind it once it is read
+    private ModelCollection skipCollection(JsonParser parser, String key) throws IOException {
+        int start = (int) parser.getTokenLocation().getByteOffset();
+        parser.skipChildren();
+        int end = (int) parser.getCurrentLocation().getByteOffset();
+        return new ModelCollection(key, payload, start, end - start, structureDevices,
+                models.get(key).reusable());
+    }
+
+    private boolean builds(String type) {
+        return subscription.includesType(type)
+                && (observedTypes == null || observedTypes.contains(type));
+    }
+
+    private Set<String> builtTypes() {
+        Set<String> types = new HashSet<>();
+        for (String key : MODEL_KEYS) {
+            if (builds(key)) types.add(key);
+        }
+        return types;
+    }
+
+    private boolean includes(String key, String id, Set<String> structureDevices) {
+        if (Constants.KEY_STRUCTURES.equals(key)) return subscription.includesStructure(id);
+        return subscription.includesDevice(id)
+                && (structureDevices == null || structureDevices.contains(id));
+    }
+
+    private boolean includes(String key, String id, JsonNode node) {
+        if (Constants.KEY_STRUCTURES.equals(key)) return subscription.includesStructure(id);
+        return subscription.includesDevice(id) && (!subscription.filtersDevicesByStructure()
+                || subscription.includesStructure(node.path(KEY_STRUCTURE_ID).asText(null)));
+    }
+
+    //Expects the parser to be positioned on, or right before, the START_OBJECT token of the model
+    private Parcelable decode(JsonParser parser, String key) throws IOException {
+        ModelCodec<? extends Parcelable> codec = codecs.get(key);
+        return codec != null ? codec.read(parser) : readers.get(key).<Parcelable>readValue(parser);
+    }
+
+    private Parcelable decode(JsonNode node, String key) throws IOException {
+        if (!codecs.containsKey(key)) return readers.get(key).readValue(node);
+
+        return decode(mapper.treeAsTokens(node), key);
+    }
+
+    private Metadata readMetadata(JsonParser parser) throws IOException {
+        return metadataCodec != null ? metadataCodec.read(parser)
+                : metadataReader.<Metadata>readValue(parser);
+    }
+
+    //Expects the parser to be positioned on the START_OBJECT token of the model
+    private Parcelable readModel(JsonParser parser, String key) throws IOException {
+        if (!subscription.filtersFields()) return decode(parser, key);
+
+        ObjectNode node = mapper.createObjectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (subscription.includesField(name)) node.set(name, mapper.<JsonNode>readTree(parser));
+            else parser.skipChildren();
+        }
+        return decode(node, key);
+    }
+
+    private Parcelable readModel(JsonNode node, String key) throws IOException {
+        if (subscription.filtersFields()) {
+            ObjectNode filtered = mapper.createObjectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (subscription.includesField(field.getKey())) {
+                    filtered.set(field.getKey(), field.getValue());
+                }
+            }
+            node = filtered;
+        }
+        return decode(node, key);
+    }
+
+    /**
+     * Collects the IDs of the devices in the subscribed structures, skipping everything but
+     * their {@code structure_id}. Devices can come before structures in a snapshot, so this
+     * takes a pass of its own, which is far cheaper than binding the devices that are dropped.
+     */
+    private Set<String> scanStructureDevices(byte[] payload) throws IOException {
+        Set<String> devices = new HashSet<>();
+        JsonParser parser = null;
+        try {
+            parser = factory.createParser(payload);
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                scanStructureDevices(parser, devices, null);
+            }
+        } finally {
+            closeQuietly(parser);
+        }
+        return devices;
+    }
+
+    private void scanStructureDevices(JsonParser parser, Set<String> devices, String key)
+            throws IOException {
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+            } else if (key != null) {
+                if (subscription.includesStructure(readStructureId(parser))) devices.add(name);
+            } else if (Constants.KEY_DEVICES.equals(name) || KEY_DATA.equals(name)) {
+                scanStructureDevices(parser, devices, null);
+            } else if (readers.containsKey(name) && !Constants.KEY_STRUCTURES.equals(name)) {
+                scanStructureDevices(parser, devices, name);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static String readStructureId(JsonParser parser) throws IOException {
+        String structureId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_STRING && KEY_STRUCTURE_ID.equals(name)) {
+                structureId = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return structureId;
+    }
+
+    private void parse(JsonParser parser, Map<String, ModelCollection> target) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            parseField(parser, target, name);
+        }
+    }
+
+    /**
+     * Reads a full snapshot into the target models.
+     *
+     * @return the path of the event, which is the root for a full snapshot.
+     */
+    private String parseRoot(JsonParser parser, Map<String, ModelCollection> target)
+            throws IOException {
+
+        String path = ROOT_PATH;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (KEY_PATH.equals(name) && token == JsonToken.VALUE_STRING) {
+                path = parser.getText();
+                if (!ROOT_PATH.equals(path)) return path;
+            } else if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+            } else {
+                parseField(parser, target, name);
+            }
+        }
+        return path;
+    }
+
+    private void mapData(StreamingEvent event) throws ParserException  {
+        Map<String, ModelCollection> snapshot = newModels();
+        Metadata previousMetadata = metadata;
+        metadata = null;
+
+        JsonParser parser = null;
+        String path;
+        try {
+            payload = event.getData().toByteArray();
+            if (subscription.filtersDevicesByStructure()) {
+                structureDevices = scanStructureDevices(payload);
+            }
+            parser = factory.createParser(payload);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ParserException("Unexpected format of data payload.");
+            }
+            path = parseRoot(parser, snapshot);
+        } catch (IOException e) {
+            metadata = previousMetadata;
+            throw new ParserException(e);
+        } finally {
+            payload = null;
+            structureDevices = null;
+            closeQuietly(parser);
+        }
+
+        if (!ROOT_PATH.equals(path)) {
+            //Not a full snapshot, replace the value at the path instead
+            metadata = previousMetadata;
+            mapChange(event, false);
+            return;
+        }
+
+        models = snapshot;
+        builtTypes = builtTypes();
+        state.reset(event.getData());
+        eventHandler.handleData(makeUpdate());
     }
 
-    @SuppressWarnings("unchecked")
-    private <T extends Parcelable> void deserialize(
-            ObjectNode node, Map<String, List<? extends Parcelable>> lists, String key, Class<T> clazz)
-            throws ParserException {
+    private void mapChange(StreamingEvent event, boolean merge) throws ParserException {
+        Changes changes = new Changes();
         try {
-            T obj = mapper.readValue(node.toString(), clazz);
-            List<T> list = (List<T>) lists.get(key);
-            list.add(obj);
+            JsonNode envelope = mapper.readTree(event.getData().toByteArray());
+            if (envelope == null || !envelope.isObject()) {
+                throw new ParserException("Unexpected format of data payload.");
+            }
+
+            String[] path = StateTree.split(envelope.path(KEY_PATH).asText(ROOT_PATH));
+            JsonNode data = envelope.get(KEY_DATA);
+            if (merge) {
+                if (data == null || !data.isObject()) {
+                    throw new ParserException("Unexpected format of patch payload.");
+                }
+
+                Iterator<Map.Entry<String, JsonNode>> fields = data.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    String[] childPath = StateTree.concat(path, StateTree.split(field.getKey()));
+                    state.set(childPath, field.getValue());
+                    changes.add(childPath);
+                }
+            } else {
+                state.set(path, data);
+                changes.add(path);
+            }
+
+            //Types that listeners started or stopped observing since the last event
+            for (String key : MODEL_KEYS) {
+                if (builtTypes != null && builds(key) != builtTypes.contains(key)) {
+                    changes.addAll(key);
+                }
+            }
+
+            if (changes.isEmpty()) return;
+            rebuild(changes);
+            builtTypes = builtTypes();
         } catch (IOException e) {
             throw new ParserException(e);
         }
+
+        eventHandler.handleData(makeUpdate());
     }
 
-    private <T extends Parcelable> void parse(
-            ObjectNode node, Map<String, List<? extends Parcelable>> lists,
-            String key, Class<T> clazz) throws ParserException {
+    private void rebuild(Changes changes) throws IOException {
+        if (changes.metadata) {
+            JsonNode node = state.get(Constants.KEY_METADATA);
+            metadata = node != null && node.isObject()
+                    ? readMetadata(mapper.treeAsTokens(node)) : null;
+        }
+
+        for (Map.Entry<String, Set<String>> change : changes.models.entrySet()) {
+            String key = change.getKey();
+            //Copy on write, listeners may still read the models of earlier updates
+            ModelCollection previous = models.get(key);
+            Map<String, Parcelable> target = new LinkedHashMap<>();
+            Map<String, Source> sources = new HashMap<>();
+            models.put(key, new ModelCollection(target, sources));
+            if (!builds(key)) continue;
 
-        Iterator<String> names = node.fieldNames();
-        while(names.hasNext()) {
-            String name = names.next();
-            JsonNode current = node.get(name);
-            if (!(current instanceof ObjectNode)) continue;
+            JsonNode collection = Constants.KEY_STRUCTURES.equals(key)
+                    ? state.get(key) : state.get(Constants.KEY_DEVICES, key);
 
-            if (Constants.KEY_DEVICES.equals(name) || "data".equals(name))
-                parse((ObjectNode) current, lists, null, null);
-            else if (Constants.KEY_STRUCTURES.equals(name))
-                parse((ObjectNode) current, lists, Constants.KEY_STRUCTURES, Structure.class);
-            else if (Constants.KEY_THERMOSTATS.equals(name))
-                parse((ObjectNode) current, lists, Constants.KEY_THERMOSTATS, Thermostat.class);
-            else if (Constants.KEY_CAMERAS.equals(name))
-                parse((ObjectNode) current, lists, Constants.KEY_CAMERAS, Camera.class);
-            else if (Constants.KEY_SMOKE_CO_ALARMS.equals(name))
-                parse((ObjectNode) current, lists, Constants.KEY_SMOKE_CO_ALARMS, SmokeCOAlarm.class);
-            else if (Constants.KEY_METADATA.equals(name))
-                deserialize((ObjectNode) current, lists, Constants.KEY_METADATA, Metadata.class);
-            else if (key != null && clazz != null) {
-                deserialize((ObjectNode) current, lists, key, clazz);
+            if (change.getValue() == null) {
+                //The whole collection changed
+                if (collection == null) continue;
+
+                Iterator<Map.Entry<String, JsonNode>> fields = collection.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    JsonNode node = field.getValue();
+                    if (node.isObject() && includes(key, field.getKey(), node)) {
+                        target.put(field.getKey(), readModel(node, key));
+                    }
+                }
+                continue;
+            }
+
+            target.putAll(previous.get());
+            sources.putAll(previous.sources());
+            sources.keySet().removeAll(change.getValue());
+            for (String id : change.getValue()) {
+                JsonNode node = collection == null ? null : collection.get(id);
+                if (node != null && node.isObject() && includes(key, id, node)) {
+                    target.put(id, readModel(node, key));
+                } else {
+                    target.remove(id);
+                }
             }
         }
     }
 
-    private void mapData(String json) throws ParserException  {
-        List<Thermostat> thermostats = new ArrayList<>();
-        List<Camera> cameras = new ArrayList<>();
-        List<SmokeCOAlarm> smokeAlarms = new ArrayList<>();
-        List<Structure> structures = new ArrayList<>();
-        List<Metadata> metadata = new ArrayList<>();
+    /**
+     * Builds the types that listeners started observing from the state, instead of waiting for
+     * the next event, and drops the ones nobody observes anymore.
+     */
+    private synchronized void observedTypesChanged() {
+        //A listener added while an event is dispatched gets its types with the next event
+        if (mapping || builtTypes == null) return;
+
+        observedTypes = demand.getObservedTypes();
+        Changes changes = new Changes();
+        boolean added = false;
+        for (String key : MODEL_KEYS) {
+            if (builds(key) == builtTypes.contains(key)) continue;
 
-        Map<String, List<? extends Parcelable>> lists = new HashMap<>();
-        lists.put(Constants.KEY_THERMOSTATS, thermostats);
-        lists.put(Constants.KEY_STRUCTURES, structures);
-        lists.put(Constants.KEY_CAMERAS, cameras);
-        lists.put(Constants.KEY_SMOKE_CO_ALARMS, smokeAlarms);
-        lists.put(Constants.KEY_METADATA, metadata);
+            changes.addAll(key);
+            added |= builds(key);
+        }
+        if (changes.isEmpty()) return;
 
         try {
-            JsonNode node = mapper.readTree(json);
-            parse((ObjectNode) node, lists, null, null);
+            rebuild(changes);
         } catch (IOException e) {
-            throw new ParserException(e);
+            //The next event rebuilds them again, and fails the stream without a handler
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(new NestException("Unable to bind the models.", e));
+            }
+            return;
         }
+        builtTypes = builtTypes();
+        if (added) eventHandler.handleData(makeUpdate());
+    }
+
+    private <T> ModelLoader<T> loader(String key) {
+        final ModelCollection collection = models.get(key);
+        return new ModelLoader<T>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<T> load() {
+                try {
+                    return new ArrayList<>((Collection<T>) (Collection<?>) collection.get().values());
+                } catch (IOException e) {
+                    if (exceptionHandler == null) {
+                        throw new IllegalStateException("Unable to bind the models.", e);
+                    }
+                    //Called by a listener, so the stream reports it instead
+                    exceptionHandler.handle(new NestException("Unable to bind the models.", e));
+                    return new ArrayList<>();
+                }
+            }
+        };
+    }
 
-        eventHandler.handleData(new GlobalUpdate(
-                thermostats, smokeAlarms, cameras, structures,
-                metadata.size() > 0 ? metadata.get(0) : null));
+    private GlobalUpdate makeUpdate() {
+        return new GlobalUpdate(
+                this.<Thermostat>loader(Constants.KEY_THERMOSTATS),
+                this.<SmokeCOAlarm>loader(Constants.KEY_SMOKE_CO_ALARMS),
+                this.<Camera>loader(Constants.KEY_CAMERAS),
+                this.<Structure>loader(Constants.KEY_STRUCTURES),
+                metadata);
     }
 
-    private void mapError(String json) throws ParserException {
+    private void mapError(StreamingEvent event) throws ParserException {
         try {
-            ErrorMessage error = mapper.readValue(json, ErrorMessage.class);
+            ErrorMessage error = errorReader.readValue(event.getData().toByteArray());
             eventHandler.handleError(error);
         } catch (IOException e) {
             throw new ParserException(e);
         }
     }
 
+    private static void closeQuietly(JsonParser parser) {
+        if (parser == null) return;
+        try {
+            parser.close();
+        } catch (IOException ignore) { }
+    }
+
     @Override
-    public void map(StreamingEvent event) throws ParserException {
-        switch(event.getEventType()) {
-            case "put":
-                mapData(event.getMessage());
-                break;
-            case "auth_revoked":
-                eventHandler.handleAuthRevoked();
-                break;
-            case "error":
-                mapError(event.getMessage());
-                break;
+    public synchronized void map(StreamingEvent event) throws ParserException {
+        observedTypes = demand == null ? null : demand.getObservedTypes();
+        mapping = true;
+        try {
+            switch(event.getEventType()) {
+                case "put":
+                    mapData(event);
+                    break;
+                case "patch":
+                    mapChange(event, true);
+                    break;
+                case "auth_revoked":
+                    eventHandler.handleAuthRevoked();
+                    break;
+                case "error":
+                    mapError(event);
+                    break;
+            }
+        } finally {
+            mapping = false;
+        }
+    }
+
+    /**
+     * The models of one type. A collection from a snapshot keeps the bytes of its JSON and is
+     * bound the first time it is read, on any thread. Bound models are never modified, changes
+     * make a new collection.
+     */
+    private final class ModelCollection {
+        private final String key;
+        private byte[] payload;
+        private int offset;
+        private int length;
+        private Set<String> structureDevices;
+        //The last bound collection of the type, to reuse models from
+        private ModelCollection previous;
+        private Map<String, Parcelable> models;
+        //Where each model was bound from, if known
+        private Map<String, Source> sources;
+
+        ModelCollection(Map<String, Parcelable> models, Map<String, Source> sources) {
+            this.key = null;
+            this.models = models;
+            this.sources = sources;
+        }
+
+        ModelCollection(String key, byte[] payload, int offset, int length,
+                        Set<String> structureDevices, ModelCollection previous) {
+            this.key = key;
+            this.payload = payload;
+            this.offset = offset;
+            this.length = length;
+            this.structureDevices = structureDevices;
+            this.previous = previous;
+        }
+
+        /**
+         * Returns this collection if it is bound, or the one it would reuse models from, so
+         * collections that are never read do not chain up.
+         */
+        synchronized ModelCollection reusable() {
+            return models != null ? this : previous;
+        }
+
+        synchronized Map<String, Source> sources() {
+            return sources == null ? Collections.<String, Source>emptyMap() : sources;
+        }
+
+        synchronized Map<String, Parcelable> get() throws IOException {
+            if (models != null) return models;
+
+            Map<String, Parcelable> reuse = Collections.emptyMap();
+            Map<String, Source> known = Collections.emptyMap();
+            if (previous != null) {
+                reuse = previous.get();
+                known = previous.sources();
+            }
+
+            Map<String, Parcelable> bound = new LinkedHashMap<>();
+            Map<String, Source> boundSources = new HashMap<>();
+            JsonParser parser = null;
+            try {
+                parser = factory.createParser(payload, offset, length);
+                parser.nextToken();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String id = parser.getCurrentName();
+                    if (parser.nextToken() != JsonToken.START_OBJECT
+                            || !includes(key, id, structureDevices)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    int start = offset + (int) parser.getTokenLocation().getByteOffset();
+                    Source source = known.get(id);
+                    Parcelable model;
+                    if (source != null && reuse.containsKey(id)) {
+                        //Skipping is far cheaper than binding, bind again only if it changed
+                        parser.skipChildren();
+                        int end = offset + (int) parser.getCurrentLocation().getByteOffset();
+                        if (source.sameBytes(payload, start, end - start)) model = reuse.get(id);
+                        else model = bind(payload, start, end - start);
+                    } else {
+                        model = readModel(parser, key);
+                    }
+
+                    int end = offset + (int) parser.getCurrentLocation().getByteOffset();
+                    bound.put(id, model);
+                    boundSources.put(id, new Source(payload, start, end - start));
+                }
+            } finally {
+                closeQuietly(parser);
+            }
+
+            models = bound;
+            sources = boundSources;
+            payload = null;
+            structureDevices = null;
+            previous = null;
+            return models;
+        }
+
+        private Parcelable bind(byte[] bytes, int start, int length) throws IOException {
+            JsonParser parser = null;
+            try {
+                parser = factory.createParser(bytes, start, length);
+                parser.nextToken();
+                return readModel(parser, key);
+            } finally {
+                closeQuietly(parser);
+            }
+        }
+    }
+
+    /**
+     * The bytes of the JSON a model was bound from.
+     */
+    private static final class Source {
+        final byte[] payload;
+        final int offset;
+        final int length;
+
+        Source(byte[] payload, int offset, int length) {
+            this.payload = payload;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        boolean sameBytes(byte[] other, int otherOffset, int otherLength) {
+            if (length != otherLength) return false;
+            if (payload == other && offset == otherOffset) return true;
+
+            for (int i = 0; i < length; i++) {
+                if (payload[offset + i] != other[otherOffset + i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Models affected by an incremental change. A null id set means the whole collection.
+     */
+    private static final class Changes {
+        boolean metadata = false;
+        final Map<String, Set<String>> models = new HashMap<>();
+
+        boolean isEmpty() {
+            return !metadata && models.isEmpty();
+        }
+
+        void addAll(String key) {
+            models.put(key, null);
+        }
+
+        private void add(String key, String id) {
+            if (models.containsKey(key) && models.get(key) == null) return;
+
+            Set<String> ids = models.get(key);
+            if (ids == null) {
+                ids = new HashSet<>();
+                models.put(key, ids);
+            }
+            ids.add(id);
+        }
+
+        void add(String[] path) {
+            if (path.length == 0) {
+                metadata = true;
+                for (String key : MODEL_KEYS) addAll(key);
+            } else if (Constants.KEY_METADATA.equals(path[0])) {
+                metadata = true;
+            } else if (Constants.KEY_STRUCTURES.equals(path[0])) {
+                if (path.length == 1) addAll(Constants.KEY_STRUCTURES);
+                else add(Constants.KEY_STRUCTURES, path[1]);
+            } else if (Constants.KEY_DEVICES.equals(path[0])) {
+                if (path.length == 1) {
+                    for (String key : MODEL_KEYS) {
+                        if (!Constants.KEY_STRUCTURES.equals(key)) addAll(key);
+                    }
+                } else if (!Constants.KEY_STRUCTURES.equals(path[1]) && isModelKey(path[1])) {
+                    if (path.length == 2) addAll(path[1]);
+                    else add(path[1], path[2]);
+                }
+            }
+        }
+
+        private static boolean isModelKey(String key) {
+            for (String modelKey : MODEL_KEYS) {
+                if (modelKey.equals(key)) return true;
+            }
+            return false;
         }
     }
 }
@@ -0,0 +1,244 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nestlabs.sdk.models.Camera;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.ModelCodec;
+import com.nestlabs.sdk.models.ModelCodecs;
+import com.nestlabs.sdk.models.ModelLoader;
+import com.nestlabs.sdk.models.SmokeCOAlarm;
+import com.nestlabs.sdk.models.Structure;
+import com.nestlabs.sdk.models.Thermostat;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Saves the models of a {@link GlobalUpdate} to a local file, so the next session can show them
+ * before the stream sends its first update. Snapshots are memory-mapped when they are restored,
+ * and the models of a type are only read the first time they are read from the update.
+ *
+ * A snapshot starts with the {@link #MAGIC} bytes, which include the version of the format, the
+ * wall clock time it was saved at and the SHA-256 digest of the access token it was saved for. It
+ * is followed by one section per model type: the index of the type, the number of models and
+ * each model as its length and its JSON, written by the model's {@link ModelCodec}. Only the
+ * framing is binary, the models are stored as JSON text, so a snapshot is about the size of the
+ * account's JSON. The codecs read it back without databind, and a type is only decoded when it is
+ * read. The {@link com.nestlabs.sdk.models.Metadata} is never saved, so the access token is not
+ * written to storage.
+ */
+public final class SnapshotFile {
+
+    static final byte[] MAGIC = {'W', 'W', 'N', 'S', 'N', 'P', '0', '1'};
+    static final int DIGEST_SIZE = 32;
+    static final int HEADER_SIZE = MAGIC.length + 8 + DIGEST_SIZE + 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Class<?>[] TYPES = {
+            Structure.class, Thermostat.class, SmokeCOAlarm.class, Camera.class };
+    private static final int STRUCTURES = 0;
+    private static final int THERMOSTATS = 1;
+    private static final int SMOKE_CO_ALARMS = 2;
+    private static final int CAMERAS = 3;
+
+    private final File file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public SnapshotFile(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replaces the snapshot with the models of the update. The file is replaced atomically, so a
+     * failed write leaves the previous snapshot in place.
+     *
+     * @param update the update to save.
+     * @param token  the access token the update was received with.
+     */
+    public void write(@NonNull GlobalUpdate update, @NonNull String token) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            List<?>[] sections = new List<?>[TYPES.length];
+            sections[STRUCTURES] = update.getStructures();
+            sections[THERMOSTATS] = update.getThermostats();
+            sections[SMOKE_CO_ALARMS] = update.getSmokeCOAlarms();
+            sections[CAMERAS] = update.getCameras();
+
+            out.write(MAGIC);
+            out.writeLong(System.currentTimeMillis());
+            out.write(digest(token));
+            out.writeInt(TYPES.length);
+            for (int type = 0; type < TYPES.length; type++) {
+                List<?> models = sections[type];
+                int count = models == null ? 0 : models.size();
+                out.writeInt(type);
+                out.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    byte[] json = encode(models.get(i));
+                    out.writeInt(json.length);
+                    out.write(json);
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to replace the snapshot " + file);
+        }
+    }
+
+    /**
+     * Restores the snapshot saved for the access token, as a {@link GlobalUpdate#isStale() stale}
+     * update without metadata. The models are read from the file when they are first read from
+     * the update, a model that can not be read then fails with an {@link IllegalStateException}.
+     *
+     * @param token the access token the stream is started with.
+     * @return the restored update, or null if there is no snapshot for the token in this format.
+     * @throws IOException if the snapshot can not be mapped or is truncated.
+     */
+    @Nullable
+    public GlobalUpdate read(@NonNull String token) throws IOException {
+        if (!file.isFile()) return null;
+
+        ByteBuffer snapshot;
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            snapshot = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+        } finally {
+            input.close();
+        }
+
+        if (snapshot.remaining() < HEADER_SIZE) return null;
+        byte[] magic = new byte[MAGIC.length];
+        snapshot.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) return null;
+
+        snapshot.getLong();
+        byte[] digest = new byte[DIGEST_SIZE];
+        snapshot.get(digest);
+        if (!MessageDigest.isEqual(digest, digest(token))) return null;
+
+        //Only the bounds are checked here, the models are decoded on first read
+        ByteBuffer[] sections = new ByteBuffer[TYPES.length];
+        int[] counts = new int[TYPES.length];
+        int sectionCount = snapshot.getInt();
+        for (int i = 0; i < sectionCount; i++) {
+            if (snapshot.remaining() < 8) throw truncated();
+            int type = snapshot.getInt();
+            int count = snapshot.getInt();
+            if (type < 0 || type >= TYPES.length || count < 0) throw truncated();
+
+            int start = snapshot.position();
+            for (int j = 0; j < count; j++) {
+                if (snapshot.remaining() < 4) throw truncated();
+                int length = snapshot.getInt();
+                if (length < 0 || snapshot.remaining() < length) throw truncated();
+                snapshot.position(snapshot.position() + length);
+            }
+
+            ByteBuffer section = snapshot.duplicate();
+            section.position(start);
+            section.limit(snapshot.position());
+            sections[type] = section.slice();
+            counts[type] = count;
+        }
+
+        return new GlobalUpdate(
+                this.<Thermostat>loader(THERMOSTATS, sections, counts),
+                this.<SmokeCOAlarm>loader(SMOKE_CO_ALARMS, sections, counts),
+                this.<Camera>loader(CAMERAS, sections, counts),
+                this.<Structure>loader(STRUCTURES, sections, counts),
+                null, true);
+    }
+
+    /**
+     * Deletes the snapshot, e.g. when the access token it was saved for is revoked.
+     */
+    public void delete() {
+        file.delete();
+    }
+
+    private IOException truncated() {
+        return new IOException("Truncated snapshot: " + file);
+    }
+
+    private <T> ModelLoader<T> loader(int type, ByteBuffer[] sections, int[] counts) {
+        @SuppressWarnings("unchecked")
+        final Class<T> modelType = (Class<T>) TYPES[type];
+        final ByteBuffer section = sections[type];
+        final int count = counts[type];
+        return new ModelLoader<T>() {
+            @Override
+            public List<T> load() {
+                List<T> models = new ArrayList<>(count);
+                if (section == null) return models;
+
+                ByteBuffer buffer = section.duplicate();
+                try {
+                    for (int i = 0; i < count; i++) {
+                        byte[] json = new byte[buffer.getInt()];
+                        buffer.get(json);
+                        models.add(decode(modelType, json));
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to read the snapshot.", e);
+                }
+                return models;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] encode(Object model) throws IOException {
+        ModelCodec<Object> codec = (ModelCodec<Object>) ModelCodecs.get(model.getClass());
+        if (codec == null) return mapper.writeValueAsBytes(model);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonGenerator generator = mapper.getFactory().createGenerator(bytes);
+        codec.write(generator, model);
+        generator.close();
+        return bytes.toByteArray();
+    }
+
+    private <T> T decode(Class<T> type, byte[] json) throws IOException {
+        ModelCodec<T> codec = ModelCodecs.get(type);
+        if (codec == null) return mapper.readValue(json, type);
+
+        JsonParser parser = mapper.getFactory().createParser(json);
+        try {
+            return codec.read(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
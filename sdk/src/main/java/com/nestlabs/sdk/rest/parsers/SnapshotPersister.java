@@ -0,0 +1,142 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.rest.RetryScheduler;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Saves the latest {@link GlobalUpdate} to a {@link SnapshotFile} and passes every event on to
+ * the wrapped {@link StreamingEventHandler}. Updates are saved at most once per interval: the
+ * first update of an interval schedules a save on the {@link RetryScheduler}, which hands it to
+ * the write executor once the interval ended, and only the newest update is written then. The
+ * scheduler only keeps the time, so writes never delay the retries scheduled on it. Stale updates
+ * are never saved, and the snapshot is deleted when the access token is revoked.
+ *
+ * Write failures are reported to the {@link ExceptionHandler}, the previous snapshot is kept.
+ */
+public class SnapshotPersister implements StreamingEventHandler {
+
+    private final StreamingEventHandler eventHandler;
+    private final SnapshotFile file;
+    private final long intervalMillis;
+    private final RetryScheduler scheduler;
+    private final Executor writeExecutor;
+    private final ExceptionHandler exceptionHandler;
+    private final Object lock = new Object();
+    //Held while the file is written or deleted, so a revoked snapshot is never written back
+    private final Object fileLock = new Object();
+    private String token;
+    private GlobalUpdate pending;
+    private Future<?> save;
+
+    private final Runnable saveTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (fileLock) {
+                GlobalUpdate update;
+                String token;
+                synchronized (lock) {
+                    save = null;
+                    update = pending;
+                    token = SnapshotPersister.this.token;
+                    pending = null;
+                }
+                if (update == null || token == null) return;
+
+                try {
+                    file.write(update, token);
+                } catch (IOException | RuntimeException e) {
+                    exceptionHandler.handle(new NestException("Unable to save the snapshot.", e));
+                }
+            }
+        }
+    };
+
+    private final Runnable intervalEnd = new Runnable() {
+        @Override
+        public void run() {
+            writeExecutor.execute(saveTask);
+        }
+    };
+
+    /**
+     * Creates a persister that saves the updates it passes on to the file.
+     *
+     * @param scheduler     times the interval between saves.
+     * @param writeExecutor binds, encodes and writes the update once the interval ended.
+     */
+    public SnapshotPersister(@NonNull StreamingEventHandler handler, @NonNull SnapshotFile file,
+                             long intervalMillis, @NonNull RetryScheduler scheduler,
+                             @NonNull Executor writeExecutor,
+                             @NonNull ExceptionHandler exceptionHandler) {
+        this.eventHandler = handler;
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+        this.scheduler = scheduler;
+        this.writeExecutor = writeExecutor;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * Restores the snapshot saved for the access token, and saves the updates that follow for it.
+     * A snapshot that can not be restored is deleted and reported to the {@link ExceptionHandler}.
+     *
+     * @param token the access token the stream is started with.
+     * @return the stale update restored from the snapshot, or null if there is none.
+     */
+    @Nullable
+    public GlobalUpdate restore(@NonNull String token) {
+        synchronized (lock) {
+            this.token = token;
+            pending = null;
+        }
+
+        synchronized (fileLock) {
+            try {
+                return file.read(token);
+            } catch (IOException e) {
+                file.delete();
+                exceptionHandler.handle(new NestException("Unable to restore the snapshot.", e));
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void handleData(GlobalUpdate event) {
+        if (!event.isStale()) {
+            synchronized (lock) {
+                pending = event;
+                if (save == null) save = scheduler.schedule(intervalEnd, intervalMillis);
+            }
+        }
+        eventHandler.handleData(event);
+    }
+
+    @Override
+    public void handleError(ErrorMessage errorMessage) {
+        eventHandler.handleError(errorMessage);
+    }
+
+    @Override
+    public void handleAuthRevoked() {
+        synchronized (lock) {
+            token = null;
+            pending = null;
+            if (save != null) save.cancel(false);
+            save = null;
+        }
+        synchronized (fileLock) {
+            file.delete();
+        }
+        eventHandler.handleAuthRevoked();
+    }
+}
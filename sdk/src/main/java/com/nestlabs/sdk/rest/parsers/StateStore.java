@@ -0,0 +1,251 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.nestlabs.sdk.models.Camera;
+import com.nestlabs.sdk.models.Device;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.Metadata;
+import com.nestlabs.sdk.models.SmokeCOAlarm;
+import com.nestlabs.sdk.models.Structure;
+import com.nestlabs.sdk.models.Thermostat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the latest state of the account, as seen by the stream, and passes every event on to the
+ * wrapped {@link StreamingEventHandler}. Each update is published atomically as an immutable
+ * snapshot, so lookups from any thread are constant time, never block on each other and always see
+ * a consistent view of a single update.
+ *
+ * A snapshot indexes the models of a type on the first lookup of that type, so the models of lazy
+ * updates are only bound for the types that are looked up. Indexes are published without a lock:
+ * threads that look up a type at the same time may each build its index, the first lookups of a
+ * type only wait for the update to bind its models.
+ */
+public class StateStore implements StreamingEventHandler {
+
+    private static final Snapshot EMPTY = new Snapshot(null);
+
+    private final StreamingEventHandler eventHandler;
+    private volatile Snapshot snapshot = EMPTY;
+
+    public StateStore(@NonNull final StreamingEventHandler handler) {
+        this.eventHandler = handler;
+    }
+
+    /**
+     * Returns the last {@link GlobalUpdate} received, or null if nothing was received yet.
+     */
+    @Nullable
+    public GlobalUpdate getLastUpdate() {
+        return snapshot.update;
+    }
+
+    /**
+     * Returns true if the state was restored from a snapshot and the stream did not send a live
+     * update yet.
+     */
+    public boolean isStale() {
+        GlobalUpdate update = snapshot.update;
+        return update != null && update.isStale();
+    }
+
+    @Nullable
+    public Metadata getMetadata() {
+        return snapshot.update == null ? null : snapshot.update.getMetadata();
+    }
+
+    @Nullable
+    public Structure getStructure(String structureId) {
+        return snapshot.structures().get(structureId);
+    }
+
+    @Nullable
+    public Device getDevice(String deviceId) {
+        return snapshot.devices().devices.get(deviceId);
+    }
+
+    @Nullable
+    public Thermostat getThermostat(String deviceId) {
+        return snapshot.thermostats().get(deviceId);
+    }
+
+    @Nullable
+    public SmokeCOAlarm getSmokeCOAlarm(String deviceId) {
+        return snapshot.smokeCOAlarms().get(deviceId);
+    }
+
+    @Nullable
+    public Camera getCamera(String deviceId) {
+        return snapshot.cameras().get(deviceId);
+    }
+
+    /**
+     * Returns all the devices with the given structure_id, or an empty list.
+     */
+    @NonNull
+    public List<Device> getDevicesInStructure(String structureId) {
+        return lookup(snapshot.devices().byStructure, structureId);
+    }
+
+    /**
+     * Returns all the devices with the given where_id, or an empty list.
+     */
+    @NonNull
+    public List<Device> getDevicesInWhere(String whereId) {
+        return lookup(snapshot.devices().byWhere, whereId);
+    }
+
+    /**
+     * Forgets the stored state, e.g. when a stream for a different account is started.
+     */
+    public void clear() {
+        snapshot = EMPTY;
+    }
+
+    private static List<Device> lookup(Map<String, List<Device>> index, String key) {
+        List<Device> devices = index.get(key);
+        return devices == null ? Collections.<Device>emptyList() : devices;
+    }
+
+    @Override
+    public void handleData(GlobalUpdate event) {
+        snapshot = new Snapshot(event);
+        eventHandler.handleData(event);
+    }
+
+    @Override
+    public void handleError(ErrorMessage errorMessage) {
+        eventHandler.handleError(errorMessage);
+    }
+
+    @Override
+    public void handleAuthRevoked() {
+        eventHandler.handleAuthRevoked();
+    }
+
+    /**
+     * Indexes of a single update, each built on its first lookup. Indexes are never modified once
+     * they are published, so a racy lookup builds an equal index at worst.
+     */
+    private static final class Snapshot {
+        final GlobalUpdate update;
+        private volatile Map<String, Structure> structures;
+        private volatile Map<String, Thermostat> thermostats;
+        private volatile Map<String, SmokeCOAlarm> smokeCOAlarms;
+        private volatile Map<String, Camera> cameras;
+        private volatile DeviceIndex devices;
+
+        Snapshot(GlobalUpdate update) {
+            this.update = update;
+        }
+
+        Map<String, Structure> structures() {
+            Map<String, Structure> index = structures;
+            if (index == null) {
+                index = new HashMap<>();
+                if (update != null && update.getStructures() != null) {
+                    for (Structure structure : update.getStructures()) {
+                        index.put(structure.getStructureId(), structure);
+                    }
+                }
+                structures = index;
+            }
+            return index;
+        }
+
+        Map<String, Thermostat> thermostats() {
+            Map<String, Thermostat> index = thermostats;
+            if (index == null) {
+                index = index(update == null ? null : update.getThermostats());
+                thermostats = index;
+            }
+            return index;
+        }
+
+        Map<String, SmokeCOAlarm> smokeCOAlarms() {
+            Map<String, SmokeCOAlarm> index = smokeCOAlarms;
+            if (index == null) {
+                index = index(update == null ? null : update.getSmokeCOAlarms());
+                smokeCOAlarms = index;
+            }
+            return index;
+        }
+
+        Map<String, Camera> cameras() {
+            Map<String, Camera> index = cameras;
+            if (index == null) {
+                index = index(update == null ? null : update.getCameras());
+                cameras = index;
+            }
+            return index;
+        }
+
+        DeviceIndex devices() {
+            DeviceIndex index = devices;
+            if (index == null) {
+                index = new DeviceIndex();
+                index.addAll(thermostats().values());
+                index.addAll(smokeCOAlarms().values());
+                index.addAll(cameras().values());
+                seal(index.byStructure);
+                seal(index.byWhere);
+                devices = index;
+            }
+            return index;
+        }
+
+        private static <T extends Device> Map<String, T> index(List<T> source) {
+            //Keeps the order of the update for the device lists
+            Map<String, T> index = new LinkedHashMap<>();
+            if (source == null) return index;
+
+            for (T device : source) {
+                index.put(device.getDeviceId(), device);
+            }
+            return index;
+        }
+
+        private static void seal(Map<String, List<Device>> index) {
+            for (Map.Entry<String, List<Device>> entry : index.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Devices of all types, by id, structure and where.
+     */
+    private static final class DeviceIndex {
+        final Map<String, Device> devices = new HashMap<>();
+        final Map<String, List<Device>> byStructure = new HashMap<>();
+        final Map<String, List<Device>> byWhere = new HashMap<>();
+
+        void addAll(Collection<? extends Device> source) {
+            for (Device device : source) {
+                devices.put(device.getDeviceId(), device);
+                group(byStructure, device.getStructureId(), device);
+                group(byWhere, device.getWhereId(), device);
+            }
+        }
+
+        private static void group(Map<String, List<Device>> index, String key, Device device) {
+            if (key == null) return;
+
+            List<Device> group = index.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                index.put(key, group);
+            }
+            group.add(device);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okio.ByteString;
+
+/**
+ * Local copy of the account state that incremental events are applied to. The last full snapshot
+ * is kept as raw bytes and only expanded into a tree once the first incremental change arrives,
+ * so streams that only ever send full snapshots pay nothing for it.
+ */
+final class StateTree {
+
+    static final String[] ROOT = new String[0];
+    private static final String KEY_PATH = "path";
+    private static final String KEY_DATA = "data";
+
+    private final ObjectMapper mapper;
+    private ByteString snapshot;
+    private ObjectNode root;
+
+    StateTree(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Splits a slash separated path into its segments, ignoring empty segments.
+     */
+    static String[] split(String path) {
+        if (path == null) return ROOT;
+
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) end = path.length();
+            if (end > start) segments.add(path.substring(start, end));
+            start = end + 1;
+        }
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    static String[] concat(String[] parent, String[] child) {
+        String[] path = new String[parent.length + child.length];
+        System.arraycopy(parent, 0, path, 0, parent.length);
+        System.arraycopy(child, 0, path, parent.length, child.length);
+        return path;
+    }
+
+    /**
+     * Replaces the whole state with a full snapshot payload, optionally wrapped in a
+     * {@code {"path": "/", "data": {...}}} envelope.
+     */
+    void reset(ByteString payload) {
+        snapshot = payload;
+        root = null;
+    }
+
+    ObjectNode root() throws IOException {
+        if (root == null) {
+            root = snapshot == null ? mapper.createObjectNode()
+                    : unwrap(mapper.readTree(snapshot.toByteArray()));
+            snapshot = null;
+        }
+        return root;
+    }
+
+    private ObjectNode unwrap(JsonNode node) {
+        if (node != null && node.has(KEY_PATH)) node = node.get(KEY_DATA);
+        return node instanceof ObjectNode ? (ObjectNode) node : mapper.createObjectNode();
+    }
+
+    /**
+     * Returns the node at the given path, or null if there is none.
+     */
+    JsonNode get(String... path) throws IOException {
+        JsonNode node = root();
+        for (int i = 0; node != null && i < path.length; i++) {
+            node = node.get(path[i]);
+        }
+        return node;
+    }
+
+    /**
+     * Sets the value at the given path, creating intermediate objects as needed. A null value
+     * removes the node.
+     */
+    void set(String[] path, JsonNode value) throws IOException {
+        boolean remove = value == null || value.isNull();
+        if (path.length == 0) {
+            snapshot = null;
+            root = !remove && value instanceof ObjectNode
+                    ? (ObjectNode) value : mapper.createObjectNode();
+            return;
+        }
+
+        ObjectNode parent = root();
+        for (int i = 0; i < path.length - 1; i++) {
+            JsonNode child = parent.get(path[i]);
+            if (!(child instanceof ObjectNode)) {
+                if (remove) return;
+                child = parent.putObject(path[i]);
+            }
+            parent = (ObjectNode) child;
+        }
+
+        String name = path[path.length - 1];
+        if (remove) parent.remove(name);
+        else parent.set(name, value);
+    }
+}
@@ -1,19 +1,45 @@
 package com.nestlabs.sdk.rest.parsers;
 
+import okio.ByteString;
+
 public class StreamingEvent {
     private final String eventType;
-    private final String message;
+    private String message;
+    private ByteString data;
 
     public String getEventType() {
         return eventType;
     }
 
     public String getMessage() {
+        if (message == null && data != null) message = data.utf8();
         return message;
     }
 
+    /**
+     * Returns the raw UTF-8 payload of the event. Mappers should prefer this over
+     * {@link #getMessage()} to avoid decoding the payload into a String.
+     */
+    public ByteString getData() {
+        if (data == null && message != null) data = ByteString.encodeUtf8(message);
+        return data;
+    }
+
     public StreamingEvent(final String eventType, final String message) {
+        this(eventType, message, null);
+    }
+
+    private StreamingEvent(final String eventType, final String message, final ByteString data) {
         this.eventType = eventType;
         this.message = message;
+        this.data = data;
+    }
+
+    /**
+     * Creates an event from its raw UTF-8 payload, which is only decoded into a String if
+     * {@link #getMessage()} is called.
+     */
+    public static StreamingEvent fromBytes(final String eventType, final ByteString data) {
+        return new StreamingEvent(eventType, null, data);
     }
 }
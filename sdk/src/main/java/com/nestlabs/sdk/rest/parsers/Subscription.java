@@ -0,0 +1,148 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Selects the part of an account that {@link ObjectModelMapper} materializes. Everything outside
+ * of it is skipped in the token stream, so it is never bound to a model. Each filter left empty
+ * matches everything, filters that are set must all match:
+ * <ul>
+ *     <li>Types, e.g. {@link Constants#KEY_THERMOSTATS} or {@link Constants#KEY_STRUCTURES},
+ *     select whole collections.</li>
+ *     <li>Structure IDs select structures, and the devices whose {@code structure_id} is one of
+ *     them.</li>
+ *     <li>Device IDs select devices. Structures are not affected.</li>
+ *     <li>Fields select the keys that are bound in every model, e.g. to leave out the
+ *     {@code wheres} of structures. The IDs of models are always bound.</li>
+ * </ul>
+ *
+ * {@link Builder#setObservedTypesOnly(boolean)} further limits the types to those that the
+ * listeners of the client observe, see {@link Notifier#getObservedTypes()}. The state store of
+ * the client then only holds those types too, so it is off by default.
+ */
+public final class Subscription {
+
+    /**
+     * Matches the whole account.
+     */
+    public static final Subscription ALL = new Builder().build();
+
+    private static final String KEY_DEVICE_ID = "device_id";
+    private static final String KEY_STRUCTURE_ID = "structure_id";
+
+    private final Set<String> types;
+    private final Set<String> structureIds;
+    private final Set<String> deviceIds;
+    private final Set<String> fields;
+    private final boolean observedTypesOnly;
+
+    private Subscription(Builder builder) {
+        this.types = new HashSet<>(builder.types);
+        this.structureIds = new HashSet<>(builder.structureIds);
+        this.deviceIds = new HashSet<>(builder.deviceIds);
+        this.fields = new HashSet<>(builder.fields);
+        this.observedTypesOnly = builder.observedTypesOnly;
+        if (!fields.isEmpty()) {
+            fields.add(KEY_DEVICE_ID);
+            fields.add(KEY_STRUCTURE_ID);
+        }
+    }
+
+    public Set<String> getTypes() {
+        return Collections.unmodifiableSet(types);
+    }
+
+    public Set<String> getStructureIds() {
+        return Collections.unmodifiableSet(structureIds);
+    }
+
+    public Set<String> getDeviceIds() {
+        return Collections.unmodifiableSet(deviceIds);
+    }
+
+    public Set<String> getFields() {
+        return Collections.unmodifiableSet(fields);
+    }
+
+    public boolean isObservedTypesOnly() {
+        return observedTypesOnly;
+    }
+
+    /**
+     * Returns true if devices can only be matched after looking up their structure.
+     */
+    boolean filtersDevicesByStructure() {
+        return !structureIds.isEmpty();
+    }
+
+    boolean filtersFields() {
+        return !fields.isEmpty();
+    }
+
+    boolean includesType(String type) {
+        return types.isEmpty() || types.contains(type);
+    }
+
+    boolean includesStructure(String structureId) {
+        return structureIds.isEmpty() || structureIds.contains(structureId);
+    }
+
+    /**
+     * Returns true if the device is selected by its ID. Devices in a structure that is filtered
+     * out still need to be checked with {@link #includesStructure(String)}.
+     */
+    boolean includesDevice(String deviceId) {
+        return deviceIds.isEmpty() || deviceIds.contains(deviceId);
+    }
+
+    boolean includesField(String field) {
+        return fields.isEmpty() || fields.contains(field);
+    }
+
+    public static final class Builder {
+        private final Set<String> types = new HashSet<>();
+        private final Set<String> structureIds = new HashSet<>();
+        private final Set<String> deviceIds = new HashSet<>();
+        private final Set<String> fields = new HashSet<>();
+        private boolean observedTypesOnly;
+
+        public Builder setTypes(@NonNull String... types) {
+            this.types.addAll(Arrays.asList(types));
+            return this;
+        }
+
+        public Builder setStructureIds(@NonNull String... structureIds) {
+            this.structureIds.addAll(Arrays.asList(structureIds));
+            return this;
+        }
+
+        public Builder setDeviceIds(@NonNull String... deviceIds) {
+            this.deviceIds.addAll(Arrays.asList(deviceIds));
+            return this;
+        }
+
+        public Builder setFields(@NonNull String... fields) {
+            this.fields.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        /**
+         * Only materializes the types that registered listeners observe, e.g. no cameras for an
+         * app that only listens to thermostats. Types that no listener observes are missing from
+         * the state store as well.
+         */
+        public Builder setObservedTypesOnly(boolean observedTypesOnly) {
+            this.observedTypesOnly = observedTypesOnly;
+            return this;
+        }
+
+        public Subscription build() {
+            return new Subscription(this);
+        }
+    }
+}
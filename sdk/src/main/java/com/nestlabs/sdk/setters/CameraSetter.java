@@ -41,4 +41,15 @@ public class CameraSetter {
     public void setIsStreaming(@NonNull String cameraId, boolean isStreaming) {
         setIsStreaming(cameraId, isStreaming, null);
     }
+
+    /**
+     * Starts a write of several fields of a {@link Camera}, sent in a single request when it is
+     * committed.
+     *
+     * @param cameraId The unique identifier of the camera.
+     * @return a {@link RestClient.Write} to set the fields with the Camera KEY_* constants.
+     */
+    public RestClient.Write write(@NonNull String cameraId) {
+        return restClient.write(getPath(cameraId));
+    }
 }
@@ -68,4 +68,15 @@ public class StructureSetter {
     public void setEta(@NonNull String structureId, Structure.ETA eta) {
         setEta(structureId, eta, null);
     }
+
+    /**
+     * Starts a write of several fields of a {@link Structure}, sent in a single request when it
+     * is committed.
+     *
+     * @param structureId The unique identifier for the {@link Structure}.
+     * @return a {@link RestClient.Write} to set the fields with the Structure KEY_* constants.
+     */
+    public RestClient.Write write(@NonNull String structureId) {
+        return restClient.write(getPath(structureId));
+    }
 }
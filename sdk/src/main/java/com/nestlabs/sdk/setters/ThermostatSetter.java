@@ -230,4 +230,73 @@ public class ThermostatSetter {
     public void setLabel(@NonNull String thermostatId, String label, Callback callback) {
         restClient.writeString(getPath(thermostatId), Thermostat.KEY_LABEL, label, callback);
     }
+
+    /**
+     * Sets the minimum and maximum target temperatures, in whole degrees Fahrenheit (1&deg;F), in
+     * a single request. Used when hvac_mode = "heat-cool" (Heat / Cool mode).
+     *
+     * @param thermostatId The unique identifier for the {@link Thermostat}.
+     * @param low          The minimum target temperature, in whole degrees Fahrenheit.
+     * @param high         The maximum target temperature, in whole degrees Fahrenheit.
+     * @param callback     A {@link Callback} to receive whether the change was successful.
+     */
+    public void setTargetTemperatureRangeF(@NonNull String thermostatId, long low, long high,
+                                           Callback callback) {
+        write(thermostatId)
+                .set(Thermostat.KEY_TARGET_TEMP_LOW_F, low)
+                .set(Thermostat.KEY_TARGET_TEMP_HIGH_F, high)
+                .commit(callback);
+    }
+
+    /**
+     * Sets the minimum and maximum target temperatures, in whole degrees Fahrenheit (1&deg;F), in
+     * a single request. Used when hvac_mode = "heat-cool" (Heat / Cool mode).
+     *
+     * @param thermostatId The unique identifier for the {@link Thermostat}.
+     * @param low          The minimum target temperature, in whole degrees Fahrenheit.
+     * @param high         The maximum target temperature, in whole degrees Fahrenheit.
+     */
+    public void setTargetTemperatureRangeF(@NonNull String thermostatId, long low, long high) {
+        setTargetTemperatureRangeF(thermostatId, low, high, null);
+    }
+
+    /**
+     * Sets the minimum and maximum target temperatures, in half degrees Celsius (0.5&deg;C), in a
+     * single request. Used when hvac_mode = "heat-cool" (Heat / Cool mode).
+     *
+     * @param thermostatId The unique identifier for the {@link Thermostat}.
+     * @param low          The minimum target temperature, in half degrees Celsius.
+     * @param high         The maximum target temperature, in half degrees Celsius.
+     * @param callback     A {@link Callback} to receive whether the change was successful.
+     */
+    public void setTargetTemperatureRangeC(@NonNull String thermostatId, double low, double high,
+                                           Callback callback) {
+        write(thermostatId)
+                .set(Thermostat.KEY_TARGET_TEMP_LOW_C, low)
+                .set(Thermostat.KEY_TARGET_TEMP_HIGH_C, high)
+                .commit(callback);
+    }
+
+    /**
+     * Sets the minimum and maximum target temperatures, in half degrees Celsius (0.5&deg;C), in a
+     * single request. Used when hvac_mode = "heat-cool" (Heat / Cool mode).
+     *
+     * @param thermostatId The unique identifier for the {@link Thermostat}.
+     * @param low          The minimum target temperature, in half degrees Celsius.
+     * @param high         The maximum target temperature, in half degrees Celsius.
+     */
+    public void setTargetTemperatureRangeC(@NonNull String thermostatId, double low, double high) {
+        setTargetTemperatureRangeC(thermostatId, low, high, null);
+    }
+
+    /**
+     * Starts a write of several fields of a {@link Thermostat}, sent in a single request when it
+     * is committed, e.g. to change the hvac_mode together with the target temperatures.
+     *
+     * @param thermostatId The unique identifier for the {@link Thermostat}.
+     * @return a {@link RestClient.Write} to set the fields with the Thermostat KEY_* constants.
+     */
+    public RestClient.Write write(@NonNull String thermostatId) {
+        return restClient.write(getPath(thermostatId));
+    }
 }
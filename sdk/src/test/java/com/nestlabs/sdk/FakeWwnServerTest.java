@@ -0,0 +1,195 @@
+package com.nestlabs.sdk;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.Thermostat;
+import com.nestlabs.sdk.rest.RestClient;
+import com.nestlabs.sdk.rest.RestConfig;
+import com.nestlabs.sdk.rest.RestStreamClient;
+import com.nestlabs.sdk.rest.parsers.ChangeDetector;
+import com.nestlabs.sdk.rest.parsers.ErrorMessage;
+import com.nestlabs.sdk.rest.parsers.MessageParser;
+import com.nestlabs.sdk.rest.parsers.Notifier;
+import com.nestlabs.sdk.rest.parsers.ObjectModelMapper;
+import com.nestlabs.sdk.rest.parsers.StateStore;
+import com.nestlabs.sdk.testing.FakeWwnServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the stream and write clients against a {@link FakeWwnServer} over real sockets.
+ */
+public class FakeWwnServerTest {
+
+    private static final String THERMOSTAT = "thermostats-00000-000";
+
+    private FakeWwnServer server;
+    private Notifier notifier;
+    private MessageParser parser;
+    private RestStreamClient streamClient;
+    private final OkHttpClient httpClient = new OkHttpClient();
+    private final BlockingQueue<GlobalUpdate> updates = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeWwnServer(2, 3);
+        notifier = new Notifier();
+        notifier.addListener(new NestListener.GlobalListener() {
+            @Override
+            public void onUpdate(@NonNull GlobalUpdate update) {
+                updates.add(update);
+            }
+        });
+        parser = new MessageParser(new ObjectModelMapper(new StateStore(new ChangeDetector(notifier))));
+    }
+
+    @After
+    public void tearDown() {
+        if (streamClient != null) streamClient.stop();
+        server.shutdown();
+    }
+
+    private void startStream(RestConfig config) {
+        streamClient = new RestStreamClient.Builder(httpClient, config, parser)
+                .setExceptionHandler(new ExceptionHandler() {
+                    @Override
+                    public void handle(NestException value) { }
+                })
+                .build();
+        streamClient.start("access_token");
+    }
+
+    private static Thermostat find(GlobalUpdate update, String deviceId) {
+        for (Thermostat thermostat : update.getThermostats()) {
+            if (deviceId.equals(thermostat.getDeviceId())) return thermostat;
+        }
+        return null;
+    }
+
+    private class LatchCallback implements Callback {
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onSuccess() {
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(NestException exception) { }
+    }
+
+    @Test
+    public void testStream_shouldReceiveAccount() throws InterruptedException {
+        startStream(server.getRestConfig());
+
+        GlobalUpdate update = updates.poll(5, TimeUnit.SECONDS);
+        assertNotNull(update);
+        assertEquals(update.getStructures().size(), 2);
+        assertEquals(update.getThermostats().size(), 2);
+        assertEquals(update.getCameras().size(), 2);
+        assertEquals(update.getSmokeCOAlarms().size(), 2);
+        assertEquals(server.getStreamCount(), 1);
+    }
+
+    @Test
+    public void testStream_shouldNotWaitForStalledRequest() throws Exception {
+        //Connects without ever sending a request
+        Socket stalled = new Socket("127.0.0.1", server.getPort());
+        try {
+            startStream(server.getRestConfig());
+            assertNotNull(updates.poll(5, TimeUnit.SECONDS));
+        } finally {
+            stalled.close();
+        }
+    }
+
+    @Test
+    public void testWrite_shouldEchoIntoStream() throws InterruptedException {
+        startStream(server.getRestConfig());
+        assertNotNull(updates.poll(5, TimeUnit.SECONDS));
+
+        RestClient restClient = new RestClient(httpClient, server.getRestConfig(), parser);
+        restClient.setToken("access_token");
+        LatchCallback callback = new LatchCallback();
+        restClient.writeLong("/devices/thermostats/" + THERMOSTAT, "target_temperature_f", 61, callback);
+        assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+
+        GlobalUpdate update = updates.poll(5, TimeUnit.SECONDS);
+        assertNotNull(update);
+        assertEquals(find(update, THERMOSTAT).getTargetTemperatureF(), 61);
+        assertEquals(server.getWriteCount(), 1);
+    }
+
+    @Test
+    public void testRedirect_shouldMoveStreamAndWritesToNewHost() throws Exception {
+        FakeWwnServer target = new FakeWwnServer(1, 3);
+        try {
+            server.setRedirect(target.getUrl());
+            startStream(server.getRestConfig());
+            GlobalUpdate update = updates.poll(5, TimeUnit.SECONDS);
+            assertNotNull(update);
+            assertEquals(update.getStructures().size(), 1);
+
+            RestClient restClient = new RestClient(httpClient, server.getRestConfig(), parser);
+            restClient.setToken("access_token");
+            LatchCallback callback = new LatchCallback();
+            restClient.writeLong("/devices/thermostats/" + THERMOSTAT, "target_temperature_f", 61, callback);
+            assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+
+            assertEquals(server.getWriteCount(), 0);
+            assertEquals(target.getWriteCount(), 1);
+            assertEquals(target.getStreamCount(), 1);
+        } finally {
+            target.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvents_shouldNotifyAuthRevokedAndErrors() throws InterruptedException {
+        final CountDownLatch revoked = new CountDownLatch(1);
+        final BlockingQueue<ErrorMessage> errors = new LinkedBlockingQueue<>();
+        notifier.addListener(new NestListener.AuthListener() {
+            @Override
+            public void onAuthFailure(NestException exception) { }
+
+            @Override
+            public void onAuthRevoked() {
+                revoked.countDown();
+            }
+        });
+        notifier.addListener(new NestListener.ErrorListener() {
+            @Override
+            public void onError(ErrorMessage errorMessage) {
+                errors.add(errorMessage);
+            }
+        });
+
+        startStream(server.getRestConfig());
+        assertNotNull(updates.poll(5, TimeUnit.SECONDS));
+
+        server.sendKeepAlive();
+        server.sendError("service_unavailable", "Try again later");
+        server.sendAuthRevoked();
+
+        ErrorMessage error = errors.poll(5, TimeUnit.SECONDS);
+        assertNotNull(error);
+        assertEquals(error.getError(), "service_unavailable");
+        assertTrue(revoked.await(5, TimeUnit.SECONDS));
+    }
+}
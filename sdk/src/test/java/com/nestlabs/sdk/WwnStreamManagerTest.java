@@ -0,0 +1,216 @@
+package com.nestlabs.sdk;
+
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.rest.DummyCall;
+import com.nestlabs.sdk.rest.MissingTokenException;
+import com.nestlabs.sdk.rest.RestConfig;
+import com.nestlabs.sdk.rest.parsers.Notifier;
+import com.nestlabs.sdk.rest.parsers.StateStore;
+import com.nestlabs.sdk.rest.parsers.Subscription;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+
+public class WwnStreamManagerTest {
+
+    private static final String EVENT = "event: put\ndata: {\"path\":\"/\",\"data\":"
+            + "{\"devices\":{\"thermostats\":{\"t1\":{\"device_id\":\"t1\"}}}}}\n\n";
+
+    //Sends a single put, then blocks like an open stream until it is canceled
+    private class StreamCall extends DummyCall {
+        final CountDownLatch canceled = new CountDownLatch(1);
+
+        @Override
+        public Response execute() throws IOException {
+            final Buffer event = new Buffer().writeUtf8(EVENT);
+            Source source = new Source() {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    if (event.size() > 0) return event.read(sink, byteCount);
+                    try {
+                        canceled.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    throw new IOException("Canceled");
+                }
+
+                @Override
+                public Timeout timeout() {
+                    return Timeout.NONE;
+                }
+
+                @Override
+                public void close() { }
+            };
+
+            return new Response.Builder()
+                    .request(localHostRequest)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(MediaType.parse("text/event-stream"),
+                            -1, Okio.buffer(source)))
+                    .build();
+        }
+
+        @Override
+        public void cancel() {
+            canceled.countDown();
+        }
+    }
+
+    private class CountingListener implements NestListener.GlobalListener {
+        final CountDownLatch updated = new CountDownLatch(1);
+
+        @Override
+        public void onUpdate(@NonNull GlobalUpdate update) {
+            updated.countDown();
+        }
+    }
+
+    private final Map<String, StreamCall> calls = new ConcurrentHashMap<>();
+
+    private WwnStreamManager makeManager() {
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(
+                new Answer<StreamCall>() {
+                    @Override
+                    public StreamCall answer(InvocationOnMock invocation) {
+                        Request request = (Request) invocation.getArguments()[0];
+                        StreamCall call = new StreamCall();
+                        calls.put(request.url().queryParameter("auth"), call);
+                        return call;
+                    }
+                });
+
+        return new WwnStreamManager.Builder(new RestConfig(), new ExceptionHandler() {
+            @Override
+            public void handle(NestException value) { }
+        }).setHttpClient(mockedClient).build();
+    }
+
+    @Test(expected = MissingTokenException.class)
+    public void testStartWithEmpty_shouldThrowMissingTokenException() {
+        makeManager().start("");
+    }
+
+    @Test
+    public void testStart_shouldCreateNotifierPerToken() throws InterruptedException {
+        WwnStreamManager manager = makeManager();
+        CountingListener first = new CountingListener();
+        CountingListener second = new CountingListener();
+
+        Notifier notifier = manager.start("token-1", first);
+        assertNotSame(notifier, manager.start("token-2", second));
+        assertSame(notifier, manager.start("token-1"));
+        assertSame(notifier, manager.getNotifier("token-1"));
+        assertEquals(manager.getStreamCount(), 2);
+
+        assertTrue(first.updated.await(5, TimeUnit.SECONDS));
+        assertTrue(second.updated.await(5, TimeUnit.SECONDS));
+        assertTrue(manager.getState("token-1").getLastUpdate() != null);
+
+        manager.stopAll();
+    }
+
+    @Test
+    public void testStop_shouldOnlyCancelOwnStream() throws InterruptedException {
+        WwnStreamManager manager = makeManager();
+        CountingListener first = new CountingListener();
+        CountingListener second = new CountingListener();
+        manager.start("token-1", first);
+        manager.start("token-2", second);
+        assertTrue(first.updated.await(5, TimeUnit.SECONDS));
+        assertTrue(second.updated.await(5, TimeUnit.SECONDS));
+
+        manager.stop("token-1");
+        assertNull(manager.getNotifier("token-1"));
+        assertNull(manager.getState("token-1"));
+        assertEquals(manager.getStreamCount(), 1);
+        assertEquals(calls.get("token-1").canceled.getCount(), 0);
+        assertEquals(calls.get("token-2").canceled.getCount(), 1);
+
+        manager.stopAll();
+        assertEquals(manager.getStreamCount(), 0);
+        assertEquals(calls.get("token-2").canceled.getCount(), 0);
+    }
+
+    @Test
+    public void testShutdown_shouldStopStreamsAndRejectNewOnes() throws InterruptedException {
+        WwnStreamManager manager = makeManager();
+        CountingListener listener = new CountingListener();
+        manager.start("token-1", listener);
+        assertTrue(listener.updated.await(5, TimeUnit.SECONDS));
+
+        manager.shutdown();
+        assertEquals(manager.getStreamCount(), 0);
+        assertEquals(calls.get("token-1").canceled.getCount(), 0);
+        try {
+            manager.start("token-2");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertNull(calls.get("token-2"));
+        }
+    }
+
+    private static StateStore awaitState(WwnStreamManager manager, String token)
+            throws InterruptedException {
+        StateStore state = manager.getState(token);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (state.getLastUpdate() == null && System.nanoTime() < deadline) Thread.sleep(10);
+        assertNotNull(state.getLastUpdate());
+        return state;
+    }
+
+    @Test
+    public void testGetState_shouldHoldWholeAccountWithoutListeners() throws InterruptedException {
+        WwnStreamManager manager = makeManager();
+        manager.start("token-1");
+
+        StateStore state = awaitState(manager, "token-1");
+        assertNotNull(state.getThermostat("t1"));
+        manager.shutdown();
+    }
+
+    @Test
+    public void testGetState_shouldOnlyHoldObservedTypesOnOptIn() throws InterruptedException {
+        WwnStreamManager manager = makeManager();
+        manager.start("token-1", new Subscription.Builder().setObservedTypesOnly(true).build());
+
+        StateStore state = awaitState(manager, "token-1");
+        assertNull(state.getThermostat("t1"));
+        manager.shutdown();
+    }
+}
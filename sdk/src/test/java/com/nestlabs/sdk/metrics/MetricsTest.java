@@ -0,0 +1,72 @@
+package com.nestlabs.sdk.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    @Test
+    public void testCounter_shouldSumConcurrentUpdates() throws InterruptedException {
+        final Counter counter = new Metrics().counter("test");
+        final int threads = 8;
+        final int increments = 100000;
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < increments; j++) {
+                        counter.increment();
+                    }
+                    counter.add(10);
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(counter.sum(), threads * (increments + 10L));
+    }
+
+    @Test
+    public void testTimer_shouldRecordCountTotalAndMax() {
+        Timer timer = new Metrics().timer("test");
+        timer.record(2, TimeUnit.MILLISECONDS);
+        timer.record(6, TimeUnit.MILLISECONDS);
+
+        assertEquals(timer.getCount(), 2);
+        assertEquals(timer.getTotalNanos(), TimeUnit.MILLISECONDS.toNanos(8));
+        assertEquals(timer.getMeanNanos(), TimeUnit.MILLISECONDS.toNanos(4));
+        assertEquals(timer.getMaxNanos(), TimeUnit.MILLISECONDS.toNanos(6));
+    }
+
+    @Test
+    public void testRegistry_shouldReturnSameMetricForName() {
+        Metrics metrics = new Metrics();
+        assertSame(metrics.counter(Metrics.STREAM_BYTES), metrics.counter(Metrics.STREAM_BYTES));
+        assertSame(metrics.timer(Metrics.LISTENER_DISPATCH), metrics.timer(Metrics.LISTENER_DISPATCH));
+        assertEquals(metrics.getCounters().size(), 1);
+        assertEquals(metrics.getTimers().size(), 1);
+    }
+
+    @Test
+    public void testTextExporter_shouldWriteLinePerMetric() {
+        Metrics metrics = new Metrics();
+        metrics.counter(Metrics.STREAM_EVENTS).add(3);
+        metrics.counter(Metrics.STREAM_BYTES).add(2048);
+        metrics.timer(Metrics.REST_WRITE + "200").record(1500, TimeUnit.MICROSECONDS);
+
+        String[] lines = TextMetricsExporter.dump(metrics).split("\\r?\\n");
+        assertEquals(lines.length, 3);
+        assertTrue(lines[0].startsWith("stream.bytes 2048 rate="));
+        assertTrue(lines[1].startsWith("stream.events 3 rate="));
+        assertEquals(lines[2], "rest.write.200 count=1 mean=1.500ms max=1.500ms");
+    }
+}
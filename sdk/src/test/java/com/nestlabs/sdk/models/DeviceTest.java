@@ -44,4 +44,12 @@ public class DeviceTest {
         Device device = new Device();
         assertFalse(device.equals(o));
     }
+
+    @Test
+    public void testEquals_shouldReturnFalseWithOtherDeviceType() {
+        assertEquals(new Device(), new Device());
+        assertEquals(new Device().hashCode(), new Device().hashCode());
+        assertFalse(new Device().equals(new Thermostat()));
+        assertFalse(new Thermostat().equals(new Device()));
+    }
 }
@@ -19,7 +19,9 @@ package com.nestlabs.sdk.models;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 
 public class GlobalUpdateTest {
@@ -41,4 +43,33 @@ public class GlobalUpdateTest {
         assertSame(testStructures, update.getStructures());
         assertSame(testMetadata, update.getMetadata());
     }
+
+    private static class CountingLoader<T> implements ModelLoader<T> {
+        int loads = 0;
+
+        @Override
+        public List<T> load() {
+            loads++;
+            return new ArrayList<>();
+        }
+    }
+
+    @Test
+    public void testNestGlobalUpdate_shouldLoadListsOnFirstAccess() {
+        CountingLoader<Thermostat> thermostats = new CountingLoader<>();
+        CountingLoader<SmokeCOAlarm> smokeAlarms = new CountingLoader<>();
+        CountingLoader<Camera> cameras = new CountingLoader<>();
+        CountingLoader<Structure> structures = new CountingLoader<>();
+        Metadata testMetadata = new Metadata();
+
+        GlobalUpdate update = new GlobalUpdate(thermostats, smokeAlarms, cameras, structures,
+                testMetadata);
+        assertSame(testMetadata, update.getMetadata());
+        assertEquals(thermostats.loads + smokeAlarms.loads + cameras.loads + structures.loads, 0);
+
+        List<Thermostat> loaded = update.getThermostats();
+        assertSame(loaded, update.getDevices().getThermostats());
+        assertEquals(thermostats.loads, 1);
+        assertEquals(smokeAlarms.loads + cameras.loads + structures.loads, 0);
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nestlabs.sdk.models;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ModelCodecsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = mapper.getFactory();
+
+    private String load(String resource) throws IOException {
+        return IOUtils.toString(getClass().getResourceAsStream(resource), "utf-8").trim();
+    }
+
+    private <T> T read(ModelCodec<T> codec, String json) throws IOException {
+        JsonParser parser = factory.createParser(json);
+        T value = codec.read(parser);
+        parser.close();
+        return value;
+    }
+
+    private <T> String write(ModelCodec<T> codec, T value) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = factory.createGenerator(writer);
+        codec.write(generator, value);
+        generator.close();
+        return writer.toString();
+    }
+
+    //Reads the fixture with both the codec and databind, and writes it back with both
+    private <T> void assertMatchesDatabind(Class<T> type, String resource) throws IOException {
+        ModelCodec<T> codec = ModelCodecs.get(type);
+        assertNotNull(codec);
+
+        String json = load(resource);
+        T expected = mapper.readValue(json, type);
+        T actual = read(codec, json);
+        assertEquals(actual, expected);
+        assertEquals(write(codec, actual), mapper.writeValueAsString(expected));
+    }
+
+    @Test
+    public void testCodecs_shouldMatchDatabind() throws IOException {
+        assertMatchesDatabind(Thermostat.class, "/test-thermostat.json");
+        assertMatchesDatabind(Thermostat.class, "/test-empty-thermostat.json");
+        assertMatchesDatabind(Thermostat.class, "/test-thermostat-unknown.json");
+        assertMatchesDatabind(Camera.class, "/test-camera.json");
+        assertMatchesDatabind(Camera.class, "/test-empty-camera.json");
+        assertMatchesDatabind(Camera.class, "/test-camera-unknown.json");
+        assertMatchesDatabind(SmokeCOAlarm.class, "/test-smoke-alarm.json");
+        assertMatchesDatabind(SmokeCOAlarm.class, "/test-empty-smoke-alarm.json");
+        assertMatchesDatabind(SmokeCOAlarm.class, "/test-smoke-alarm-unknown.json");
+        assertMatchesDatabind(Structure.class, "/test-structure.json");
+        assertMatchesDatabind(Structure.class, "/test-structure-unknown.json");
+        assertMatchesDatabind(Metadata.class, "/test-metadata.json");
+        assertMatchesDatabind(Metadata.class, "/test-empty-metadata.json");
+        assertMatchesDatabind(Metadata.class, "/test-metadata-unknown.json");
+    }
+
+    @Test
+    public void testNestedModels_shouldKeepDeclarationOrder() throws IOException {
+        Structure.Where where = read(ModelCodecs.get(Structure.Where.class),
+                "{\"name\":\"Den\",\"where_id\":\"d6reb_OZTM\"}");
+        assertEquals(write(ModelCodecs.get(Structure.Where.class), where),
+                mapper.writeValueAsString(where));
+    }
+
+    @Test
+    public void testNestedModels_shouldFailOnUnknownProperty() throws IOException {
+        try {
+            read(ModelCodecs.get(Structure.Where.class), "{\"where_id\":\"a\",\"floor\":2}");
+            fail();
+        } catch (JsonParseException e) {
+            //Databind fails on it as well, the nested models do not ignore unknown properties
+        }
+    }
+
+    @Test
+    public void testRead_shouldReturnNullForNull() throws IOException {
+        assertNull(read(ModelCodecs.get(Thermostat.class), "null"));
+        assertEquals(write(ModelCodecs.get(Thermostat.class), null), "null");
+    }
+
+    @Test
+    public void testRead_shouldFailOnMismatchedType() throws IOException {
+        try {
+            read(ModelCodecs.get(Thermostat.class), "{\"can_cool\":{}}");
+            fail();
+        } catch (JsonParseException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testGet_shouldReturnNullWithoutCodec() {
+        assertNull(ModelCodecs.get(NestToken.class));
+        assertNull(ModelCodecs.get(String.class));
+    }
+}
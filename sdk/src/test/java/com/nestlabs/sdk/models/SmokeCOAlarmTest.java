@@ -56,6 +56,10 @@ public class SmokeCOAlarmTest {
             assertEquals(smokeCOAlarm.getCOAlarmState(), "ok");
             assertEquals(smokeCOAlarm.getSmokeAlarmState(), "ok");
             assertEquals(smokeCOAlarm.getUIColorState(), "gray");
+            assertEquals(smokeCOAlarm.getBatteryHealthType(), SmokeCOAlarm.BatteryHealth.OK);
+            assertEquals(smokeCOAlarm.getCOAlarmStateType(), SmokeCOAlarm.AlarmState.OK);
+            assertEquals(smokeCOAlarm.getSmokeAlarmStateType(), SmokeCOAlarm.AlarmState.OK);
+            assertEquals(smokeCOAlarm.getUIColorStateType(), SmokeCOAlarm.UiColorState.GRAY);
             assertEquals(smokeCOAlarm.getIsManualTestActive(), true);
             assertEquals(smokeCOAlarm.getLastManualTestTime(), "2015-10-31T23:59:59.000Z");
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016, Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nestlabs.sdk.models;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StringPoolTest {
+
+    @Test
+    public void testIntern_shouldReturnFirstInstance() {
+        String first = new String("heat-cool");
+        String second = new String("heat-cool");
+
+        assertSame(StringPool.intern(first), first);
+        assertSame(StringPool.intern(second), first);
+        assertEquals(StringPool.intern(second), "heat-cool");
+    }
+
+    @Test
+    public void testIntern_shouldPassNullThrough() {
+        assertNull(StringPool.intern(null));
+    }
+
+    @Test
+    public void testIntern_shouldShareInstanceAcrossThreads() throws InterruptedException {
+        final int threads = 8;
+        final AtomicReferenceArray<String> pooled = new AtomicReferenceArray<>(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    pooled.set(index, StringPool.intern(new String("structure-00042")));
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join(5000);
+        }
+
+        for (int i = 1; i < threads; i++) {
+            assertSame(pooled.get(i), pooled.get(0));
+        }
+        assertEquals(pooled.get(0), "structure-00042");
+    }
+}
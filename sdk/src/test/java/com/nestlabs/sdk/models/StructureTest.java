@@ -53,6 +53,7 @@ public class StructureTest {
             assertEquals(structure.getDevices().size(), 1);
 
             assertEquals(structure.getAway(), "home");
+            assertEquals(structure.getAwayType(), Structure.Away.HOME);
             assertEquals(structure.getName(), "Home");
             assertEquals(structure.getCountryCode(), "US");
             assertEquals(structure.getPostalCode(), "94304");
@@ -126,6 +127,23 @@ public class StructureTest {
         }
     }
 
+    @Test
+    public void testEquals_shouldCompareFields() throws IOException {
+        String json = IOUtils.toString(
+                this.getClass().getResourceAsStream(TEST_STRUCTURE_JSON), "utf-8");
+        Structure first = mapper.readValue(json, Structure.class);
+        Structure second = mapper.readValue(json, Structure.class);
+        Structure renamed = mapper.readValue(json.replace("Bedroom", "Office"), Structure.class);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.getEta().hashCode(), second.getEta().hashCode());
+        //Only a where differs
+        assertFalse(first.equals(renamed));
+        assertFalse(first.getWheres().equals(renamed.getWheres()));
+        assertEquals(first.getEta(), renamed.getEta());
+    }
+
     @Test
     public void testWhereNewArray_shouldReturnArrayOfCorrectSize() {
         int structureWheresSize = new Random().nextInt(9) + 1;
@@ -24,10 +24,15 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class ThermostatTest {
 
@@ -72,10 +77,12 @@ public class ThermostatTest {
             assertEquals(thermostat.getAwayTemperatureLowF(), 64);
             assertEquals(thermostat.getAwayTemperatureLowC(), 17.5, 0.01);
             assertEquals(thermostat.getHvacMode(), "heat");
+            assertEquals(thermostat.getHvacModeType(), Thermostat.HvacMode.HEAT);
             assertEquals(thermostat.getAmbientTemperatureF(), 72);
             assertEquals(thermostat.getAmbientTemperatureC(), 21.5, 0.01);
             assertEquals(thermostat.getHumidity(), 40);
             assertEquals(thermostat.getHvacState(), "heating");
+            assertEquals(thermostat.getHvacStateType(), Thermostat.HvacState.HEATING);
             assertEquals(thermostat.isLocked(), true);
             assertEquals(thermostat.getLockedTempMinF(), "65");
             assertEquals(thermostat.getLockedTempMaxF(), "80");
@@ -140,6 +147,45 @@ public class ThermostatTest {
         }
     }
 
+    @Test
+    public void testCreateThermostatWithJacksonMapper_shouldShareRepeatedValues() throws IOException {
+        String json = IOUtils.toString(
+                this.getClass().getResourceAsStream(TEST_THERMOSTAT_JSON), "utf-8");
+        Thermostat first = mapper.readValue(json, Thermostat.class);
+        Thermostat second = mapper.readValue(json, Thermostat.class);
+
+        assertSame(first.getStructureId(), second.getStructureId());
+        assertSame(first.getWhereId(), second.getWhereId());
+        assertSame(first.getLocale(), second.getLocale());
+        assertSame(first.getHvacMode(), second.getHvacMode());
+        assertSame(first.getTemperatureScale(), second.getTemperatureScale());
+        //Free-form values are left alone
+        assertNotSame(first.getName(), second.getName());
+    }
+
+    @Test
+    public void testEquals_shouldCompareFields() throws IOException {
+        String json = IOUtils.toString(
+                this.getClass().getResourceAsStream(TEST_THERMOSTAT_JSON), "utf-8");
+        Thermostat first = mapper.readValue(json, Thermostat.class);
+        Thermostat second = mapper.readValue(json, Thermostat.class);
+        Thermostat cooling = mapper.readValue(
+                json.replace("\"hvac_mode\": \"heat\"", "\"hvac_mode\": \"cool\""), Thermostat.class);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertFalse(first.equals(cooling));
+        assertEquals(new HashSet<>(Arrays.asList(first, second, cooling)).size(), 2);
+    }
+
+    @Test
+    public void testHvacModeFromValue_shouldMapNewValuesToUnknown() {
+        assertEquals(Thermostat.HvacMode.fromValue("heat-cool"), Thermostat.HvacMode.HEAT_COOL);
+        assertEquals(Thermostat.HvacMode.fromValue("emergency-heat"), Thermostat.HvacMode.UNKNOWN);
+        assertNull(Thermostat.HvacMode.fromValue(null));
+        assertNull(new Thermostat().getHvacModeType());
+    }
+
     @Test
     public void testDescribeContents_shouldReturnZero() {
         Thermostat t = new Thermostat();
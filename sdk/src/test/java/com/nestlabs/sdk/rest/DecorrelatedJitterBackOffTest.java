@@ -0,0 +1,65 @@
+package com.nestlabs.sdk.rest;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DecorrelatedJitterBackOffTest {
+
+    @Test
+    public void testNextInterval_shouldStayWithinBounds() {
+        DecorrelatedJitterBackOff backOff = new DecorrelatedJitterBackOff.Builder()
+                .setInitialDelayMillis(100)
+                .setMaxDelayMillis(1000)
+                .build();
+
+        long previous = 100;
+        for (int i = 0; i < 1000; i++) {
+            long interval = backOff.nextInterval();
+            assertTrue(interval >= 100);
+            assertTrue(interval <= Math.min(1000, previous * 3));
+            previous = interval;
+        }
+    }
+
+    @Test
+    public void testNextInterval_shouldSpreadClients() {
+        //Clients that start backing off together should not retry together
+        DecorrelatedJitterBackOff first = new DecorrelatedJitterBackOff.Builder()
+                .setRandom(new Random(1))
+                .build();
+        DecorrelatedJitterBackOff second = new DecorrelatedJitterBackOff.Builder()
+                .setRandom(new Random(2))
+                .build();
+
+        int same = 0;
+        for (int i = 0; i < 10; i++) {
+            if (first.nextInterval() == second.nextInterval()) same++;
+        }
+        assertTrue(same < 10);
+    }
+
+    @Test
+    public void testReset_shouldRestartFromInitialDelay() {
+        DecorrelatedJitterBackOff backOff = new DecorrelatedJitterBackOff.Builder()
+                .setInitialDelayMillis(10)
+                .setMaxDelayMillis(10)
+                .build();
+
+        assertEquals(backOff.nextInterval(), 10);
+        backOff.reset();
+        assertEquals(backOff.nextInterval(), 10);
+
+        backOff = new DecorrelatedJitterBackOff.Builder()
+                .setInitialDelayMillis(10)
+                .setMaxDelayMillis(100000)
+                .setRandom(new Random(7))
+                .build();
+        for (int i = 0; i < 20; i++) backOff.nextInterval();
+        backOff.reset();
+        assertTrue(backOff.nextInterval() <= 30);
+    }
+}
@@ -0,0 +1,110 @@
+package com.nestlabs.sdk.rest;
+
+import com.nestlabs.sdk.rest.parsers.EventParser;
+import com.nestlabs.sdk.rest.parsers.Parser;
+import com.nestlabs.sdk.rest.parsers.ParserException;
+import com.nestlabs.sdk.rest.parsers.StreamingEvent;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventStreamDecoderTest {
+
+    private class DummyEventParser implements Parser, EventParser {
+        final List<StreamingEvent> events = new ArrayList<>();
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void parse(String msg) throws ParserException {
+            messages.add(msg);
+        }
+
+        @Override
+        public void parseEvent(StreamingEvent event) throws ParserException {
+            events.add(event);
+        }
+    }
+
+    private void decode(EventStreamDecoder decoder, Parser parser, String stream, long byteCount)
+            throws IOException, ParserException {
+        Buffer source = new Buffer().writeUtf8(stream);
+        while (!source.exhausted()) {
+            decoder.read(source, byteCount);
+            while (decoder.nextFrame()) decoder.dispatch(parser);
+        }
+        if (decoder.finish()) decoder.dispatch(parser);
+    }
+
+    @Test
+    public void testDecode_shouldSplitFramesOnBlankLine() throws IOException, ParserException {
+        DummyEventParser parser = new DummyEventParser();
+        decode(new EventStreamDecoder(), parser,
+                "event: put\ndata: {\"a\":1}\n\nevent: keep-alive\ndata: null\n\n", 2048);
+
+        assertEquals(parser.events.size(), 2);
+        assertEquals(parser.events.get(0).getEventType(), "put");
+        assertEquals(parser.events.get(0).getMessage(), "{\"a\":1}");
+        assertEquals(parser.events.get(1).getEventType(), "keep-alive");
+        assertEquals(parser.events.get(1).getMessage(), "null");
+        assertTrue(parser.messages.isEmpty());
+    }
+
+    @Test
+    public void testDecode_shouldReassembleFramesAcrossReads() throws IOException, ParserException {
+        //Terminator and field names are split across single byte reads
+        DummyEventParser parser = new DummyEventParser();
+        decode(new EventStreamDecoder(), parser,
+                "event: put\ndata: {\"a\":\"b\"}\n\nevent: auth_revoked\ndata: null\n\n", 1);
+
+        assertEquals(parser.events.size(), 2);
+        assertEquals(parser.events.get(0).getMessage(), "{\"a\":\"b\"}");
+        assertEquals(parser.events.get(1).getEventType(), "auth_revoked");
+    }
+
+    @Test
+    public void testDecode_shouldJoinMultipleDataLines() throws IOException, ParserException {
+        DummyEventParser parser = new DummyEventParser();
+        decode(new EventStreamDecoder(), parser, "event: put\ndata: {\ndata: }\n\n", 2048);
+
+        assertEquals(parser.events.size(), 1);
+        assertEquals(parser.events.get(0).getMessage(), "{\n}");
+    }
+
+    @Test
+    public void testDecode_shouldEmitErrorLines() throws IOException, ParserException {
+        DummyEventParser parser = new DummyEventParser();
+        String error = "{\"error\":\"unauthorized\"}";
+        decode(new EventStreamDecoder(), parser, error, 2048);
+
+        assertEquals(parser.events.size(), 1);
+        assertEquals(parser.events.get(0).getEventType(), "error");
+        assertEquals(parser.events.get(0).getMessage(), error);
+    }
+
+    @Test
+    public void testDecode_shouldSkipEventsWithoutData() throws IOException, ParserException {
+        DummyEventParser parser = new DummyEventParser();
+        decode(new EventStreamDecoder(), parser, "event: put\n\n: comment\n\n", 2048);
+
+        assertTrue(parser.events.isEmpty());
+    }
+
+    @Test
+    public void testDecode_shouldPassRawFramesToPlainParser() throws IOException, ParserException {
+        DummyParser parser = new DummyParser();
+        EventStreamDecoder decoder = new EventStreamDecoder();
+        decode(decoder, parser, "event: put\ndata: {}\n\n", 3);
+
+        assertEquals(parser.message, "event: put\ndata: {}");
+        assertFalse(decoder.finish());
+    }
+}
@@ -2,16 +2,21 @@ package com.nestlabs.sdk.rest;
 
 import com.nestlabs.sdk.NestException;
 import com.nestlabs.sdk.ServerException;
+import com.nestlabs.sdk.metrics.Metrics;
 import com.nestlabs.sdk.rest.parsers.Parser;
 import com.nestlabs.sdk.rest.parsers.ParserException;
 
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.reflect.Whitebox;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 import okhttp3.Callback;
 import okhttp3.OkHttpClient;
@@ -19,6 +24,7 @@ import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.internal.http.RealResponseBody;
+import okio.Buffer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -250,4 +256,106 @@ public class RestClientTest {
         assertTrue(dummyCallback.exception instanceof ParserException);
     }
 
+    private static RestClient recordingClient(final List<Request> requests) {
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<DummyCall>() {
+            @Override
+            public DummyCall answer(InvocationOnMock invocation) {
+                requests.add((Request) invocation.getArguments()[0]);
+                return new DummyCall();
+            }
+        });
+
+        RestClient client = new RestClient(mockedClient, new RestConfig(), new DummyParser());
+        client.setToken("access_token");
+        return client;
+    }
+
+    private static String body(Request request) throws IOException {
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        return buffer.readUtf8();
+    }
+
+    @Test
+    public void testWrite_shouldSendAllFieldsInOneRequest() throws IOException {
+        List<Request> requests = new ArrayList<>();
+        RestClient client = recordingClient(requests);
+        client.write("/devices/thermostats/id")
+                .set("target_temperature_low_f", 68)
+                .set("target_temperature_high_f", 75)
+                .set("hvac_mode", "heat-cool")
+                .set("fan_timer_active", false)
+                .set("target_temperature_high_f", 76)
+                .commit(null);
+
+        assertEquals(requests.size(), 1);
+        assertEquals(requests.get(0).method(), "PUT");
+        assertEquals(body(requests.get(0)), "{\"target_temperature_low_f\": 68, "
+                + "\"target_temperature_high_f\": 76, \"hvac_mode\": \"heat-cool\", "
+                + "\"fan_timer_active\": false}");
+    }
+
+    @Test
+    public void testWrite_shouldKeepSingleFieldBody() throws IOException {
+        List<Request> requests = new ArrayList<>();
+        RestClient client = recordingClient(requests);
+        client.writeDouble("/devices/thermostats/id", "target_temperature_c", 21.5, null);
+
+        assertEquals(body(requests.get(0)), "{\"target_temperature_c\": 21.500000}");
+    }
+
+    @Test
+    public void testWrite_shouldEscapeStringsAndWriteNull() throws IOException {
+        List<Request> requests = new ArrayList<>();
+        RestClient client = recordingClient(requests);
+        client.write("/structures/id")
+                .set("name", "Mom's \"Lake\" House\\\n")
+                .set("we\"ird", (String) null)
+                .commit(null);
+
+        assertEquals(body(requests.get(0)),
+                "{\"name\": \"Mom's \\\"Lake\\\" House\\\\\\n\", \"we\\\"ird\": null}");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrite_expectIllegalStateExceptionWithoutFields() {
+        recordingClient(new ArrayList<Request>()).write("path").commit(null);
+    }
+
+    @Test
+    public void testWrite_shouldRecordLatencyByStatusCode() {
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<DummyCall>() {
+            @Override
+            public DummyCall answer(InvocationOnMock invocation) {
+                return new DummyCall() {
+                    @Override
+                    public void enqueue(Callback responseCallback) {
+                        super.enqueue(responseCallback);
+                        Response response = new Response.Builder()
+                                .request(localHostRequest)
+                                .protocol(Protocol.HTTP_1_0)
+                                .code(429)
+                                .body(new RealResponseBody(null, makeBufferedSource("{}")))
+                                .build();
+
+                        try {
+                            responseCallback.onResponse(this, response);
+                        } catch (IOException ignore) { }
+                    }
+                };
+            }
+        });
+
+        Metrics metrics = new Metrics();
+        RestClient client = new RestClient(mockedClient, new RestConfig(), new DummyParser(),
+                metrics);
+        client.setToken("access_token");
+        client.writeLong("path", "field", 0, null);
+        client.writeLong("path", "field", 1, null);
+
+        assertEquals(metrics.timer(Metrics.REST_WRITE + "429").getCount(), 2);
+        assertEquals(metrics.timer(Metrics.REST_WRITE + "401").getCount(), 0);
+    }
 }
@@ -1,25 +1,49 @@
 package com.nestlabs.sdk.rest;
 
+import com.nestlabs.sdk.EventHandler;
 import com.nestlabs.sdk.ExceptionHandler;
 import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.metrics.Metrics;
+import com.nestlabs.sdk.rest.parsers.Parser;
 import com.nestlabs.sdk.rest.parsers.ParserException;
 
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.reflect.Whitebox;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
 import okhttp3.Dispatcher;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import okhttp3.internal.http.RealResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 
@@ -260,4 +284,321 @@ public class RestStreamClientTest {
         client.stop();
         latch.await();
     }
+
+    private class DummyRetryScheduler implements RetryScheduler {
+        final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+        @Override
+        public Future<?> schedule(Runnable task, long delayMillis) {
+            tasks.add(task);
+            return new FutureTask<Void>(task, null);
+        }
+    }
+
+    @Test
+    public void testRetry_shouldReconnectAfterStreamEnds() throws InterruptedException {
+        final Semaphore calls = new Semaphore(0);
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<Call>() {
+            @Override
+            public Call answer(InvocationOnMock invocation) {
+                calls.release();
+                return makeDummySuccessCall("event: keep-alive\ndata: null\n\n");
+            }
+        });
+
+        DummyRetryScheduler scheduler = new DummyRetryScheduler();
+        //The watchdog would share the scheduler, keep it to retries
+        RestStreamClient client = new RestStreamClient.Builder(mockedClient, new RestConfig(), new DummyParser())
+                .setRetryScheduler(scheduler)
+                .setSilenceTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        client.start("access_token");
+        assertTrue(calls.tryAcquire(5, TimeUnit.SECONDS));
+
+        //The stream ended, so a retry is scheduled and opens a new connection
+        Runnable retry = scheduler.tasks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(retry);
+        retry.run();
+        assertTrue(calls.tryAcquire(5, TimeUnit.SECONDS));
+
+        //Stopping must not break retries of a later start
+        assertNotNull(scheduler.tasks.poll(5, TimeUnit.SECONDS));
+        client.stop();
+        scheduler.tasks.clear();
+        assertTrue(client.start("access_token"));
+        assertTrue(calls.tryAcquire(5, TimeUnit.SECONDS));
+        assertNotNull(scheduler.tasks.poll(5, TimeUnit.SECONDS));
+        client.stop();
+    }
+
+    @Test
+    public void testRetry_shouldNotReconnectAfterStop() throws InterruptedException {
+        final Semaphore calls = new Semaphore(0);
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<Call>() {
+            @Override
+            public Call answer(InvocationOnMock invocation) {
+                calls.release();
+                return makeDummySuccessCall("event: keep-alive\ndata: null\n\n");
+            }
+        });
+
+        DummyRetryScheduler scheduler = new DummyRetryScheduler();
+        //The watchdog would share the scheduler, keep it to retries
+        RestStreamClient client = new RestStreamClient.Builder(mockedClient, new RestConfig(), new DummyParser())
+                .setRetryScheduler(scheduler)
+                .setSilenceTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        client.start("access_token");
+        Runnable retry = scheduler.tasks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(retry);
+
+        client.stop();
+        retry.run();
+        assertTrue(calls.tryAcquire(5, TimeUnit.SECONDS));
+        assertFalse(calls.tryAcquire(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRetry_shouldNotReconnectReaderOfEarlierStart() throws InterruptedException {
+        final Semaphore calls = new Semaphore(0);
+        final CountDownLatch released = new CountDownLatch(1);
+        //The first call only ends after the client was restarted
+        final DummyCall first = new DummyCall() {
+            @Override
+            public Response execute() throws IOException {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return makeDummySuccessCall("event: keep-alive\ndata: null\n\n").execute();
+            }
+        };
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<Call>() {
+            @Override
+            public Call answer(InvocationOnMock invocation) {
+                calls.release();
+                return released.getCount() > 0 ? first : makeSilentCall();
+            }
+        });
+
+        DummyRetryScheduler scheduler = new DummyRetryScheduler();
+        RestStreamClient client = new RestStreamClient.Builder(mockedClient, new RestConfig(), new DummyParser())
+                .setExceptionHandler(new DummyExceptionHandler())
+                .setRetryScheduler(scheduler)
+                .setSilenceTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        client.start("access_token");
+        assertTrue(calls.tryAcquire(5, TimeUnit.SECONDS));
+        client.stop();
+        assertTrue(client.start("access_token"));
+
+        //The reader runs after the first one ended, which must leave retries to the new start
+        released.countDown();
+        assertTrue(calls.tryAcquire(5, TimeUnit.SECONDS));
+        assertNull(scheduler.tasks.poll(200, TimeUnit.MILLISECONDS));
+        client.stop();
+    }
+
+    @Test
+    public void testMetrics_shouldCountBytesEventsAndBackOff() throws InterruptedException {
+        final String message = "event: keep-alive\ndata: null\n\n";
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class)))
+                .thenReturn(makeDummySuccessCall(message));
+
+        Metrics metrics = new Metrics();
+        DummyRetryScheduler scheduler = new DummyRetryScheduler();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        RestStreamClient client = new RestStreamClient.Builder(mockedClient, new RestConfig(), new DummyParser())
+                .setRetryScheduler(scheduler)
+                .setSilenceTimeout(0, TimeUnit.MILLISECONDS)
+                .setExecutorService(reader)
+                .setMetrics(metrics)
+                .build();
+        client.start("access_token");
+
+        //The retry is scheduled once the stream ended, the back off is recorded right after
+        assertNotNull(scheduler.tasks.poll(5, TimeUnit.SECONDS));
+        client.stop();
+        reader.shutdown();
+        assertTrue(reader.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(metrics.counter(Metrics.STREAM_BYTES).sum(), message.length());
+        assertEquals(metrics.counter(Metrics.STREAM_EVENTS).sum(), 1);
+        assertEquals(metrics.timer(Metrics.STREAM_BACKOFF).getCount(), 1);
+        assertEquals(metrics.counter(Metrics.STREAM_PARSE_FAILURES).sum(), 0);
+    }
+
+    @Test
+    public void testMetrics_shouldCountDispatchFailuresApartFromParseFailures()
+            throws InterruptedException {
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class)))
+                .thenReturn(makeDummySuccessCall("event: put\ndata: {}\n\n"));
+
+        Metrics metrics = new Metrics();
+        DummyRetryScheduler scheduler = new DummyRetryScheduler();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        RestStreamClient client = new RestStreamClient.Builder(mockedClient, new RestConfig(),
+                new Parser() {
+                    @Override
+                    public void parse(String msg) {
+                        throw new IllegalStateException("A listener failed.");
+                    }
+                })
+                .setExceptionHandler(new DummyExceptionHandler())
+                .setRetryScheduler(scheduler)
+                .setSilenceTimeout(0, TimeUnit.MILLISECONDS)
+                .setExecutorService(reader)
+                .setMetrics(metrics)
+                .build();
+        client.start("access_token");
+
+        assertNotNull(scheduler.tasks.poll(5, TimeUnit.SECONDS));
+        client.stop();
+        reader.shutdown();
+        assertTrue(reader.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(metrics.counter(Metrics.STREAM_DISPATCH_FAILURES).sum(), 1);
+        assertEquals(metrics.counter(Metrics.STREAM_PARSE_FAILURES).sum(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuild_shouldRejectCoalescingWithoutEventParser() {
+        new RestStreamClient.Builder(new OkHttpClient(), new RestConfig(), new DummyParser())
+                .setCoalescingWindow(100, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    //Sends a keep-alive, then goes silent like a half-open connection until it is canceled
+    private DummyCall makeSilentCall() {
+        return new DummyCall() {
+            final CountDownLatch canceled = new CountDownLatch(1);
+
+            @Override
+            public Response execute() throws IOException {
+                final Buffer event = new Buffer().writeUtf8("event: keep-alive\ndata: null\n\n");
+                Source source = new Source() {
+                    @Override
+                    public long read(Buffer sink, long byteCount) throws IOException {
+                        if (event.size() > 0) return event.read(sink, byteCount);
+                        try {
+                            canceled.await();
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                        throw new IOException("Canceled");
+                    }
+
+                    @Override
+                    public Timeout timeout() {
+                        return Timeout.NONE;
+                    }
+
+                    @Override
+                    public void close() { }
+                };
+
+                return new Response.Builder()
+                        .request(localHostRequest)
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(MediaType.parse("text/event-stream"),
+                                -1, Okio.buffer(source)))
+                        .build();
+            }
+
+            @Override
+            public void cancel() {
+                canceled.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void testWatchdog_shouldReconnectSilentStream() throws InterruptedException {
+        final Semaphore calls = new Semaphore(0);
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<Call>() {
+            @Override
+            public Call answer(InvocationOnMock invocation) {
+                calls.release();
+                return makeSilentCall();
+            }
+        });
+
+        final BlockingQueue<StreamHealth> transitions = new LinkedBlockingQueue<>();
+        DummyExceptionHandler handler = new DummyExceptionHandler();
+        RestStreamClient client = new RestStreamClient.Builder(mockedClient, new RestConfig(), new DummyParser())
+                .setExceptionHandler(handler)
+                .setRetryScheduler(new ExecutorRetryScheduler(Executors.newSingleThreadScheduledExecutor()))
+                .setSilenceTimeout(100, TimeUnit.MILLISECONDS)
+                .setStreamHealthHandler(new EventHandler<StreamHealth>() {
+                    @Override
+                    public void handle(StreamHealth health) {
+                        transitions.add(health);
+                    }
+                })
+                .build();
+        client.start("access_token");
+
+        assertEquals(transitions.poll(5, TimeUnit.SECONDS), StreamHealth.CONNECTING);
+        assertEquals(transitions.poll(5, TimeUnit.SECONDS), StreamHealth.CONNECTED);
+        assertEquals(transitions.poll(5, TimeUnit.SECONDS), StreamHealth.STALE);
+        assertEquals(transitions.poll(5, TimeUnit.SECONDS), StreamHealth.DISCONNECTED);
+
+        //The silent connection is replaced, and tearing it down is not an error
+        assertEquals(transitions.poll(5, TimeUnit.SECONDS), StreamHealth.CONNECTING);
+        assertTrue(calls.tryAcquire(2, 5, TimeUnit.SECONDS));
+        assertNull(handler.exception);
+
+        client.stop();
+        assertEquals(client.getHealth(), StreamHealth.DISCONNECTED);
+    }
+
+    @Test
+    public void testHealthHandler_shouldNotBeCalledUnderLock() throws InterruptedException {
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<Call>() {
+            @Override
+            public Call answer(InvocationOnMock invocation) {
+                return makeSilentCall();
+            }
+        });
+
+        final AtomicReference<RestStreamClient> client = new AtomicReference<>();
+        final BlockingQueue<Boolean> readerDone = new LinkedBlockingQueue<>();
+        client.set(new RestStreamClient.Builder(mockedClient, new RestConfig(), new DummyParser())
+                .setExceptionHandler(new DummyExceptionHandler())
+                .setSilenceTimeout(0, TimeUnit.MILLISECONDS)
+                .setStreamHealthHandler(new EventHandler<StreamHealth>() {
+                    @Override
+                    public void handle(StreamHealth health) {
+                        if (health != StreamHealth.CONNECTING) return;
+
+                        //Another thread reading the health must not wait for the handler
+                        Thread reader = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                client.get().getHealth();
+                            }
+                        });
+                        reader.start();
+                        try {
+                            reader.join(2000);
+                        } catch (InterruptedException ignore) { }
+                        readerDone.add(!reader.isAlive());
+                    }
+                })
+                .build());
+        client.get().start("access_token");
+
+        assertEquals(readerDone.poll(5, TimeUnit.SECONDS), Boolean.TRUE);
+        client.get().stop();
+    }
 }
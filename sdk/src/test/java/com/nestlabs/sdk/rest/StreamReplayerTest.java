@@ -0,0 +1,134 @@
+package com.nestlabs.sdk.rest;
+
+import com.nestlabs.sdk.rest.parsers.ParserException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.http.RealResponseBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+
+public class StreamReplayerTest {
+
+    private static final String KEEP_ALIVE = "event: keep-alive\ndata: null\n\n";
+    private static final String PUT = "event: put\ndata: {\"path\":\"/\",\"data\":{}}\n\n";
+
+    private class CollectingParser extends DummyParser {
+        final List<String> frames = new ArrayList<>();
+
+        @Override
+        public void parse(String msg) throws ParserException {
+            super.parse(msg);
+            frames.add(msg);
+        }
+    }
+
+    private File capture;
+
+    @Before
+    public void setUp() throws IOException {
+        capture = File.createTempFile("stream", ".capture");
+    }
+
+    @After
+    public void tearDown() {
+        capture.delete();
+    }
+
+    @Test
+    public void testReplay_shouldDecodeRecordedStream() throws Exception {
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenReturn(new DummyCall() {
+            @Override
+            public Response execute() throws IOException {
+                return new Response.Builder()
+                        .request(localHostRequest)
+                        .protocol(Protocol.HTTP_1_0)
+                        .code(200)
+                        .body(new RealResponseBody(null, makeBufferedSource(KEEP_ALIVE + PUT)))
+                        .build();
+            }
+        });
+
+        //The retry is scheduled once the stream ended, so everything was recorded by then
+        final Semaphore ended = new Semaphore(0);
+        RetryScheduler scheduler = new RetryScheduler() {
+            @Override
+            public Future<?> schedule(Runnable task, long delayMillis) {
+                ended.release();
+                return new FutureTask<Void>(task, null);
+            }
+        };
+
+        StreamRecorder recorder = new StreamRecorder(capture);
+        CollectingParser live = new CollectingParser();
+        RestStreamClient client = new RestStreamClient.Builder(mockedClient, new RestConfig(), live)
+                .setRetryScheduler(scheduler)
+                .setSilenceTimeout(0, TimeUnit.MILLISECONDS)
+                .setRecorder(recorder)
+                .build();
+        client.start("access_token");
+        assertTrue(ended.tryAcquire(5, TimeUnit.SECONDS));
+        client.stop();
+        recorder.close();
+
+        CollectingParser replayed = new CollectingParser();
+        long frames = new StreamReplayer(capture).replay(replayed,
+                StreamReplayer.Pacing.AS_FAST_AS_POSSIBLE);
+
+        assertEquals(frames, 2);
+        assertEquals(replayed.frames, live.frames);
+    }
+
+    @Test
+    public void testReplay_shouldKeepOriginalPacing() throws Exception {
+        StreamRecorder recorder = new StreamRecorder(capture);
+        recorder.record(new Buffer().writeUtf8(KEEP_ALIVE));
+        Thread.sleep(200);
+        recorder.record(new Buffer().writeUtf8(PUT));
+        recorder.close();
+
+        CollectingParser parser = new CollectingParser();
+        long start = System.nanoTime();
+        new StreamReplayer(capture).replay(parser, StreamReplayer.Pacing.ORIGINAL);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+        assertEquals(parser.frames.size(), 2);
+    }
+
+    @Test
+    public void testReplay_shouldStopAtEndOfUnclosedCapture() throws Exception {
+        StreamRecorder recorder = new StreamRecorder(capture);
+        recorder.record(new Buffer().writeUtf8(KEEP_ALIVE + "event: put\n"));
+
+        //The frame split across reads is completed by the next one
+        recorder.record(new Buffer().writeUtf8("data: {}\n\n"));
+
+        CollectingParser parser = new CollectingParser();
+        long frames = new StreamReplayer(capture).replay(parser,
+                StreamReplayer.Pacing.AS_FAST_AS_POSSIBLE);
+        recorder.close();
+
+        assertEquals(frames, 2);
+        assertEquals(parser.frames.get(1), "event: put\ndata: {}");
+    }
+}
@@ -0,0 +1,180 @@
+package com.nestlabs.sdk.rest;
+
+import com.nestlabs.sdk.CoalescedWriteException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.http.RealResponseBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+
+public class WriteDebouncerTest {
+
+    private static final String PATH = "/devices/thermostats/id";
+
+    //Holds on to every request until the test completes it
+    private class PendingCall extends DummyCall {
+        final Request request;
+        Callback callback;
+
+        PendingCall(Request request) {
+            this.request = request;
+        }
+
+        @Override
+        public void enqueue(Callback responseCallback) {
+            super.enqueue(responseCallback);
+            callback = responseCallback;
+        }
+
+        String body() throws IOException {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            return buffer.readUtf8();
+        }
+
+        void complete(int code) throws IOException {
+            callback.onResponse(this, new Response.Builder()
+                    .request(localHostRequest)
+                    .protocol(Protocol.HTTP_1_0)
+                    .code(code)
+                    .body(new RealResponseBody(null, makeBufferedSource("{}")))
+                    .build());
+        }
+    }
+
+    private final List<PendingCall> calls = new ArrayList<>();
+    private RestClient client;
+
+    @Before
+    public void setUp() {
+        OkHttpClient mockedClient = PowerMockito.mock(OkHttpClient.class);
+        PowerMockito.when(mockedClient.newCall(any(Request.class))).thenAnswer(new Answer<DummyCall>() {
+            @Override
+            public DummyCall answer(InvocationOnMock invocation) {
+                PendingCall call = new PendingCall((Request) invocation.getArguments()[0]);
+                calls.add(call);
+                return call;
+            }
+        });
+
+        client = new RestClient(mockedClient, new RestConfig(), new DummyParser());
+        client.setToken("access_token");
+        client.setDebounceWrites(true);
+    }
+
+    @Test
+    public void testWrite_shouldOnlySendNewestValueAfterWriteInFlight() throws IOException {
+        DummyCallback first = new DummyCallback();
+        DummyCallback second = new DummyCallback();
+        DummyCallback third = new DummyCallback();
+        client.writeLong(PATH, "target_temperature_f", 70, first);
+        client.writeLong(PATH, "target_temperature_f", 71, second);
+        client.writeLong(PATH, "target_temperature_f", 72, third);
+
+        //Only the first one is in flight, the second one was replaced by the third
+        assertEquals(calls.size(), 1);
+        assertTrue(second.exception instanceof CoalescedWriteException);
+        assertFalse(second.success);
+
+        calls.get(0).complete(200);
+        assertTrue(first.success);
+        assertEquals(calls.size(), 2);
+        assertEquals(calls.get(1).body(), "{\"target_temperature_f\": 72}");
+
+        calls.get(1).complete(200);
+        assertTrue(third.success);
+        assertNull(third.exception);
+        assertEquals(calls.size(), 2);
+    }
+
+    @Test
+    public void testWrite_shouldNotHoldOtherFields() {
+        client.writeLong(PATH, "target_temperature_f", 70, null);
+        client.writeLong(PATH, "target_temperature_high_f", 75, null);
+        client.writeLong("/devices/thermostats/other", "target_temperature_f", 70, null);
+        assertEquals(calls.size(), 3);
+    }
+
+    @Test
+    public void testWrite_shouldSendNewestValueAfterFailure() throws IOException {
+        DummyCallback first = new DummyCallback();
+        DummyCallback second = new DummyCallback();
+        client.writeBoolean(PATH, "fan_timer_active", true, first);
+        client.writeBoolean(PATH, "fan_timer_active", false, second);
+
+        calls.get(0).complete(500);
+        assertNotNull(first.exception);
+        assertEquals(calls.size(), 2);
+
+        calls.get(1).complete(200);
+        assertTrue(second.success);
+
+        //Nothing in flight anymore, so the next write is sent right away
+        client.writeBoolean(PATH, "fan_timer_active", true, null);
+        assertEquals(calls.size(), 3);
+    }
+
+    @Test
+    public void testWrite_shouldMergeHeldWritesPerField() throws IOException {
+        DummyCallback first = new DummyCallback();
+        DummyCallback range = new DummyCallback();
+        DummyCallback low = new DummyCallback();
+        client.writeLong(PATH, "target_temperature_low_f", 65, first);
+        client.write(PATH)
+                .set("target_temperature_low_f", 66)
+                .set("target_temperature_high_f", 75)
+                .commit(range);
+        client.writeLong(PATH, "target_temperature_low_f", 67, low);
+
+        //The range still sets the high end, so it is not replaced
+        assertEquals(calls.size(), 1);
+        assertNull(range.exception);
+
+        calls.get(0).complete(200);
+        assertTrue(first.success);
+        assertEquals(calls.size(), 2);
+        assertEquals(calls.get(1).body(),
+                "{\"target_temperature_low_f\": 67, \"target_temperature_high_f\": 75}");
+
+        calls.get(1).complete(200);
+        assertTrue(range.success);
+        assertTrue(low.success);
+    }
+
+    @Test
+    public void testSetDebounceWrites_shouldKeepHeldWrites() throws IOException {
+        DummyCallback second = new DummyCallback();
+        client.writeLong(PATH, "target_temperature_f", 70, null);
+        client.writeLong(PATH, "target_temperature_f", 71, second);
+        client.setDebounceWrites(true);
+        client.writeLong(PATH, "target_temperature_f", 72, null);
+
+        //The write in flight is still known, so the newest value is held behind it
+        assertEquals(calls.size(), 1);
+        assertTrue(second.exception instanceof CoalescedWriteException);
+
+        calls.get(0).complete(200);
+        assertEquals(calls.size(), 2);
+        assertEquals(calls.get(1).body(), "{\"target_temperature_f\": 72}");
+    }
+}
@@ -0,0 +1,109 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import com.nestlabs.sdk.NestListener;
+import com.nestlabs.sdk.models.ChangeSet;
+import com.nestlabs.sdk.models.Thermostat;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeDetectorTest {
+
+    private static final String TEST_GLOBAL_UPDATE_JSON = "/test-global-update.json";
+    private static final String THERMOSTAT_PATH = "/devices/thermostats/peyiJNo0IldT2YlIVtYaGQ";
+
+    private class DummyChangeListener implements NestListener.ChangeListener {
+        final List<ChangeSet> changes = new ArrayList<>();
+
+        @Override
+        public void onChange(ChangeSet changeSet) {
+            changes.add(changeSet);
+        }
+    }
+
+    private Notifier notifier;
+    private ObjectModelMapper mapper;
+    private DummyChangeListener listener;
+    private String json;
+
+    @Before
+    public void setUp() throws IOException {
+        notifier = new Notifier();
+        mapper = new ObjectModelMapper(new ChangeDetector(notifier));
+        listener = new DummyChangeListener();
+        notifier.addListener(listener);
+        json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+    }
+
+    @Test
+    public void testDetector_shouldReportEverythingAsAddedFirst() throws ParserException {
+        mapper.map(new StreamingEvent("put", json));
+
+        assertEquals(listener.changes.size(), 1);
+        ChangeSet changes = listener.changes.get(0);
+        assertEquals(changes.getAdded().size(), 4);
+        assertTrue(changes.getRemoved().isEmpty());
+        assertTrue(changes.getChanged().isEmpty());
+    }
+
+    @Test
+    public void testDetector_shouldReportChangedKeys() throws ParserException {
+        mapper.map(new StreamingEvent("put", json));
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"" + THERMOSTAT_PATH + "\","
+                + "\"data\":{\"ambient_temperature_f\":50,\"humidity\":20}}"));
+
+        assertEquals(listener.changes.size(), 2);
+        ChangeSet changes = listener.changes.get(1);
+        assertTrue(changes.getAdded().isEmpty());
+        assertTrue(changes.getRemoved().isEmpty());
+        assertEquals(changes.getChanged().size(), 1);
+
+        ChangeSet.Change change = changes.getChanged().get(0);
+        assertEquals(((Thermostat) change.getCurrent()).getAmbientTemperatureF(), 50);
+        assertTrue(change.hasChanged(Thermostat.KEY_AMBIENT_TEMP_F));
+        assertTrue(change.hasChanged(Thermostat.KEY_HUMIDITY));
+        assertEquals(change.getChangedKeys().size(), 2);
+    }
+
+    @Test
+    public void testDetector_shouldSkipUpdatesWithoutChanges() throws ParserException {
+        mapper.map(new StreamingEvent("put", json));
+        mapper.map(new StreamingEvent("put", json));
+
+        assertEquals(listener.changes.size(), 1);
+    }
+
+    @Test
+    public void testDetector_shouldReportRemoved() throws ParserException {
+        mapper.map(new StreamingEvent("put", json));
+        mapper.map(new StreamingEvent("put", "{\"path\":\"" + THERMOSTAT_PATH + "\",\"data\":null}"));
+
+        ChangeSet changes = listener.changes.get(1);
+        assertEquals(changes.getRemoved().size(), 1);
+        assertTrue(changes.getRemoved().get(0) instanceof Thermostat);
+    }
+
+    @Test
+    public void testDetector_shouldCompareAgainstStateBeforeListenerWasAdded()
+            throws ParserException {
+        notifier.removeAllListeners();
+        mapper.map(new StreamingEvent("put", json));
+
+        notifier.addListener(listener);
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"" + THERMOSTAT_PATH + "\","
+                + "\"data\":{\"humidity\":20}}"));
+
+        assertEquals(listener.changes.size(), 1);
+        assertTrue(listener.changes.get(0).getAdded().isEmpty());
+        assertEquals(listener.changes.get(0).getChanged().size(), 1);
+    }
+}
@@ -0,0 +1,146 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.rest.RetryScheduler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingParserTest {
+
+    private static final long WINDOW = 100;
+
+    private class DummyEventParser implements EventParser {
+        final List<StreamingEvent> events = new ArrayList<>();
+
+        @Override
+        public void parseEvent(StreamingEvent event) {
+            events.add(event);
+        }
+    }
+
+    private class DummyRetryScheduler implements RetryScheduler {
+        final List<FutureTask<Void>> tasks = new ArrayList<>();
+
+        @Override
+        public Future<?> schedule(Runnable task, long delayMillis) {
+            assertEquals(delayMillis, WINDOW);
+            FutureTask<Void> future = new FutureTask<>(task, null);
+            tasks.add(future);
+            return future;
+        }
+
+        void runAll() {
+            for (FutureTask<Void> task : tasks) task.run();
+            tasks.clear();
+            for (Runnable release : releases) release.run();
+            releases.clear();
+        }
+    }
+
+    private final DummyEventParser delegate = new DummyEventParser();
+    private final DummyRetryScheduler scheduler = new DummyRetryScheduler();
+    private final List<Runnable> releases = new ArrayList<>();
+    private final CoalescingParser parser = new CoalescingParser(delegate, WINDOW, scheduler,
+            new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    releases.add(command);
+                }
+            },
+            new ExceptionHandler() {
+                @Override
+                public void handle(NestException value) { }
+            });
+
+    private static StreamingEvent put(String path, int value) {
+        return new StreamingEvent("put", "{\"path\":\"" + path + "\",\"data\":{\"value\":" + value + "}}");
+    }
+
+    @Test
+    public void testBurst_shouldOnlyDispatchNewestSnapshot() throws ParserException {
+        StreamingEvent newest = put("/", 3);
+        parser.parseEvent(put("/", 1));
+        parser.parseEvent(put("/", 2));
+        parser.parseEvent(newest);
+
+        assertTrue(delegate.events.isEmpty());
+        assertEquals(scheduler.tasks.size(), 1);
+
+        scheduler.runAll();
+        assertEquals(delegate.events.size(), 1);
+        assertEquals(delegate.events.get(0), newest);
+    }
+
+    @Test
+    public void testPatch_shouldReleaseHeldSnapshotFirst() throws ParserException {
+        StreamingEvent snapshot = put("/", 1);
+        StreamingEvent patch = new StreamingEvent("patch",
+                "{\"data\":{\"value\":2},\"path\":\"/devices\"}");
+        StreamingEvent partial = put("/devices", 3);
+        parser.parseEvent(snapshot);
+        parser.parseEvent(patch);
+        parser.parseEvent(partial);
+
+        assertEquals(delegate.events.size(), 3);
+        assertEquals(delegate.events.get(0), snapshot);
+        assertEquals(delegate.events.get(1), patch);
+        assertEquals(delegate.events.get(2), partial);
+
+        //The release that was scheduled has nothing left to do
+        scheduler.runAll();
+        assertEquals(delegate.events.size(), 3);
+    }
+
+    @Test
+    public void testControlEvents_shouldPassStraightThrough() throws ParserException {
+        parser.parseEvent(put("/", 1));
+        StreamingEvent revoked = new StreamingEvent("auth_revoked", "null");
+        StreamingEvent error = new StreamingEvent("error", "{\"error\":\"unauthorized\"}");
+        parser.parseEvent(revoked);
+        parser.parseEvent(error);
+
+        assertEquals(delegate.events.size(), 2);
+        assertEquals(delegate.events.get(0), revoked);
+        assertEquals(delegate.events.get(1), error);
+
+        scheduler.runAll();
+        assertEquals(delegate.events.size(), 3);
+    }
+
+    @Test
+    public void testDiscard_shouldDropHeldSnapshot() throws ParserException {
+        parser.parseEvent(put("/", 1));
+        parser.discard();
+        scheduler.runAll();
+        assertTrue(delegate.events.isEmpty());
+
+        //A new window starts with the next snapshot
+        parser.parseEvent(put("/", 2));
+        assertEquals(scheduler.tasks.size(), 1);
+    }
+
+    @Test
+    public void testRelease_shouldDispatchOnReleaseExecutor() throws ParserException {
+        StreamingEvent snapshot = put("/", 1);
+        parser.parseEvent(snapshot);
+
+        //The end of the window only hands the release over
+        for (FutureTask<Void> task : scheduler.tasks) task.run();
+        assertTrue(delegate.events.isEmpty());
+        assertEquals(releases.size(), 1);
+
+        releases.get(0).run();
+        assertEquals(delegate.events.size(), 1);
+        assertEquals(delegate.events.get(0), snapshot);
+    }
+}
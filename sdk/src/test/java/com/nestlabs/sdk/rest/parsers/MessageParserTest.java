@@ -2,6 +2,8 @@ package com.nestlabs.sdk.rest.parsers;
 
 import org.junit.Test;
 
+import okio.ByteString;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertNotNull;
@@ -91,4 +93,30 @@ public class MessageParserTest {
         assertEquals(mapper.event.getEventType(), "error");
         assertEquals(mapper.event.getMessage(), error);
     }
+
+    @Test
+    public void testParseEvent_shouldMapFramedEvent() throws ParserException {
+        DummyMapper mapper = new DummyMapper();
+        MessageParser parser = new MessageParser(mapper);
+
+        StreamingEvent event = StreamingEvent.fromBytes("put", ByteString.encodeUtf8("{data}"));
+        parser.parseEvent(event);
+        assertNotNull(mapper.event);
+        assertEquals(mapper.event.getEventType(), "put");
+        assertEquals(mapper.event.getMessage(), "{data}");
+    }
+
+    @Test(expected = ParserException.class)
+    public void testParseEvent_throwParserExceptionOnEmptyEventType() throws ParserException {
+        MessageParser parser = new MessageParser(new DummyMapper());
+
+        parser.parseEvent(StreamingEvent.fromBytes("", ByteString.encodeUtf8("{}")));
+    }
+
+    @Test(expected = ParserException.class)
+    public void testParseEvent_throwParserExceptionOnEmptyData() throws ParserException {
+        MessageParser parser = new MessageParser(new DummyMapper());
+
+        parser.parseEvent(StreamingEvent.fromBytes("put", ByteString.EMPTY));
+    }
 }
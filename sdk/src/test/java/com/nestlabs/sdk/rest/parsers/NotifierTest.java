@@ -2,25 +2,33 @@ package com.nestlabs.sdk.rest.parsers;
 
 import android.support.annotation.NonNull;
 
+import com.nestlabs.sdk.ExceptionHandler;
 import com.nestlabs.sdk.NestException;
 import com.nestlabs.sdk.NestListener;
 import com.nestlabs.sdk.models.Camera;
+import com.nestlabs.sdk.models.ChangeSet;
 import com.nestlabs.sdk.models.DeviceUpdate;
 import com.nestlabs.sdk.models.GlobalUpdate;
 import com.nestlabs.sdk.models.Metadata;
 import com.nestlabs.sdk.models.SmokeCOAlarm;
 import com.nestlabs.sdk.models.Structure;
 import com.nestlabs.sdk.models.Thermostat;
+import com.nestlabs.sdk.rest.StreamHealth;
 
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class NotifierTest {
@@ -185,6 +193,25 @@ public class NotifierTest {
         assertNotNull(dummyMetadataListener.metadata);
     }
 
+    @Test
+    public void testHandleStreamHealth_shouldReceiveHealthNotification() {
+        final List<StreamHealth> received = new ArrayList<>();
+        Notifier notifier = new Notifier();
+        notifier.addListener(new NestListener.StreamHealthListener() {
+            @Override
+            public void onStreamHealthChanged(@NonNull StreamHealth health) {
+                received.add(health);
+            }
+        });
+
+        notifier.handleStreamHealth(StreamHealth.CONNECTED);
+        notifier.handleStreamHealth(StreamHealth.STALE);
+
+        assertEquals(received.size(), 2);
+        assertEquals(received.get(0), StreamHealth.CONNECTED);
+        assertEquals(received.get(1), StreamHealth.STALE);
+    }
+
     @Test
     public void testRemoveListener_shouldNotReceiveNotification() {
 
@@ -199,4 +226,433 @@ public class NotifierTest {
         assertFalse(dummyAuthListener.authFailure);
         assertFalse(dummyAuthListener.authRevoked);
     }
+
+    @Test
+    public void testHandleData_shouldNotifyEveryInterfaceOfListener() {
+        class MultiListener implements NestListener.ThermostatListener,
+                NestListener.MetadataListener, NestListener.AuthListener {
+            private int updates = 0;
+            private boolean authRevoked = false;
+
+            @Override
+            public void onUpdate(@NonNull List<Thermostat> thermostats) {
+                updates++;
+            }
+
+            @Override
+            public void onUpdate(@NonNull Metadata metadata) {
+                updates++;
+            }
+
+            @Override
+            public void onAuthFailure(NestException exception) { }
+
+            @Override
+            public void onAuthRevoked() {
+                authRevoked = true;
+            }
+        }
+
+        MultiListener listener = new MultiListener();
+        Notifier notifier = new Notifier();
+        notifier.addListener(listener);
+        notifier.handleData(new GlobalUpdate(new ArrayList<Thermostat>(),
+                new ArrayList<SmokeCOAlarm>(), new ArrayList<Camera>(),
+                new ArrayList<Structure>(), new Metadata()));
+        notifier.handleAuthRevoked();
+
+        assertEquals(listener.updates, 2);
+        assertTrue(listener.authRevoked);
+
+        notifier.removeListener(listener);
+        notifier.handleAuthRevoked();
+        notifier.handleData(new GlobalUpdate(new ArrayList<Thermostat>(),
+                new ArrayList<SmokeCOAlarm>(), new ArrayList<Camera>(),
+                new ArrayList<Structure>(), new Metadata()));
+        assertEquals(listener.updates, 2);
+    }
+
+    @Test
+    public void testAddListener_shouldBeSafeDuringDispatch() {
+        final Notifier notifier = new Notifier();
+        final AuthListener added = new AuthListener();
+
+        notifier.addListener(new NestListener.AuthListener() {
+            @Override
+            public void onAuthFailure(NestException exception) { }
+
+            @Override
+            public void onAuthRevoked() {
+                notifier.addListener(added);
+                notifier.removeListener(this);
+            }
+        });
+
+        //Changes made while dispatching apply from the next event on
+        notifier.handleAuthRevoked();
+        assertFalse(added.authRevoked);
+
+        notifier.handleAuthRevoked();
+        assertTrue(added.authRevoked);
+    }
+
+    private class QueuedExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) tasks.remove(0).run();
+        }
+    }
+
+    private class MetadataListener implements NestListener.MetadataListener {
+        private final List<Metadata> updates = new ArrayList<>();
+
+        @Override
+        public void onUpdate(@NonNull Metadata metadata) {
+            updates.add(metadata);
+        }
+    }
+
+    private GlobalUpdate update(Metadata metadata) {
+        return new GlobalUpdate(new ArrayList<Thermostat>(), new ArrayList<SmokeCOAlarm>(),
+                new ArrayList<Camera>(), new ArrayList<Structure>(), metadata);
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldCallListenersOnExecutor() {
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor).build());
+        MetadataListener listener = new MetadataListener();
+        ErrorListener errorListener = new ErrorListener();
+        notifier.addListener(listener);
+        notifier.addListener(errorListener);
+
+        notifier.handleData(update(new Metadata()));
+        notifier.handleError(new ErrorMessage().setError("genericError"));
+        assertTrue(listener.updates.isEmpty());
+        assertNull(errorListener.errorMessage);
+
+        executor.runAll();
+        assertEquals(listener.updates.size(), 1);
+        assertEquals(errorListener.errorMessage.getError(), "genericError");
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldCoalesceToLatest() {
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor)
+                .setOverflowPolicy(AsyncDispatch.OverflowPolicy.LATEST_WINS)
+                .build());
+        MetadataListener listener = new MetadataListener();
+        notifier.addListener(listener);
+
+        Metadata latest = new Metadata();
+        notifier.handleData(update(new Metadata()));
+        notifier.handleData(update(new Metadata()));
+        notifier.handleData(update(latest));
+        executor.runAll();
+
+        assertEquals(listener.updates.size(), 1);
+        assertSame(listener.updates.get(0), latest);
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldDropOldest() {
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor)
+                .setOverflowPolicy(AsyncDispatch.OverflowPolicy.DROP_OLDEST)
+                .setCapacity(2)
+                .build());
+        MetadataListener listener = new MetadataListener();
+        notifier.addListener(listener);
+
+        Metadata second = new Metadata();
+        Metadata third = new Metadata();
+        notifier.handleData(update(new Metadata()));
+        notifier.handleData(update(second));
+        notifier.handleData(update(third));
+        executor.runAll();
+
+        assertEquals(listener.updates.size(), 2);
+        assertSame(listener.updates.get(0), second);
+        assertSame(listener.updates.get(1), third);
+    }
+
+    private class RecordingListener implements NestListener.MetadataListener,
+            NestListener.ErrorListener, NestListener.AuthListener {
+        private final List<Object> callbacks = new ArrayList<>();
+
+        @Override
+        public void onUpdate(@NonNull Metadata metadata) {
+            callbacks.add(metadata);
+        }
+
+        @Override
+        public void onError(ErrorMessage errorMessage) {
+            callbacks.add(errorMessage);
+        }
+
+        @Override
+        public void onAuthFailure(NestException exception) {
+            callbacks.add(exception);
+        }
+
+        @Override
+        public void onAuthRevoked() {
+            callbacks.add("revoked");
+        }
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldNotCoalesceAheadOfErrors() {
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor)
+                .setOverflowPolicy(AsyncDispatch.OverflowPolicy.LATEST_WINS)
+                .build());
+        RecordingListener listener = new RecordingListener();
+        notifier.addListener(listener);
+
+        ErrorMessage error = new ErrorMessage().setError("genericError");
+        Metadata latest = new Metadata();
+        notifier.handleData(update(new Metadata()));
+        notifier.handleError(error);
+        notifier.handleData(update(latest));
+        executor.runAll();
+
+        assertEquals(listener.callbacks.size(), 2);
+        assertSame(listener.callbacks.get(0), error);
+        assertSame(listener.callbacks.get(1), latest);
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldNotDropErrorsOrAuthEvents() {
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor)
+                .setOverflowPolicy(AsyncDispatch.OverflowPolicy.DROP_OLDEST)
+                .setCapacity(2)
+                .build());
+        RecordingListener listener = new RecordingListener();
+        notifier.addListener(listener);
+
+        ErrorMessage error = new ErrorMessage().setError("genericError");
+        Metadata latest = new Metadata();
+        notifier.handleAuthRevoked();
+        notifier.handleError(error);
+        //The queue is full of callbacks that are never dropped, so it grows instead
+        notifier.handleData(update(new Metadata()));
+        notifier.handleData(update(latest));
+        executor.runAll();
+
+        assertEquals(listener.callbacks.size(), 3);
+        assertEquals(listener.callbacks.get(0), "revoked");
+        assertSame(listener.callbacks.get(1), error);
+        assertSame(listener.callbacks.get(2), latest);
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldDropOldestUpdateBeforeErrors() {
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor)
+                .setOverflowPolicy(AsyncDispatch.OverflowPolicy.DROP_OLDEST)
+                .setCapacity(2)
+                .build());
+        RecordingListener listener = new RecordingListener();
+        notifier.addListener(listener);
+
+        ErrorMessage error = new ErrorMessage().setError("genericError");
+        Metadata latest = new Metadata();
+        notifier.handleError(error);
+        notifier.handleData(update(new Metadata()));
+        notifier.handleData(update(latest));
+        executor.runAll();
+
+        assertEquals(listener.callbacks.size(), 2);
+        assertSame(listener.callbacks.get(0), error);
+        assertSame(listener.callbacks.get(1), latest);
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldBlockUntilListenerCatchesUp() throws InterruptedException {
+        final QueuedExecutor executor = new QueuedExecutor();
+        final Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor)
+                .setOverflowPolicy(AsyncDispatch.OverflowPolicy.BLOCK)
+                .setCapacity(1)
+                .build());
+        MetadataListener listener = new MetadataListener();
+        notifier.addListener(listener);
+
+        notifier.handleData(update(new Metadata()));
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                notifier.handleData(update(new Metadata()));
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        //Drain the queue and let the producer in
+        Runnable drain = executor.tasks.remove(0);
+        drain.run();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+
+        drain.run();
+        assertEquals(listener.updates.size(), 2);
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldDropPendingOnRemove() {
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor).build());
+        MetadataListener listener = new MetadataListener();
+        notifier.addListener(listener);
+
+        notifier.handleData(update(new Metadata()));
+        notifier.removeListener(listener);
+        executor.runAll();
+
+        assertTrue(listener.updates.isEmpty());
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldReportListenerExceptions() {
+        final List<NestException> exceptions = new ArrayList<>();
+        QueuedExecutor executor = new QueuedExecutor();
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(executor)
+                .setExceptionHandler(new ExceptionHandler() {
+                    @Override
+                    public void handle(NestException value) {
+                        exceptions.add(value);
+                    }
+                })
+                .build());
+        AuthListener authListener = new AuthListener();
+        notifier.addListener(new NestListener.ErrorListener() {
+            @Override
+            public void onError(ErrorMessage errorMessage) {
+                throw new IllegalStateException();
+            }
+        });
+        notifier.addListener(authListener);
+
+        notifier.handleError(new ErrorMessage().setError("genericError"));
+        notifier.handleAuthRevoked();
+        executor.runAll();
+
+        assertEquals(exceptions.size(), 1);
+        assertTrue(authListener.authRevoked);
+    }
+
+    @Test
+    public void testAsyncDispatch_shouldRecoverFromRejectedExecution() {
+        final List<NestException> exceptions = new ArrayList<>();
+        final QueuedExecutor executor = new QueuedExecutor();
+        final boolean[] rejecting = {true};
+        Notifier notifier = new Notifier(new AsyncDispatch.Builder(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                if (rejecting[0]) throw new RejectedExecutionException();
+                executor.execute(command);
+            }
+        }).setExceptionHandler(new ExceptionHandler() {
+            @Override
+            public void handle(NestException value) {
+                exceptions.add(value);
+            }
+        }).build());
+        MetadataListener listener = new MetadataListener();
+        notifier.addListener(listener);
+
+        notifier.handleData(update(new Metadata()));
+        assertEquals(exceptions.size(), 1);
+
+        //The rejected callback stays queued and is coalesced with the next one
+        Metadata latest = new Metadata();
+        rejecting[0] = false;
+        notifier.handleData(update(latest));
+        executor.runAll();
+        assertEquals(listener.updates.size(), 1);
+        assertSame(listener.updates.get(0), latest);
+    }
+
+    @Test
+    public void testHandleData_shouldOnlySkipMetadataListenersForStaleUpdates() {
+        Notifier notifier = new Notifier();
+        MetadataListener listener = new MetadataListener();
+        notifier.addListener(listener);
+
+        notifier.handleData(new GlobalUpdate(null, null, null, null, null, true));
+        assertTrue(listener.updates.isEmpty());
+
+        notifier.handleData(update(null));
+        assertEquals(listener.updates.size(), 1);
+        assertNull(listener.updates.get(0));
+    }
+
+    @Test
+    public void testGetObservedTypes_shouldFollowListeners() {
+        Notifier notifier = new Notifier();
+        assertTrue(notifier.getObservedTypes().isEmpty());
+
+        NestListener.DeviceListener deviceListener = new NestListener.DeviceListener() {
+            @Override
+            public void onUpdate(@NonNull DeviceUpdate update) { }
+        };
+        notifier.addListener(deviceListener);
+        assertEquals(notifier.getObservedTypes(), new HashSet<>(Arrays.asList(
+                Constants.KEY_THERMOSTATS, Constants.KEY_CAMERAS, Constants.KEY_SMOKE_CO_ALARMS)));
+
+        notifier.addListener(new NestListener.StructureListener() {
+            @Override
+            public void onUpdate(@NonNull List<Structure> structures) { }
+        });
+        notifier.removeListener(deviceListener);
+        assertEquals(notifier.getObservedTypes(),
+                new HashSet<>(Arrays.asList(Constants.KEY_STRUCTURES)));
+
+        notifier.addListener(new NestListener.ChangeListener() {
+            @Override
+            public void onChange(@NonNull ChangeSet changes) { }
+        });
+        assertEquals(notifier.getObservedTypes().size(), 4);
+
+        notifier.removeAllListeners();
+        assertTrue(notifier.getObservedTypes().isEmpty());
+    }
+
+    @Test
+    public void testObservedTypesListener_shouldOnlyRunWhenTypesChange() {
+        Notifier notifier = new Notifier();
+        final int[] calls = {0};
+        notifier.addObservedTypesListener(new Runnable() {
+            @Override
+            public void run() {
+                calls[0]++;
+            }
+        });
+
+        notifier.addListener(new ErrorListener());
+        assertEquals(calls[0], 0);
+
+        MetadataListener metadataListener = new MetadataListener();
+        notifier.addListener(new NestListener.StructureListener() {
+            @Override
+            public void onUpdate(@NonNull List<Structure> structures) { }
+        });
+        notifier.addListener(metadataListener);
+        assertEquals(calls[0], 1);
+
+        notifier.removeListener(metadataListener);
+        assertEquals(calls[0], 1);
+
+        notifier.removeAllListeners();
+        assertEquals(calls[0], 2);
+    }
 }
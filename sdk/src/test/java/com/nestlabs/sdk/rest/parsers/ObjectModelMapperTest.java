@@ -1,16 +1,28 @@
 package com.nestlabs.sdk.rest.parsers;
 
+import android.support.annotation.NonNull;
+
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.NestListener;
+import com.nestlabs.sdk.models.Camera;
 import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.Thermostat;
+import com.nestlabs.sdk.testing.FakeWwnServer;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ObjectModelMapperTest {
@@ -116,4 +128,297 @@ public class ObjectModelMapperTest {
 
         mapper.map(new StreamingEvent("put", "{\"devices\":\"cameras\":{}"));
     }
+
+    @Test
+    public void testMap_shouldParseDataEnvelope() throws ParserException, IOException {
+        //Stream events wrap the payload as {"path": "/", "data": {...}}
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        String json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+
+        mapper.map(new StreamingEvent("put", "{\"path\":\"/\",\"data\":" + json + "}"));
+        GlobalUpdate event = handler.updateEvent;
+        assertNotNull(event);
+        assertNotNull(event.getMetadata());
+        assertEquals(event.getStructures().size(), 1);
+        assertEquals(event.getThermostats().size(), 1);
+        assertEquals(event.getThermostats().get(0).getDeviceId(), "peyiJNo0IldT2YlIVtYaGQ");
+    }
+
+    @Test(expected = ParserException.class)
+    public void testMap_shouldFailToParseNonObjectPayload() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        mapper.map(new StreamingEvent("put", "[]"));
+    }
+
+    @Test
+    public void testMap_shouldApplyPatchToPreviousState() throws ParserException, IOException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        String json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+
+        mapper.map(new StreamingEvent("put", "{\"path\":\"/\",\"data\":" + json + "}"));
+        GlobalUpdate first = handler.updateEvent;
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "peyiJNo0IldT2YlIVtYaGQ\",\"data\":{\"target_temperature_f\":68}}"));
+        GlobalUpdate second = handler.updateEvent;
+
+        assertNotSame(first, second);
+        assertEquals(second.getThermostats().size(), 1);
+        assertEquals(second.getThermostats().get(0).getTargetTemperatureF(), 68);
+        assertEquals(second.getThermostats().get(0).getName(),
+                first.getThermostats().get(0).getName());
+
+        //Models outside of the patched path are reused as is
+        assertSame(first.getStructures().get(0), second.getStructures().get(0));
+        assertSame(first.getCameras().get(0), second.getCameras().get(0));
+        assertSame(first.getSmokeCOAlarms().get(0), second.getSmokeCOAlarms().get(0));
+        assertSame(first.getMetadata(), second.getMetadata());
+    }
+
+    @Test
+    public void testMap_shouldApplyPutBelowRoot() throws ParserException, IOException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        String json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+
+        mapper.map(new StreamingEvent("put", json));
+        GlobalUpdate first = handler.updateEvent;
+
+        //Removing a device and adding another one
+        mapper.map(new StreamingEvent("put",
+                "{\"path\":\"/devices/cameras/awJo6rH0IldT2YlIVtYaGQ\",\"data\":null}"));
+        assertTrue(handler.updateEvent.getCameras().isEmpty());
+
+        mapper.map(new StreamingEvent("put", "{\"path\":\"/devices/thermostats/t2\","
+                + "\"data\":{\"device_id\":\"t2\",\"name\":\"Hallway\"}}"));
+        GlobalUpdate event = handler.updateEvent;
+        assertEquals(event.getThermostats().size(), 2);
+        assertSame(event.getThermostats().get(0), first.getThermostats().get(0));
+        assertEquals(event.getThermostats().get(1).getDeviceId(), "t2");
+        assertEquals(event.getThermostats().get(1).getName(), "Hallway");
+    }
+
+    @Test
+    public void testMap_shouldApplyPatchWithoutSnapshot() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/\",\"data\":"
+                + "{\"structures/s1\":{\"structure_id\":\"s1\",\"away\":\"home\"}}}"));
+        GlobalUpdate event = handler.updateEvent;
+        assertNotNull(event);
+        assertEquals(event.getStructures().size(), 1);
+        assertEquals(event.getStructures().get(0).getStructureId(), "s1");
+        assertTrue(event.getThermostats().isEmpty());
+    }
+
+    @Test
+    public void testMap_shouldIgnorePatchOfUnknownPath() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/unknown\",\"data\":{\"a\":1}}"));
+        assertNull(handler.updateEvent);
+    }
+
+    @Test(expected = ParserException.class)
+    public void testMap_shouldFailToParsePatchWithoutData() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/\",\"data\":1}"));
+    }
+
+    private static String account(int homes, int devicesPerHome) {
+        return "{\"path\":\"/\",\"data\":"
+                + FakeWwnServer.account(homes, devicesPerHome) + "}";
+    }
+
+    @Test
+    public void testMap_shouldOnlyMapSubscribedStructure() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler, new Subscription.Builder()
+                .setTypes(Constants.KEY_STRUCTURES, Constants.KEY_THERMOSTATS)
+                .setStructureIds("structure-00001")
+                .build());
+
+        mapper.map(new StreamingEvent("put", account(3, 3)));
+        GlobalUpdate event = handler.updateEvent;
+        assertEquals(event.getStructures().size(), 1);
+        assertEquals(event.getStructures().get(0).getStructureId(), "structure-00001");
+        assertEquals(event.getThermostats().size(), 1);
+        assertEquals(event.getThermostats().get(0).getDeviceId(), "thermostats-00001-000");
+        assertTrue(event.getCameras().isEmpty());
+        assertTrue(event.getSmokeCOAlarms().isEmpty());
+        assertNotNull(event.getMetadata());
+    }
+
+    @Test
+    public void testMap_shouldOnlyBindSubscribedFields() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler, new Subscription.Builder()
+                .setDeviceIds("thermostats-00000-000")
+                .setFields("name")
+                .build());
+
+        mapper.map(new StreamingEvent("put", account(2, 3)));
+        GlobalUpdate event = handler.updateEvent;
+        assertEquals(event.getThermostats().size(), 1);
+        assertEquals(event.getThermostats().get(0).getDeviceId(), "thermostats-00000-000");
+        assertEquals(event.getThermostats().get(0).getStructureId(), "structure-00000");
+        assertEquals(event.getThermostats().get(0).getName(), "Hallway (upstairs)");
+        assertEquals(event.getThermostats().get(0).getTargetTemperatureF(), 0);
+        assertTrue(event.getCameras().isEmpty());
+
+        //Structures are not filtered by device, only their fields are
+        assertEquals(event.getStructures().size(), 2);
+        assertNull(event.getStructures().get(0).getWheres());
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "thermostats-00000-000\",\"data\":{\"name\":\"Den\",\"target_temperature_f\":68}}"));
+        event = handler.updateEvent;
+        assertEquals(event.getThermostats().get(0).getName(), "Den");
+        assertEquals(event.getThermostats().get(0).getTargetTemperatureF(), 0);
+    }
+
+    @Test
+    public void testMap_shouldDropDeviceMovedOutOfSubscribedStructure() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler, new Subscription.Builder()
+                .setStructureIds("structure-00000")
+                .build());
+
+        mapper.map(new StreamingEvent("put", account(2, 3)));
+        assertEquals(handler.updateEvent.getThermostats().size(), 1);
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "thermostats-00000-000\",\"data\":{\"structure_id\":\"structure-00001\"}}"));
+        assertTrue(handler.updateEvent.getThermostats().isEmpty());
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "thermostats-00001-000\",\"data\":{\"structure_id\":\"structure-00000\"}}"));
+        assertEquals(handler.updateEvent.getThermostats().size(), 1);
+        assertEquals(handler.updateEvent.getThermostats().get(0).getDeviceId(), "thermostats-00001-000");
+    }
+
+    @Test
+    public void testMap_shouldOnlyBuildObservedTypes() throws ParserException, IOException {
+        DummyEventHandler handler = new DummyEventHandler();
+        Notifier notifier = new Notifier();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler, Subscription.ALL, notifier);
+        notifier.addListener(new NestListener.ThermostatListener() {
+            @Override
+            public void onUpdate(@NonNull List<Thermostat> thermostats) { }
+        });
+
+        String json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+        mapper.map(new StreamingEvent("put", json));
+        GlobalUpdate event = handler.updateEvent;
+        assertEquals(event.getThermostats().size(), 1);
+        assertTrue(event.getCameras().isEmpty());
+        assertTrue(event.getSmokeCOAlarms().isEmpty());
+        assertTrue(event.getStructures().isEmpty());
+
+        //A type that is observed later is built right away from the state
+        NestListener.CameraListener cameraListener = new NestListener.CameraListener() {
+            @Override
+            public void onUpdate(@NonNull List<Camera> cameras) { }
+        };
+        notifier.addListener(cameraListener);
+        assertNotSame(handler.updateEvent, event);
+        event = handler.updateEvent;
+        assertEquals(event.getCameras().size(), 1);
+        assertEquals(event.getThermostats().size(), 1);
+        assertTrue(event.getSmokeCOAlarms().isEmpty());
+
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "peyiJNo0IldT2YlIVtYaGQ\",\"data\":{\"target_temperature_f\":68}}"));
+        event = handler.updateEvent;
+        assertEquals(event.getThermostats().get(0).getTargetTemperatureF(), 68);
+        assertEquals(event.getCameras().size(), 1);
+        assertTrue(event.getSmokeCOAlarms().isEmpty());
+
+        notifier.removeListener(cameraListener);
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "peyiJNo0IldT2YlIVtYaGQ\",\"data\":{\"target_temperature_f\":69}}"));
+        assertTrue(handler.updateEvent.getCameras().isEmpty());
+    }
+
+    @Test
+    public void testMap_shouldBindSnapshotOnFirstRead() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        mapper.map(new StreamingEvent("put", account(2, 3)));
+        GlobalUpdate first = handler.updateEvent;
+
+        //Cameras that were never read are still bound from the snapshot by a later update
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "thermostats-00000-000\",\"data\":{\"target_temperature_f\":68}}"));
+        GlobalUpdate second = handler.updateEvent;
+        assertEquals(second.getCameras().size(), 2);
+        assertEquals(second.getThermostats().get(0).getTargetTemperatureF(), 68);
+
+        //Both updates share the models bound once for the unchanged types
+        assertSame(first.getCameras().get(0), second.getCameras().get(0));
+        assertEquals(first.getThermostats().get(0).getTargetTemperatureF(), 72);
+        assertNotSame(first.getThermostats().get(0), second.getThermostats().get(0));
+    }
+
+    @Test
+    public void testMap_shouldReuseUnchangedModelsOfNextSnapshot() throws ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler);
+
+        mapper.map(new StreamingEvent("put", account(2, 3)));
+        GlobalUpdate first = handler.updateEvent;
+        assertEquals(first.getThermostats().size(), 2);
+
+        //The same snapshot, except for one thermostat
+        String changed = account(2, 3).replaceFirst("\"target_temperature_f\":72",
+                "\"target_temperature_f\":68");
+        mapper.map(new StreamingEvent("put", changed));
+        GlobalUpdate second = handler.updateEvent;
+        assertEquals(second.getThermostats().get(0).getTargetTemperatureF(), 68);
+        assertNotSame(first.getThermostats().get(0), second.getThermostats().get(0));
+        assertSame(first.getThermostats().get(1), second.getThermostats().get(1));
+
+        //Models are reused across a patch to another model as well
+        mapper.map(new StreamingEvent("patch", "{\"path\":\"/devices/thermostats/"
+                + "thermostats-00001-000\",\"data\":{\"target_temperature_f\":70}}"));
+        mapper.map(new StreamingEvent("put", changed));
+        GlobalUpdate third = handler.updateEvent;
+        assertSame(second.getThermostats().get(0), third.getThermostats().get(0));
+        assertEquals(third.getThermostats().get(1).getTargetTemperatureF(), 72);
+    }
+
+    @Test
+    public void testMap_shouldReportModelsThatFailToBind() throws ParserException {
+        final List<NestException> reported = new ArrayList<>();
+        DummyEventHandler handler = new DummyEventHandler();
+        ObjectModelMapper mapper = new ObjectModelMapper(handler, Subscription.ALL, null,
+                new ExceptionHandler() {
+                    @Override
+                    public void handle(NestException value) {
+                        reported.add(value);
+                    }
+                });
+
+        String json = "{\"path\":\"/\",\"data\":{\"devices\":{\"thermostats\":"
+                + "{\"t1\":{\"device_id\":\"t1\",\"target_temperature_f\":{\"f\":1}}}}}}";
+        mapper.map(new StreamingEvent("put", json));
+        assertTrue(handler.updateEvent.getThermostats().isEmpty());
+        assertEquals(reported.size(), 1);
+    }
 }
@@ -0,0 +1,104 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import com.nestlabs.sdk.models.GlobalUpdate;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnapshotFileTest {
+
+    private static final String TEST_GLOBAL_UPDATE_JSON = "/test-global-update.json";
+    private static final String TOKEN = "c.FmDPkzyzaQeX";
+
+    private File file;
+    private SnapshotFile snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("state", ".snapshot");
+        snapshot = new SnapshotFile(file);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private GlobalUpdate load() throws IOException, ParserException {
+        final GlobalUpdate[] update = new GlobalUpdate[1];
+        String json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+        new ObjectModelMapper(new StateStore(new StreamingEventHandler() {
+            @Override
+            public void handleData(GlobalUpdate event) {
+                update[0] = event;
+            }
+
+            @Override
+            public void handleError(ErrorMessage errorMessage) { }
+
+            @Override
+            public void handleAuthRevoked() { }
+        })).map(new StreamingEvent("put", json));
+        return update[0];
+    }
+
+    @Test
+    public void testRead_shouldRestoreWrittenModels() throws IOException, ParserException {
+        GlobalUpdate update = load();
+        snapshot.write(update, TOKEN);
+        GlobalUpdate restored = snapshot.read(TOKEN);
+
+        assertTrue(restored.isStale());
+        assertFalse(update.isStale());
+        assertEquals(restored.getStructures(), update.getStructures());
+        assertEquals(restored.getThermostats(), update.getThermostats());
+        assertEquals(restored.getSmokeCOAlarms(), update.getSmokeCOAlarms());
+        assertEquals(restored.getCameras(), update.getCameras());
+        //The metadata holds the access token, it is never saved
+        assertNull(restored.getMetadata());
+    }
+
+    @Test
+    public void testRead_shouldIgnoreOtherToken() throws IOException, ParserException {
+        snapshot.write(load(), TOKEN);
+        assertNull(snapshot.read("c.other"));
+    }
+
+    @Test
+    public void testRead_shouldIgnoreMissingOrOtherFormat() throws IOException {
+        //Created empty by the test
+        assertNull(snapshot.read(TOKEN));
+
+        snapshot.delete();
+        assertFalse(file.exists());
+        assertNull(snapshot.read(TOKEN));
+    }
+
+    @Test
+    public void testRead_shouldFailOnTruncatedSnapshot() throws IOException, ParserException {
+        snapshot.write(load(), TOKEN);
+        RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+        truncated.setLength(truncated.length() - 10);
+        truncated.close();
+
+        try {
+            snapshot.read(TOKEN);
+            fail();
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+}
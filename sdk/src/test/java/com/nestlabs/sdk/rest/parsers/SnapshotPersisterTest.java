@@ -0,0 +1,190 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nestlabs.sdk.ExceptionHandler;
+import com.nestlabs.sdk.NestException;
+import com.nestlabs.sdk.models.Camera;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.SmokeCOAlarm;
+import com.nestlabs.sdk.models.Structure;
+import com.nestlabs.sdk.models.Thermostat;
+import com.nestlabs.sdk.rest.RetryScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotPersisterTest {
+
+    private static final long INTERVAL = 1000;
+    private static final String TOKEN = "c.FmDPkzyzaQeX";
+
+    private class DummyEventHandler implements StreamingEventHandler {
+        final List<GlobalUpdate> updates = new ArrayList<>();
+        boolean authRevokedEvent = false;
+
+        @Override
+        public void handleData(GlobalUpdate event) {
+            updates.add(event);
+        }
+
+        @Override
+        public void handleError(ErrorMessage errorMessage) { }
+
+        @Override
+        public void handleAuthRevoked() {
+            authRevokedEvent = true;
+        }
+    }
+
+    private class DummyRetryScheduler implements RetryScheduler {
+        final List<FutureTask<Void>> tasks = new ArrayList<>();
+
+        @Override
+        public Future<?> schedule(Runnable task, long delayMillis) {
+            assertEquals(delayMillis, INTERVAL);
+            FutureTask<Void> future = new FutureTask<>(task, null);
+            tasks.add(future);
+            return future;
+        }
+
+        void runAll() {
+            for (FutureTask<Void> task : tasks) task.run();
+            tasks.clear();
+            while (!writes.isEmpty()) writes.remove(0).run();
+        }
+    }
+
+    private final List<Runnable> writes = new ArrayList<>();
+    private final Executor writeExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            writes.add(command);
+        }
+    };
+
+    private final DummyEventHandler handler = new DummyEventHandler();
+    private final DummyRetryScheduler scheduler = new DummyRetryScheduler();
+    private final List<NestException> errors = new ArrayList<>();
+    private File file;
+    private SnapshotPersister persister;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("state", ".snapshot");
+        file.delete();
+        persister = new SnapshotPersister(handler, new SnapshotFile(file), INTERVAL, scheduler,
+                writeExecutor, new ExceptionHandler() {
+                    @Override
+                    public void handle(NestException value) {
+                        errors.add(value);
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static GlobalUpdate update(String name) throws IOException {
+        Structure structure = new ObjectMapper()
+                .readValue("{\"name\":\"" + name + "\"}", Structure.class);
+        return new GlobalUpdate(Collections.<Thermostat>emptyList(),
+                Collections.<SmokeCOAlarm>emptyList(), Collections.<Camera>emptyList(),
+                Collections.singletonList(structure), null);
+    }
+
+    @Test
+    public void testHandleData_shouldSaveNewestUpdateOncePerInterval() throws IOException {
+        assertNull(persister.restore(TOKEN));
+        GlobalUpdate first = update("first");
+        GlobalUpdate newest = update("newest");
+        persister.handleData(first);
+        persister.handleData(newest);
+
+        assertEquals(handler.updates.size(), 2);
+        assertSame(handler.updates.get(1), newest);
+        assertEquals(scheduler.tasks.size(), 1);
+        assertFalse(file.exists());
+
+        scheduler.runAll();
+        GlobalUpdate restored = persister.restore(TOKEN);
+        assertTrue(restored.isStale());
+        assertEquals(restored.getStructures(), newest.getStructures());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void testHandleData_shouldWriteOnWriteExecutor() throws IOException {
+        persister.restore(TOKEN);
+        persister.handleData(update("saved"));
+        for (FutureTask<Void> task : scheduler.tasks) task.run();
+
+        //The scheduler only ended the interval
+        assertFalse(file.exists());
+        assertEquals(writes.size(), 1);
+
+        writes.remove(0).run();
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void testHandleData_shouldNotSaveStaleUpdate() throws IOException {
+        persister.restore(TOKEN);
+        persister.handleData(update("saved"));
+        scheduler.runAll();
+
+        GlobalUpdate restored = persister.restore(TOKEN);
+        persister.handleData(restored);
+        assertTrue(scheduler.tasks.isEmpty());
+        assertSame(handler.updates.get(1), restored);
+    }
+
+    @Test
+    public void testHandleAuthRevoked_shouldDeleteSnapshot() throws IOException {
+        persister.restore(TOKEN);
+        persister.handleData(update("saved"));
+        scheduler.runAll();
+        assertTrue(file.exists());
+
+        persister.handleData(update("pending"));
+        persister.handleAuthRevoked();
+        scheduler.runAll();
+
+        assertTrue(handler.authRevokedEvent);
+        assertFalse(file.exists());
+        assertNull(persister.restore(TOKEN));
+    }
+
+    @Test
+    public void testRestore_shouldDeleteUnreadableSnapshot() throws IOException {
+        persister.restore(TOKEN);
+        persister.handleData(update("saved"));
+        scheduler.runAll();
+
+        RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+        truncated.setLength(truncated.length() - 1);
+        truncated.close();
+
+        assertNull(persister.restore(TOKEN));
+        assertFalse(file.exists());
+        assertEquals(errors.size(), 1);
+    }
+}
@@ -0,0 +1,159 @@
+package com.nestlabs.sdk.rest.parsers;
+
+import com.nestlabs.sdk.models.Device;
+import com.nestlabs.sdk.models.GlobalUpdate;
+import com.nestlabs.sdk.models.ModelLoader;
+import com.nestlabs.sdk.models.Structure;
+import com.nestlabs.sdk.models.Thermostat;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StateStoreTest {
+
+    private static final String TEST_GLOBAL_UPDATE_JSON = "/test-global-update.json";
+    private static final String STRUCTURE_ID = "VqFabWH21nwVyd4RWgJgNb292wa7hG_dUwo2i2SG7j3-BOLY0BA4sw";
+
+    private class DummyEventHandler implements StreamingEventHandler {
+
+        GlobalUpdate updateEvent = null;
+        ErrorMessage error = null;
+        boolean authRevokedEvent = false;
+
+        @Override
+        public void handleData(GlobalUpdate eventData) {
+            updateEvent = eventData;
+        }
+
+        @Override
+        public void handleError(ErrorMessage errorMessage) {
+            error = errorMessage;
+        }
+
+        @Override
+        public void handleAuthRevoked() {
+            authRevokedEvent = true;
+        }
+    }
+
+    private StateStore load(DummyEventHandler handler) throws IOException, ParserException {
+        StateStore store = new StateStore(handler);
+        String json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+        new ObjectModelMapper(store).map(new StreamingEvent("put", json));
+        return store;
+    }
+
+    @Test
+    public void testStore_shouldBeEmptyBeforeFirstUpdate() {
+        StateStore store = new StateStore(new DummyEventHandler());
+
+        assertNull(store.getLastUpdate());
+        assertNull(store.getMetadata());
+        assertNull(store.getThermostat("peyiJNo0IldT2YlIVtYaGQ"));
+        assertTrue(store.getDevicesInStructure(STRUCTURE_ID).isEmpty());
+    }
+
+    @Test
+    public void testStore_shouldIndexUpdate() throws IOException, ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        StateStore store = load(handler);
+
+        assertSame(store.getLastUpdate(), handler.updateEvent);
+        assertNotNull(store.getMetadata());
+        assertEquals(store.getStructure(STRUCTURE_ID).getStructureId(), STRUCTURE_ID);
+        assertEquals(store.getThermostat("peyiJNo0IldT2YlIVtYaGQ").getDeviceId(),
+                "peyiJNo0IldT2YlIVtYaGQ");
+        assertEquals(store.getCamera("awJo6rH...").getName(), "Hallway (upstairs)");
+        assertEquals(store.getSmokeCOAlarm("RTMTKxsQTCxzVcsySOHPxKoF4OyCifrs").getDeviceId(),
+                "RTMTKxsQTCxzVcsySOHPxKoF4OyCifrs");
+        assertSame(store.getDevice("peyiJNo0IldT2YlIVtYaGQ"),
+                store.getThermostat("peyiJNo0IldT2YlIVtYaGQ"));
+        assertNull(store.getThermostat("awJo6rH..."));
+
+        List<Device> devices = store.getDevicesInStructure(STRUCTURE_ID);
+        assertEquals(devices.size(), 3);
+
+        List<Device> where = store.getDevicesInWhere("UNCBGUnN24...");
+        assertEquals(where.size(), 2);
+        assertTrue(store.getDevicesInWhere("unknown").isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStore_shouldNotExposeMutableGroups() throws IOException, ParserException {
+        StateStore store = load(new DummyEventHandler());
+        store.getDevicesInStructure(STRUCTURE_ID).clear();
+    }
+
+    @Test
+    public void testStore_shouldForwardEvents() throws IOException, ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        StateStore store = load(handler);
+
+        store.handleAuthRevoked();
+        assertTrue(handler.authRevokedEvent);
+
+        store.clear();
+        assertNull(store.getLastUpdate());
+        assertNull(store.getStructure(STRUCTURE_ID));
+    }
+
+    @Test
+    public void testStore_shouldStayStaleUntilLiveUpdate() throws IOException, ParserException {
+        DummyEventHandler handler = new DummyEventHandler();
+        StateStore store = new StateStore(handler);
+        assertFalse(store.isStale());
+
+        ModelLoader<Structure> structures = new ModelLoader<Structure>() {
+            @Override
+            public List<Structure> load() {
+                return Collections.emptyList();
+            }
+        };
+        store.handleData(new GlobalUpdate(null, null, null, structures, null, true));
+        assertTrue(store.isStale());
+        assertTrue(handler.updateEvent.isStale());
+
+        String json = IOUtils.toString(this.getClass().getResourceAsStream(TEST_GLOBAL_UPDATE_JSON),
+                "utf-8");
+        new ObjectModelMapper(store).map(new StreamingEvent("put", json));
+        assertFalse(store.isStale());
+    }
+
+    @Test
+    public void testStore_shouldOnlyBindLookedUpTypes() {
+        StateStore store = new StateStore(new DummyEventHandler());
+        final int[] loads = new int[2];
+        ModelLoader<Structure> structures = new ModelLoader<Structure>() {
+            @Override
+            public List<Structure> load() {
+                loads[0]++;
+                return Collections.emptyList();
+            }
+        };
+        ModelLoader<Thermostat> thermostats = new ModelLoader<Thermostat>() {
+            @Override
+            public List<Thermostat> load() {
+                loads[1]++;
+                return Collections.emptyList();
+            }
+        };
+        store.handleData(new GlobalUpdate(thermostats, null, null, structures, null));
+
+        assertNull(store.getStructure(STRUCTURE_ID));
+        assertNull(store.getStructure(STRUCTURE_ID));
+        assertEquals(loads[0], 1);
+        assertEquals(loads[1], 0);
+    }
+}
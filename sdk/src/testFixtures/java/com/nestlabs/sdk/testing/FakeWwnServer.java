@@ -0,0 +1,400 @@
+package com.nestlabs.sdk.testing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nestlabs.sdk.rest.RestConfig;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the WWN API on a real socket, for integration and load tests of the whole
+ * SDK. It keeps the state of an account and serves it the way the service does:
+ * <ul>
+ *     <li>{@code GET} opens a {@code text/event-stream} that starts with a {@code put} of the
+ *     whole state and stays open for further events.</li>
+ *     <li>{@code PUT} writes are merged into the state, answered with the written JSON and echoed
+ *     to every stream as a {@code patch}.</li>
+ *     <li>With {@link #setRedirect(String)} every request is answered with a 307 instead, like
+ *     the service does to move clients to another host.</li>
+ * </ul>
+ *
+ * A single thread accepts connections and hands them to a pool that reads the requests, with a
+ * read timeout, so a client that stalls mid-request holds up nobody else. Events are queued to
+ * every stream under the lock of the state, so all streams see them in the same order, and
+ * written from the calling thread outside of it. The server scales to as many streams as the
+ * process has file descriptors for.
+ */
+public final class FakeWwnServer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String TEMPLATE_JSON = "/test-global-update.json";
+    private static final String[] DEVICE_TYPES = {"thermostats", "cameras", "smoke_co_alarms"};
+    private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService handlers = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "fake-wwn-handler-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final ConcurrentLinkedQueue<Stream> streams = new ConcurrentLinkedQueue<>();
+    //Guarded by this, like queueing events to the streams
+    private final ObjectNode state;
+    private final AtomicInteger writeCount = new AtomicInteger();
+    private volatile String redirect;
+
+    /**
+     * Starts a server with an account of the given size. Devices in each home rotate between
+     * thermostats, cameras and smoke+CO alarms.
+     */
+    public FakeWwnServer(int homes, int devicesPerHome) throws IOException {
+        state = account(homes, devicesPerHome);
+        serverSocket = new ServerSocket(0, 4096, InetAddress.getByName("127.0.0.1"));
+
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "fake-wwn-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Builds the state of an account, as sent in the {@code data} of a full {@code put}, from
+     * the devices in the test fixtures.
+     */
+    public static ObjectNode account(int homes, int devicesPerHome) {
+        ObjectNode template = loadTemplate();
+        ObjectNode data = MAPPER.createObjectNode();
+        data.set("metadata", template.get("metadata"));
+        ObjectNode devices = data.putObject("devices");
+        ObjectNode structures = data.putObject("structures");
+        for (String type : DEVICE_TYPES) devices.putObject(type);
+
+        for (int h = 0; h < homes; h++) {
+            String structureId = String.format(Locale.US, "structure-%05d", h);
+            ObjectNode structure = first(template.get("structures")).deepCopy();
+            structure.put("structure_id", structureId);
+            structure.put("name", "Home " + h);
+            for (String type : DEVICE_TYPES) structure.putArray(type);
+
+            for (int d = 0; d < devicesPerHome; d++) {
+                String type = DEVICE_TYPES[d % DEVICE_TYPES.length];
+                String deviceId = String.format(Locale.US, "%s-%05d-%03d", type, h, d);
+                ObjectNode device = first(template.get("devices").get(type)).deepCopy();
+                device.put("device_id", deviceId);
+                device.put("structure_id", structureId);
+                ((ObjectNode) devices.get(type)).set(deviceId, device);
+                ((ArrayNode) structure.get(type)).add(deviceId);
+            }
+            structures.set(structureId, structure);
+        }
+        return data;
+    }
+
+    private static ObjectNode loadTemplate() {
+        try {
+            InputStream in = FakeWwnServer.class.getResourceAsStream(TEMPLATE_JSON);
+            try {
+                return (ObjectNode) MAPPER.readTree(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load " + TEMPLATE_JSON, e);
+        }
+    }
+
+    private static JsonNode first(JsonNode node) {
+        return node.elements().next();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    public RestConfig getRestConfig() {
+        return new RestConfig("http", "127.0.0.1", String.valueOf(getPort()));
+    }
+
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    public int getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Returns the current state of the account as JSON.
+     */
+    public synchronized String getState() {
+        return state.toString();
+    }
+
+    /**
+     * Answers every following request with a 307 to the same path on the given base url, e.g.
+     * the {@link #getUrl()} of another server, or stops redirecting if it is null.
+     */
+    public void setRedirect(String baseUrl) {
+        redirect = baseUrl;
+    }
+
+    /**
+     * Sends the whole state to every stream.
+     */
+    public void sendPut() {
+        synchronized (this) {
+            enqueue(encode("put", wrap("/", state)));
+        }
+        flush();
+    }
+
+    public void sendKeepAlive() {
+        broadcast("keep-alive", "null");
+    }
+
+    public void sendAuthRevoked() {
+        broadcast("auth_revoked", "null");
+    }
+
+    public void sendError(String error, String message) {
+        ObjectNode data = MAPPER.createObjectNode();
+        data.put("error", error);
+        data.put("message", message);
+        broadcast("error", data.toString());
+    }
+
+    /**
+     * Writes an event to every open stream. Streams that fail are closed and dropped.
+     */
+    public void broadcast(String event, String data) {
+        byte[] bytes = encode(event, data);
+        synchronized (this) {
+            enqueue(bytes);
+        }
+        flush();
+    }
+
+    //Called with the lock held
+    private void enqueue(byte[] event) {
+        for (Stream stream : streams) stream.pending.add(event);
+    }
+
+    //Called without the lock, so a slow stream does not hold up writes and new streams
+    private void flush() {
+        Iterator<Stream> it = streams.iterator();
+        while (it.hasNext()) {
+            Stream stream = it.next();
+            try {
+                stream.flush();
+            } catch (IOException e) {
+                it.remove();
+                closeQuietly(stream.socket);
+            }
+        }
+    }
+
+    public void shutdown() {
+        closeQuietly(serverSocket);
+        handlers.shutdownNow();
+        for (Stream stream : streams) closeQuietly(stream.socket);
+        streams.clear();
+    }
+
+    private static byte[] encode(String event, String data) {
+        return ("event: " + event + "\ndata: " + data + "\n\n").getBytes(UTF_8);
+    }
+
+    private static String wrap(String path, JsonNode data) {
+        ObjectNode event = MAPPER.createObjectNode();
+        event.put("path", path);
+        event.set("data", data);
+        return event.toString();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket socket = null;
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+                handlers.execute(handler(socket));
+            } catch (IOException | RejectedExecutionException e) {
+                if (socket != null) closeQuietly(socket);
+            }
+        }
+    }
+
+    private Runnable handler(final Socket socket) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    handle(socket);
+                } catch (IOException | RuntimeException e) {
+                    closeQuietly(socket);
+                }
+            }
+        };
+    }
+
+    private void handle(Socket socket) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        String[] requestLine = readLine(in).split(" ");
+        if (requestLine.length < 2) throw new IOException("Malformed request");
+        String method = requestLine[0];
+        String target = requestLine[1];
+
+        int contentLength = 0;
+        for (String header = readLine(in); header.length() > 0; header = readLine(in)) {
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                contentLength = Integer.parseInt(header.substring(colon + 1).trim());
+            }
+        }
+        byte[] body = new byte[contentLength];
+        for (int read = 0; read < contentLength; ) {
+            int count = in.read(body, read, contentLength - read);
+            if (count == -1) throw new IOException("Unexpected end of request body");
+            read += count;
+        }
+
+        OutputStream out = socket.getOutputStream();
+        String redirectTo = redirect;
+        if (redirectTo != null) {
+            respond(out, "307 Temporary Redirect", "Location: " + redirectTo + target + "\r\n", "");
+            socket.close();
+        } else if ("GET".equals(method)) {
+            openStream(socket);
+        } else if ("PUT".equals(method)) {
+            String path = target.indexOf('?') == -1 ? target : target.substring(0, target.indexOf('?'));
+            respond(out, "200 OK", "Content-Type: application/json; charset=UTF-8\r\n",
+                    write(path, new String(body, UTF_8)));
+            socket.close();
+        } else {
+            respond(out, "405 Method Not Allowed", "", "");
+            socket.close();
+        }
+    }
+
+    private void openStream(Socket socket) throws IOException {
+        //Nothing is read from a stream anymore
+        socket.setSoTimeout(0);
+        socket.getOutputStream().write(("HTTP/1.1 200 OK\r\n"
+                + "Content-Type: text/event-stream; charset=utf-8\r\n"
+                + "Cache-Control: no-cache\r\n"
+                + "Connection: close\r\n\r\n").getBytes(UTF_8));
+
+        //Under the lock, so no event is missed between the snapshot and joining.
+        //Joining first, so the stream is counted before the client can see the snapshot.
+        Stream stream = new Stream(socket);
+        synchronized (this) {
+            stream.pending.add(encode("put", wrap("/", state)));
+            streams.add(stream);
+        }
+        try {
+            stream.flush();
+        } catch (IOException e) {
+            streams.remove(stream);
+            throw e;
+        }
+    }
+
+    //Merges the written fields into the state and echoes them to the streams
+    private String write(String path, String body) throws IOException {
+        JsonNode fields = MAPPER.readTree(body);
+        if (!(fields instanceof ObjectNode)) throw new IOException("Writes must be JSON objects");
+
+        synchronized (this) {
+            ObjectNode node = state;
+            for (String segment : path.split("/")) {
+                if (segment.length() == 0) continue;
+                JsonNode child = node.get(segment);
+                node = child instanceof ObjectNode ? (ObjectNode) child : node.putObject(segment);
+            }
+            node.setAll((ObjectNode) fields);
+            writeCount.incrementAndGet();
+            enqueue(encode("patch", wrap(path, fields)));
+        }
+        flush();
+        return fields.toString();
+    }
+
+    private static void respond(OutputStream out, String status, String headers, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(UTF_8);
+        out.write(("HTTP/1.1 " + status + "\r\n" + headers
+                + "Content-Length: " + bytes.length + "\r\n"
+                + "Connection: close\r\n\r\n").getBytes(UTF_8));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b == -1) throw new IOException("Unexpected end of request");
+            if (b != '\r') line.write(b);
+        }
+        return line.toString("UTF-8");
+    }
+
+    /**
+     * An open event stream. Events are queued in the order of the state, and written by one
+     * thread at a time, whichever queued them.
+     */
+    private static final class Stream {
+        final Socket socket;
+        final ConcurrentLinkedQueue<byte[]> pending = new ConcurrentLinkedQueue<>();
+
+        Stream(Socket socket) {
+            this.socket = socket;
+        }
+
+        synchronized void flush() throws IOException {
+            OutputStream out = socket.getOutputStream();
+            for (byte[] event = pending.poll(); event != null; event = pending.poll()) {
+                out.write(event);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignore) { }
+    }
+}